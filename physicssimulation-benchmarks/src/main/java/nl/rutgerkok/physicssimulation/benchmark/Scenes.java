@@ -0,0 +1,90 @@
+package nl.rutgerkok.physicssimulation.benchmark;
+
+import static nl.rutgerkok.physicssimulation.shape.Circle.circle;
+import static nl.rutgerkok.physicssimulation.shape.Sphere.sphere;
+import static nl.rutgerkok.physicssimulation.vector.Vector.vec2;
+import static nl.rutgerkok.physicssimulation.vector.Vector.vec3;
+import static nl.rutgerkok.physicssimulation.world.PhysicalObject.obj;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import nl.rutgerkok.physicssimulation.shape.Material;
+import nl.rutgerkok.physicssimulation.world.PhysicalObject;
+import nl.rutgerkok.physicssimulation.world.WorldBuilder;
+
+/**
+ * Scenes shared by the benchmarks. The scenes are random, but always the same
+ * for the same parameters.
+ *
+ * <p>
+ * The objects are spread over a square or cube that grows with the amount of
+ * objects, so that every object has about the same amount of neighbours in
+ * every scene. This keeps the results of different object counts comparable.
+ * </p>
+ */
+public final class Scenes {
+
+    /**
+     * Average distance between the centers of two neighbouring objects. The
+     * objects have a radius of 0.5, so some objects overlap.
+     */
+    private static final double SPACING = 1.5;
+
+    /**
+     * Creates randomly placed circles or spheres with a radius of 0.5.
+     *
+     * @param count
+     *            The amount of objects.
+     * @param dimension
+     *            2 for circles, 3 for spheres.
+     * @return The objects.
+     * @throws IllegalArgumentException
+     *             If the dimension is not 2 or 3.
+     */
+    public static List<PhysicalObject> randomObjects(int count, int dimension) {
+        Random random = new Random(count * 31 + dimension);
+        List<PhysicalObject> objects = new ArrayList<>(count);
+        if (dimension == 2) {
+            double size = Math.sqrt(count) * SPACING;
+            for (int i = 0; i < count; i++) {
+                objects.add(obj(circle(vec2(random.nextDouble() * size, random.nextDouble() * size), 0.5),
+                        vec2(random.nextDouble() - 0.5, random.nextDouble() - 0.5), Material.ROCK));
+            }
+        } else if (dimension == 3) {
+            double size = Math.cbrt(count) * SPACING;
+            for (int i = 0; i < count; i++) {
+                objects.add(obj(sphere(vec3(random.nextDouble() * size, random.nextDouble() * size,
+                        random.nextDouble() * size), 0.5),
+                        vec3(random.nextDouble() - 0.5, random.nextDouble() - 0.5, random.nextDouble() - 0.5),
+                        Material.ROCK));
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported dimension: " + dimension);
+        }
+        return objects;
+    }
+
+    /**
+     * Creates a world builder with randomly placed circles or spheres, see
+     * {@link #randomObjects(int, int)}. No forces or supervisors are added.
+     *
+     * @param count
+     *            The amount of objects.
+     * @param dimension
+     *            2 for circles, 3 for spheres.
+     * @return The world builder.
+     * @throws IllegalArgumentException
+     *             If the dimension is not 2 or 3.
+     */
+    public static WorldBuilder randomWorld(int count, int dimension) {
+        WorldBuilder builder = WorldBuilder.newWorld();
+        randomObjects(count, dimension).forEach(builder::withObject);
+        return builder;
+    }
+
+    private Scenes() {
+
+    }
+}
@@ -0,0 +1,58 @@
+package nl.rutgerkok.physicssimulation.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import nl.rutgerkok.physicssimulation.collision.CollisionSupervisor;
+import nl.rutgerkok.physicssimulation.force.Forces;
+import nl.rutgerkok.physicssimulation.world.PhysicsSimulation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a complete step of the simulation: calculating the forces, moving
+ * the objects and resolving the collisions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulationBenchmark {
+
+    @Param({ "100", "1000", "10000", "100000" })
+    public int objectCount;
+
+    @Param({ "2", "3" })
+    public int dimension;
+
+    private PhysicsSimulation simulation;
+
+    @Benchmark
+    public void advance() {
+        simulation.advance(0.01);
+    }
+
+    /**
+     * Creates a new world for every iteration, so that the objects don't drift
+     * too far from their starting positions.
+     */
+    @Setup(Level.Iteration)
+    public void setUp() {
+        simulation = Scenes.randomWorld(objectCount, dimension)
+                .withForce(Forces.GRAVITY)
+                .withSupervisor(new CollisionSupervisor())
+                .create();
+    }
+}
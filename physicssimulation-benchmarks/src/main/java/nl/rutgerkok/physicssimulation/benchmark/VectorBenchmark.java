@@ -0,0 +1,90 @@
+package nl.rutgerkok.physicssimulation.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import nl.rutgerkok.physicssimulation.vector.Vector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the operations of {@link nl.rutgerkok.physicssimulation.vector.Vector2}
+ * and {@link nl.rutgerkok.physicssimulation.vector.Vector3}, applied to an
+ * array of vectors. As the vectors are immutable, this mostly measures how
+ * well the JVM can avoid creating new vector objects.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VectorBenchmark {
+
+    @Param({ "100", "1000", "10000", "100000" })
+    public int objectCount;
+
+    @Param({ "2", "3" })
+    public int dimension;
+
+    private Vector[] vectors;
+
+    @Benchmark
+    public double distance() {
+        double sum = 0;
+        for (int i = 1; i < vectors.length; i++) {
+            sum += vectors[i].getDistanceTo(vectors[i - 1]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double dotProduct() {
+        double sum = 0;
+        for (int i = 1; i < vectors.length; i++) {
+            sum += vectors[i].dotProduct(vectors[i - 1]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public Vector normalized() {
+        Vector sum = vectors[0];
+        for (int i = 1; i < vectors.length; i++) {
+            sum = sum.plus(vectors[i].normalized());
+        }
+        return sum;
+    }
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(objectCount);
+        vectors = new Vector[objectCount];
+        for (int i = 0; i < objectCount; i++) {
+            double[] coords = new double[dimension];
+            for (int axis = 0; axis < dimension; axis++) {
+                coords[axis] = random.nextDouble() * 200 - 100;
+            }
+            vectors[i] = Vector.vec(coords);
+        }
+    }
+
+    @Benchmark
+    public Vector sum() {
+        Vector sum = vectors[0];
+        for (int i = 1; i < vectors.length; i++) {
+            sum = sum.plus(vectors[i].minus(vectors[i - 1]).multiply(0.5));
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,73 @@
+package nl.rutgerkok.physicssimulation.collision;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import nl.rutgerkok.physicssimulation.benchmark.Scenes;
+import nl.rutgerkok.physicssimulation.world.PhysicalObject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures finding all collisions with each of the broad phases. The objects
+ * don't move, so broad phases that keep state between steps can reuse all of
+ * it.
+ *
+ * <p>
+ * This class is in the same package as {@link CollisionChecker}, as that class
+ * is not public.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionCheckerBenchmark {
+
+    @Param({ "100", "1000", "10000", "100000" })
+    public int objectCount;
+
+    @Param({ "2", "3" })
+    public int dimension;
+
+    @Param({ "uniformGrid", "sweepAndPrune", "boundingVolumeHierarchy" })
+    public String broadPhaseName;
+
+    private List<PhysicalObject> objects;
+    private BroadPhase broadPhase;
+
+    @Benchmark
+    public List<Collision> getCollisions() {
+        return CollisionChecker.getCollisions(objects, broadPhase, null, null);
+    }
+
+    @Setup
+    public void setUp() {
+        objects = Scenes.randomObjects(objectCount, dimension);
+        switch (broadPhaseName) {
+            case "uniformGrid":
+                broadPhase = BroadPhases.uniformGrid();
+                break;
+            case "sweepAndPrune":
+                broadPhase = BroadPhases.sweepAndPrune();
+                break;
+            case "boundingVolumeHierarchy":
+                broadPhase = BroadPhases.boundingVolumeHierarchy();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown broad phase: " + broadPhaseName);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package nl.rutgerkok.physicssimulation.force;
+
+import java.util.concurrent.TimeUnit;
+
+import nl.rutgerkok.physicssimulation.benchmark.Scenes;
+import nl.rutgerkok.physicssimulation.vector.MutableVector;
+import nl.rutgerkok.physicssimulation.world.PhysicalObject;
+import nl.rutgerkok.physicssimulation.world.WorldView;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures calculating {@code F = c / r^p} on a single object. This looks at
+ * every other object, so the time grows linearly with the amount of objects.
+ * The Barnes-Hut approximation of the same force is measured too.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IsotropicInteractionBenchmark {
+
+    @Param({ "100", "1000", "10000", "100000" })
+    public int objectCount;
+
+    @Param({ "2", "3" })
+    public int dimension;
+
+    private WorldView world;
+    private PhysicalObject[] objects;
+    private IsotropicInteraction exact;
+    private BarnesHutInteraction approximated;
+    private MutableVector result;
+    private int nextObject;
+
+    @Benchmark
+    public MutableVector barnesHut() {
+        approximated.calculate(nextObject(), world, result.setZero());
+        return result;
+    }
+
+    @Benchmark
+    public MutableVector calculate() {
+        exact.calculate(nextObject(), world, result.setZero());
+        return result;
+    }
+
+    private PhysicalObject nextObject() {
+        PhysicalObject object = objects[nextObject];
+        nextObject = (nextObject + 1) % objects.length;
+        return object;
+    }
+
+    @Setup
+    public void setUp() {
+        world = Scenes.randomWorld(objectCount, dimension).create().getWorld();
+        objects = world.toArray(new PhysicalObject[0]);
+        exact = new IsotropicInteraction(10, 2);
+        approximated = new BarnesHutInteraction(10, 2, 0.5);
+        approximated.prepare(world);
+        result = MutableVector.zero(dimension);
+    }
+}
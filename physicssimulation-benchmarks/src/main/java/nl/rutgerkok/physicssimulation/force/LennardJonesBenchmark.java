@@ -0,0 +1,65 @@
+package nl.rutgerkok.physicssimulation.force;
+
+import java.util.concurrent.TimeUnit;
+
+import nl.rutgerkok.physicssimulation.benchmark.Scenes;
+import nl.rutgerkok.physicssimulation.vector.MutableVector;
+import nl.rutgerkok.physicssimulation.world.Force;
+import nl.rutgerkok.physicssimulation.world.PhysicalObject;
+import nl.rutgerkok.physicssimulation.world.WorldView;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures calculating the Lennard-Jones force with a cutoff radius on all
+ * objects, like the simulation does once per step. The objects don't move, so
+ * the neighbour lists are only built during the first call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LennardJonesBenchmark {
+
+    @Param({ "100", "1000", "10000", "100000" })
+    public int objectCount;
+
+    @Param({ "2", "3" })
+    public int dimension;
+
+    private WorldView world;
+    private PhysicalObject[] objects;
+    private Force force;
+    private MutableVector result;
+
+    @Benchmark
+    public double calculateAll() {
+        force.prepare(world);
+        double sum = 0;
+        for (PhysicalObject object : objects) {
+            force.calculate(object, world, result.setZero());
+            sum += result.getCoord(0);
+        }
+        return sum;
+    }
+
+    @Setup
+    public void setUp() {
+        world = Scenes.randomWorld(objectCount, dimension).create().getWorld();
+        objects = world.toArray(new PhysicalObject[0]);
+        force = Forces.lennardJones(1, 1, 2.5);
+        result = MutableVector.zero(dimension);
+    }
+}
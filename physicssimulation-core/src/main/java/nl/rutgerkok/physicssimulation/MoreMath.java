@@ -28,6 +28,39 @@ public final class MoreMath {
         return value;
     }
 
+    /**
+     * Raises a value to a positive integer power. Unlike
+     * {@link Math#pow(double, double)}, which may give slightly different
+     * results depending on whether the JIT compiler has optimized the calling
+     * code, this method always gives exactly the same result for the same
+     * input.
+     *
+     * @param base
+     *            The value.
+     * @param exponent
+     *            The power, must be 0 or higher.
+     * @return The value raised to the power.
+     * @throws IllegalArgumentException
+     *             If the power is negative.
+     */
+    public static double pow(double base, int exponent) {
+        if (exponent < 0) {
+            throw new IllegalArgumentException("Negative exponent: " + exponent);
+        }
+        double result = 1;
+        double square = base;
+        while (exponent != 0) {
+            if ((exponent & 1) != 0) {
+                result *= square;
+            }
+            exponent >>= 1;
+            if (exponent != 0) {
+                square *= square;
+            }
+        }
+        return result;
+    }
+
     MoreMath() {
         throw new RuntimeException("No instances");
     }
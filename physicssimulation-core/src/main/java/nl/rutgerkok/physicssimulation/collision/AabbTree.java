@@ -0,0 +1,305 @@
+package nl.rutgerkok.physicssimulation.collision;
+
+import java.util.Arrays;
+
+/**
+ * A tree of axis-aligned bounding boxes. Every leaf holds one object, every
+ * other node holds a box around both of its children. This makes it possible
+ * to find all objects overlapping a box without looking at most of the
+ * objects.
+ *
+ * <p>
+ * The tree is built from the top down, by splitting the objects in half along
+ * the axis where they are spread out the most. When the objects move, the
+ * tree can be {@link #refit(BoundingBoxes) refitted}: the boxes are
+ * recalculated, but the structure of the tree stays the same. This is a lot
+ * cheaper than building the tree again, but the quality of the tree slowly
+ * degrades.
+ * </p>
+ */
+final class AabbTree {
+
+    /**
+     * When the boxes of the tree have grown this much compared to when the
+     * tree was built, the tree should be rebuilt.
+     */
+    private static final double MAX_COST_GROWTH = 1.5;
+
+    private static final int NO_OBJECT = -1;
+
+    private int dimension = 2;
+    private int nodeCount = 0;
+
+    /**
+     * Nodes are stored in pre-order, so a parent always comes before its
+     * children.
+     */
+    private int[] leftChild = new int[0];
+    private int[] rightChild = new int[0];
+    private int[] nodeObject = new int[0];
+    private double[] nodeMin = new double[0];
+    private double[] nodeMax = new double[0];
+
+    /**
+     * Objects of the tree, reordered during building.
+     */
+    private int[] objects = new int[0];
+
+    private int[] stack = new int[64];
+    private double costAtBuild;
+
+    /**
+     * Builds the tree from scratch.
+     *
+     * @param objects
+     *            Indices of the objects to add to the tree.
+     * @param count
+     *            Amount of objects in the array to use.
+     * @param boxes
+     *            The bounding boxes of the objects.
+     */
+    void build(int[] objects, int count, BoundingBoxes boxes) {
+        this.dimension = boxes.getDimension();
+        this.objects = Arrays.copyOf(objects, count);
+        this.nodeCount = 0;
+
+        int maxNodes = Math.max(0, 2 * count - 1);
+        if (leftChild.length < maxNodes) {
+            leftChild = new int[maxNodes];
+            rightChild = new int[maxNodes];
+            nodeObject = new int[maxNodes];
+            nodeMin = new double[maxNodes * dimension];
+            nodeMax = new double[maxNodes * dimension];
+        } else if (nodeMin.length < maxNodes * dimension) {
+            nodeMin = new double[maxNodes * dimension];
+            nodeMax = new double[maxNodes * dimension];
+        }
+
+        if (count > 0) {
+            buildNode(0, count, boxes);
+        }
+        costAtBuild = calculateCost();
+    }
+
+    private int buildNode(int start, int end, BoundingBoxes boxes) {
+        int node = nodeCount++;
+        if (end - start == 1) {
+            nodeObject[node] = objects[start];
+            leftChild[node] = -1;
+            rightChild[node] = -1;
+            copyBox(node, objects[start], boxes);
+            return node;
+        }
+
+        // Split along the axis where the centers are spread out the most
+        int splitAxis = 0;
+        double largestSpread = -1;
+        for (int axis = 0; axis < dimension; axis++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = start; i < end; i++) {
+                double center = getCenter(objects[i], axis, boxes);
+                min = Math.min(min, center);
+                max = Math.max(max, center);
+            }
+            if (max - min > largestSpread) {
+                largestSpread = max - min;
+                splitAxis = axis;
+            }
+        }
+
+        int middle = (start + end) >>> 1;
+        select(start, end - 1, middle, splitAxis, boxes);
+
+        nodeObject[node] = NO_OBJECT;
+        leftChild[node] = buildNode(start, middle, boxes);
+        rightChild[node] = buildNode(middle, end, boxes);
+        unionOfChildren(node);
+        return node;
+    }
+
+    /**
+     * Calculates the sum of the sizes of all boxes of non-leaf nodes. A lower
+     * cost means that queries need to visit less nodes.
+     *
+     * @return The cost.
+     */
+    private double calculateCost() {
+        double cost = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            if (nodeObject[node] != NO_OBJECT) {
+                continue;
+            }
+            for (int axis = 0; axis < dimension; axis++) {
+                cost += nodeMax[node * dimension + axis] - nodeMin[node * dimension + axis];
+            }
+        }
+        return cost;
+    }
+
+    private void copyBox(int node, int object, BoundingBoxes boxes) {
+        for (int axis = 0; axis < dimension; axis++) {
+            nodeMin[node * dimension + axis] = boxes.getMin(object, axis);
+            nodeMax[node * dimension + axis] = boxes.getMax(object, axis);
+        }
+    }
+
+    /**
+     * Gets twice the center of the box of the object. This is just as good for
+     * comparing centers, and saves a division.
+     *
+     * @param object
+     *            The object.
+     * @param axis
+     *            The axis.
+     * @param boxes
+     *            The bounding boxes.
+     * @return Twice the center.
+     */
+    private double getCenter(int object, int axis, BoundingBoxes boxes) {
+        return boxes.getMin(object, axis) + boxes.getMax(object, axis);
+    }
+
+    private boolean overlaps(int node, int object, BoundingBoxes boxes) {
+        for (int axis = 0; axis < dimension; axis++) {
+            if (nodeMin[node * dimension + axis] > boxes.getMax(object, axis)
+                    || boxes.getMin(object, axis) > nodeMax[node * dimension + axis]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reports all objects in this tree with a box overlapping the box of the
+     * given object. The object itself is reported too, if it is in this tree.
+     *
+     * @param object
+     *            The object.
+     * @param boxes
+     *            The bounding boxes.
+     * @param consumer
+     *            Receives the given object and every overlapping object.
+     */
+    void query(int object, BoundingBoxes boxes, BroadPhase.PairConsumer consumer) {
+        if (nodeCount == 0) {
+            return;
+        }
+        int stackSize = 0;
+        stack[stackSize++] = 0;
+        while (stackSize > 0) {
+            int node = stack[--stackSize];
+            if (!overlaps(node, object, boxes)) {
+                continue;
+            }
+            if (nodeObject[node] != NO_OBJECT) {
+                consumer.accept(object, nodeObject[node]);
+                continue;
+            }
+            if (stackSize + 2 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            stack[stackSize++] = rightChild[node];
+            stack[stackSize++] = leftChild[node];
+        }
+    }
+
+    /**
+     * Recalculates all boxes in the tree, without changing its structure.
+     *
+     * @param boxes
+     *            The new bounding boxes of the objects.
+     * @return False if the tree has become so inefficient that it should be
+     *         rebuilt, true otherwise.
+     */
+    boolean refit(BoundingBoxes boxes) {
+        // Children come after their parents, so go backwards
+        for (int node = nodeCount - 1; node >= 0; node--) {
+            int object = nodeObject[node];
+            if (object == NO_OBJECT) {
+                unionOfChildren(node);
+            } else {
+                copyBox(node, object, boxes);
+            }
+        }
+        return calculateCost() <= costAtBuild * MAX_COST_GROWTH;
+    }
+
+    /**
+     * Updates the indices of the objects in this tree, after objects elsewhere
+     * in the list were added or removed. The boxes of the objects must not
+     * have changed.
+     *
+     * @param remapping
+     *            The new indices. None of the objects in this tree may have
+     *            been removed.
+     */
+    void remap(ObjectRemapping remapping) {
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = remapping.getNewIndex(objects[i]);
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            if (nodeObject[node] != NO_OBJECT) {
+                nodeObject[node] = remapping.getNewIndex(nodeObject[node]);
+            }
+        }
+    }
+
+    /**
+     * Partially sorts the objects, such that the object at index k has the
+     * center it would have if the objects were fully sorted on their center.
+     * All objects before it have a lower or equal center, all objects after it
+     * have a higher or equal center.
+     *
+     * @param left
+     *            First index, inclusive.
+     * @param right
+     *            Last index, inclusive.
+     * @param k
+     *            The index.
+     * @param axis
+     *            The axis to look at.
+     * @param boxes
+     *            The bounding boxes.
+     */
+    private void select(int left, int right, int k, int axis, BoundingBoxes boxes) {
+        while (right > left) {
+            double pivot = getCenter(objects[(left + right) >>> 1], axis, boxes);
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (getCenter(objects[i], axis, boxes) < pivot) {
+                    i++;
+                }
+                while (getCenter(objects[j], axis, boxes) > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int temp = objects[i];
+                    objects[i] = objects[j];
+                    objects[j] = temp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void unionOfChildren(int node) {
+        int left = leftChild[node];
+        int right = rightChild[node];
+        for (int axis = 0; axis < dimension; axis++) {
+            nodeMin[node * dimension + axis] = Math.min(nodeMin[left * dimension + axis],
+                    nodeMin[right * dimension + axis]);
+            nodeMax[node * dimension + axis] = Math.max(nodeMax[left * dimension + axis],
+                    nodeMax[right * dimension + axis]);
+        }
+    }
+}
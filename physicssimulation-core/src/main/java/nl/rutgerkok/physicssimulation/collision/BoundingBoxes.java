@@ -0,0 +1,141 @@
+package nl.rutgerkok.physicssimulation.collision;
+
+import java.util.List;
+
+import nl.rutgerkok.physicssimulation.world.PhysicalObject;
+
+/**
+ * The axis-aligned bounding boxes of a list of objects, stored in flat arrays.
+ * The arrays are reused between updates, so that broad phases don't need to
+ * allocate anything in a typical step.
+ *
+ * <p>
+ * Every box covers the whole path the object traveled during the last step,
+ * from its {@link PhysicalObject#getPreviousCenterCoord(int) previous center}
+ * to its current center. This way, broad phases also report the pairs that
+ * need a {@link ContinuousCollisionChecker continuous collision check}. For
+ * slow objects, this hardly makes the box larger.
+ * </p>
+ */
+final class BoundingBoxes {
+
+    /**
+     * Boxes are enlarged by this fraction of their coordinates, so that
+     * rounding errors can never make the box smaller than the shape.
+     */
+    private static final double SLACK = 1e-12;
+
+    private double[] min = new double[0];
+    private double[] max = new double[0];
+    private int dimension = 2;
+    private int size = 0;
+
+    /**
+     * Gets the dimension of the boxes.
+     *
+     * @return The dimension.
+     */
+    int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * Gets the highest coordinate of the box along the given axis.
+     *
+     * @param index
+     *            Index of the object.
+     * @param axis
+     *            The axis.
+     * @return The coordinate.
+     */
+    double getMax(int index, int axis) {
+        return max[index * dimension + axis];
+    }
+
+    /**
+     * Gets the lowest coordinate of the box along the given axis.
+     *
+     * @param index
+     *            Index of the object.
+     * @param axis
+     *            The axis.
+     * @return The coordinate.
+     */
+    double getMin(int index, int axis) {
+        return min[index * dimension + axis];
+    }
+
+    /**
+     * Checks whether the boxes of the two objects overlap. Boxes that just
+     * touch are considered to be overlapping.
+     *
+     * @param a
+     *            Index of one object.
+     * @param b
+     *            Index of the other object.
+     * @return True if the boxes overlap, false otherwise.
+     */
+    boolean overlap(int a, int b) {
+        int aStart = a * dimension;
+        int bStart = b * dimension;
+        for (int i = 0; i < dimension; i++) {
+            if (min[aStart + i] > max[bStart + i] || min[bStart + i] > max[aStart + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the amount of boxes.
+     *
+     * @return The amount of boxes.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Recalculates the boxes for the given objects.
+     *
+     * @param objects
+     *            The objects.
+     */
+    void update(List<PhysicalObject> objects) {
+        size = objects.size();
+        if (size == 0) {
+            return;
+        }
+        dimension = objects.get(0).getVelocity().getDimension();
+        if (min.length < size * dimension) {
+            min = new double[size * dimension];
+            max = new double[size * dimension];
+        }
+
+        for (int i = 0; i < size; i++) {
+            update(i, objects.get(i));
+        }
+    }
+
+    /**
+     * Recalculates a single box.
+     *
+     * @param index
+     *            Index of the box.
+     * @param object
+     *            The object to calculate the box for.
+     */
+    void update(int index, PhysicalObject object) {
+        int start = index * dimension;
+        for (int axis = 0; axis < dimension; axis++) {
+            double centerCoord = object.getCenterCoord(axis);
+            double previousCenterCoord = object.getPreviousCenterCoord(axis);
+            double lowest = Math.min(centerCoord, previousCenterCoord);
+            double highest = Math.max(centerCoord, previousCenterCoord);
+            double extent = object.getExtent(axis);
+            double slack = (Math.max(Math.abs(lowest), Math.abs(highest)) + extent) * SLACK;
+            min[start + axis] = lowest - extent - slack;
+            max[start + axis] = highest + extent + slack;
+        }
+    }
+}
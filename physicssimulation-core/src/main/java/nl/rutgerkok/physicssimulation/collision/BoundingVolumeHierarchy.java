@@ -0,0 +1,172 @@
+package nl.rutgerkok.physicssimulation.collision;
+
+import java.util.List;
+
+import nl.rutgerkok.physicssimulation.world.PhysicalObject;
+
+/**
+ * Broad phase that places objects in two trees of bounding boxes: one for
+ * static objects and one for all other objects.
+ *
+ * <p>
+ * Static objects are objects with an infinite mass that are not moving, like
+ * walls and terrain, and objects that are
+ * {@link PhysicalObject#isSleeping() sleeping}. Their tree is built once,
+ * and only rebuilt when static objects are added or removed, or stop being
+ * static. When only other objects are added or removed, the indices in the
+ * tree are updated instead. The tree of the other objects is refitted every
+ * step, and only rebuilt when refitting has made it too inefficient.
+ * </p>
+ *
+ * <p>
+ * Pairs of two static objects are never reported: they cannot move, so there
+ * is nothing to resolve.
+ * </p>
+ */
+final class BoundingVolumeHierarchy implements BroadPhase {
+
+    private static boolean isStatic(PhysicalObject object) {
+        if (object.isSleeping()) {
+            return true;
+        }
+        return object.getInvertedMass() == 0 && object.getVelocity().getSquaredLength() == 0;
+    }
+
+    private final BoundingBoxes boxes = new BoundingBoxes();
+    private final AabbTree staticTree = new AabbTree();
+    private final AabbTree dynamicTree = new AabbTree();
+
+    /**
+     * The objects of the previous step, used to detect whether the trees can
+     * be reused.
+     */
+    private PhysicalObject[] previousObjects = new PhysicalObject[0];
+    private int[] staticObjects = new int[0];
+    private int staticCount;
+    private int[] dynamicObjects = new int[0];
+    private int dynamicCount;
+
+    @Override
+    public void findPairs(List<PhysicalObject> objects, PairConsumer consumer) {
+        if (isSameObjects(objects)) {
+            for (int i = 0; i < dynamicCount; i++) {
+                int object = dynamicObjects[i];
+                boxes.update(object, objects.get(object));
+            }
+            if (!dynamicTree.refit(boxes)) {
+                dynamicTree.build(dynamicObjects, dynamicCount, boxes);
+            }
+        } else if (!update(objects)) {
+            rebuild(objects);
+        }
+
+        PairConsumer dynamicPairs = (first, second) -> {
+            // Only report each pair once, and never pair an object with itself
+            if (first < second) {
+                consumer.accept(first, second);
+            }
+        };
+        PairConsumer staticPairs = (first, second) -> {
+            consumer.accept(Math.min(first, second), Math.max(first, second));
+        };
+        for (int i = 0; i < dynamicCount; i++) {
+            int object = dynamicObjects[i];
+            dynamicTree.query(object, boxes, dynamicPairs);
+            staticTree.query(object, boxes, staticPairs);
+        }
+    }
+
+    private boolean isSameObjects(List<PhysicalObject> objects) {
+        if (objects.size() != previousObjects.length) {
+            return false;
+        }
+        for (int i = 0; i < previousObjects.length; i++) {
+            if (objects.get(i) != previousObjects[i]) {
+                return false;
+            }
+        }
+
+        // Static objects must still be static
+        for (int i = 0; i < staticCount; i++) {
+            if (!isStatic(previousObjects[staticObjects[i]])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rebuild(List<PhysicalObject> objects) {
+        int size = objects.size();
+        previousObjects = objects.toArray(new PhysicalObject[size]);
+        boxes.update(objects);
+
+        staticObjects = new int[size];
+        dynamicObjects = new int[size];
+        staticCount = 0;
+        dynamicCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (isStatic(objects.get(i))) {
+                staticObjects[staticCount++] = i;
+            } else {
+                dynamicObjects[dynamicCount++] = i;
+            }
+        }
+
+        staticTree.build(staticObjects, staticCount, boxes);
+        dynamicTree.build(dynamicObjects, dynamicCount, boxes);
+    }
+
+    /**
+     * Updates the trees after objects were added or removed, keeping the tree
+     * of static objects.
+     *
+     * @param objects
+     *            The objects of this step.
+     * @return False if the static objects changed, so that everything must be
+     *         rebuilt. True otherwise.
+     */
+    private boolean update(List<PhysicalObject> objects) {
+        if (staticCount == 0) {
+            return false;
+        }
+        ObjectRemapping remapping = new ObjectRemapping(previousObjects, objects);
+        for (int i = 0; i < staticCount; i++) {
+            int object = staticObjects[i];
+            if (remapping.getNewIndex(object) == ObjectRemapping.REMOVED || !isStatic(previousObjects[object])) {
+                return false;
+            }
+        }
+        int size = objects.size();
+        for (int i = 0; i < size; i++) {
+            if (remapping.isNew(i) && isStatic(objects.get(i))) {
+                return false;
+            }
+        }
+
+        // Static objects are the same, only their indices changed
+        previousObjects = objects.toArray(new PhysicalObject[size]);
+        boxes.update(objects);
+        boolean[] inStaticTree = new boolean[size];
+        for (int i = 0; i < staticCount; i++) {
+            staticObjects[i] = remapping.getNewIndex(staticObjects[i]);
+            inStaticTree[staticObjects[i]] = true;
+        }
+        staticTree.remap(remapping);
+
+        // All other objects go in the dynamic tree, even if they became static
+        dynamicObjects = new int[size];
+        dynamicCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (!inStaticTree[i]) {
+                dynamicObjects[dynamicCount++] = i;
+            }
+        }
+        dynamicTree.build(dynamicObjects, dynamicCount, boxes);
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "BroadPhases.boundingVolumeHierarchy()";
+    }
+}
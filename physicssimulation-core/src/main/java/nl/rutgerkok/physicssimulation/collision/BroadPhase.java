@@ -0,0 +1,53 @@
+package nl.rutgerkok.physicssimulation.collision;
+
+import java.util.List;
+
+import nl.rutgerkok.physicssimulation.world.PhysicalObject;
+
+/**
+ * The broad phase of collision detection. A broad phase quickly finds the
+ * pairs of objects that might be colliding, so that the expensive exact checks
+ * only need to run for those pairs.
+ *
+ * <p>
+ * A broad phase may report pairs that turn out not to collide, but it must
+ * never miss a pair that does collide. Every unordered pair is reported at
+ * most once.
+ * </p>
+ *
+ * <p>
+ * Broad phases may keep information between steps, so a single instance must
+ * not be shared between multiple supervisors.
+ * </p>
+ *
+ * @see BroadPhases Built-in broad phases
+ */
+public interface BroadPhase {
+
+    /**
+     * Receives the pairs found by a broad phase.
+     */
+    public interface PairConsumer {
+
+        /**
+         * Called for a pair of objects that might be colliding.
+         *
+         * @param first
+         *            Index of the first object in the list.
+         * @param second
+         *            Index of the second object in the list.
+         */
+        void accept(int first, int second);
+    }
+
+    /**
+     * Finds all pairs of objects that might be colliding.
+     *
+     * @param objects
+     *            The objects. The list must not be modified while this method
+     *            is running.
+     * @param consumer
+     *            Receives the indices of the pairs.
+     */
+    void findPairs(List<PhysicalObject> objects, PairConsumer consumer);
+}
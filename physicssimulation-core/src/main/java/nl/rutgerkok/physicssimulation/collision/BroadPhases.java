@@ -0,0 +1,72 @@
+package nl.rutgerkok.physicssimulation.collision;
+
+/**
+ * Holds all the built-in broad phases. Every method returns a new instance, as
+ * broad phases may keep state between steps.
+ *
+ * @see CollisionSupervisor#CollisionSupervisor(BroadPhase)
+ */
+public final class BroadPhases {
+
+    /**
+     * Creates a broad phase that places the objects in trees of bounding
+     * boxes. Static objects (objects with an infinite mass that are not
+     * moving) are placed in a separate tree, which is only built once. Works
+     * well for worlds with lots of walls and terrain.
+     *
+     * @return The broad phase.
+     */
+    public static BroadPhase boundingVolumeHierarchy() {
+        return new BoundingVolumeHierarchy();
+    }
+
+    /**
+     * Creates a broad phase that checks every pair of objects. Only suitable
+     * for small worlds.
+     *
+     * @return The broad phase.
+     */
+    public static BroadPhase bruteForce() {
+        return new BruteForceBroadPhase();
+    }
+
+    /**
+     * Creates a broad phase that sorts the objects along one axis, and keeps
+     * that order between steps. Works best if objects only move a little bit
+     * during a step.
+     *
+     * @return The broad phase.
+     */
+    public static BroadPhase sweepAndPrune() {
+        return new SweepAndPrune();
+    }
+
+    /**
+     * Creates a broad phase that places all objects in a grid. The size of the
+     * cells is based on the average size of the objects. Works well for worlds
+     * with lots of objects of about the same size.
+     *
+     * @return The broad phase.
+     */
+    public static BroadPhase uniformGrid() {
+        return new UniformGrid();
+    }
+
+    /**
+     * Creates a broad phase that places all objects in a grid with cells of the
+     * given size.
+     *
+     * @param cellSize
+     *            The size of the cells.
+     * @return The broad phase.
+     * @throws IllegalArgumentException
+     *             If the cell size is not a positive number.
+     */
+    public static BroadPhase uniformGrid(double cellSize) {
+        return new UniformGrid(cellSize);
+    }
+
+    BroadPhases() {
+        throw new RuntimeException("No instances");
+    }
+}
@@ -0,0 +1,28 @@
+package nl.rutgerkok.physicssimulation.collision;
+
+import java.util.List;
+
+import nl.rutgerkok.physicssimulation.world.PhysicalObject;
+
+/**
+ * Broad phase that reports every pair of objects. Fast for a handful of
+ * objects, very slow for thousands of them.
+ *
+ */
+final class BruteForceBroadPhase implements BroadPhase {
+
+    @Override
+    public void findPairs(List<PhysicalObject> objects, PairConsumer consumer) {
+        int size = objects.size();
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 1; j < size; j++) {
+                consumer.accept(i, j);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BroadPhases.bruteForce()";
+    }
+}
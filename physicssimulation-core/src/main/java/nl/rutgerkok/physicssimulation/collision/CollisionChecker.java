@@ -2,8 +2,12 @@ package nl.rutgerkok.physicssimulation.collision;
 
 import static nl.rutgerkok.physicssimulation.vector.Vector.vec2;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import nl.rutgerkok.physicssimulation.MoreMath;
 import nl.rutgerkok.physicssimulation.shape.Circle;
@@ -14,6 +18,7 @@ import nl.rutgerkok.physicssimulation.shape.Spherical;
 import nl.rutgerkok.physicssimulation.vector.Vector;
 import nl.rutgerkok.physicssimulation.vector.Vector2;
 import nl.rutgerkok.physicssimulation.world.PhysicalObject;
+import nl.rutgerkok.physicssimulation.world.StepMetrics;
 
 import org.eclipse.jdt.annotation.Nullable;
 
@@ -26,6 +31,11 @@ import org.eclipse.jdt.annotation.Nullable;
  */
 final class CollisionChecker {
 
+    /**
+     * Amount of pairs checked by a single task of the parallel narrow phase.
+     */
+    private static final int PAIRS_PER_CHUNK = 256;
+
     private @Nullable static Collision checkCollision(PhysicalObject a, PhysicalObject b) {
         Shape shapeA = a.getShape();
         Shape shapeB = b.getShape();
@@ -213,26 +223,173 @@ final class CollisionChecker {
     }
 
     /**
-     * Gets all collisions between the given objects.
+     * Gets all collisions between the given objects. Every pair of objects is
+     * checked, which is slow for larger amounts of objects. Collisions between
+     * two objects that each have an infinite mass or are sleeping are never
+     * returned.
      * 
      * @param objects
      *            The objects.
      * @return All collisions.
+     * @see #getCollisions(Iterable, BroadPhase) Faster variant
      */
     static Set<Collision> getCollisions(Iterable<PhysicalObject> objects) {
-        Set<Collision> collisions = new HashSet<>();
-        for (PhysicalObject oneObject : objects) {
-            for (PhysicalObject otherObject : objects) {
-                if (oneObject == otherObject) {
-                    continue;
-                }
-                Collision collision = checkCollision(oneObject, otherObject);
-                if (collision != null) {
-                    collisions.add(collision);
+        return getCollisions(objects, new BruteForceBroadPhase());
+    }
+
+    /**
+     * Gets all collisions between the given objects. The broad phase is used
+     * to find out which pairs of objects need to be checked. Collisions
+     * between two objects that each have an infinite mass or are sleeping are
+     * never returned.
+     *
+     * @param objects
+     *            The objects.
+     * @param broadPhase
+     *            The broad phase.
+     * @return All collisions.
+     */
+    static Set<Collision> getCollisions(Iterable<PhysicalObject> objects, BroadPhase broadPhase) {
+        List<PhysicalObject> objectList = new ArrayList<>();
+        objects.forEach(objectList::add);
+        return new LinkedHashSet<>(getCollisions(objectList, broadPhase, null, null));
+    }
+
+    /**
+     * Gets all collisions between the given objects. First, the broad phase
+     * finds all pairs of objects that need to be checked. Then, the pairs are
+     * checked exactly, optionally on multiple threads.
+     *
+     * <p>
+     * The pairs are divided in fixed chunks. Every chunk collects its
+     * collisions in its own list, and afterwards the lists are joined in
+     * order. So the collisions are always returned in the same order,
+     * regardless of which thread checked which chunk.
+     * </p>
+     *
+     * @param objects
+     *            The objects.
+     * @param broadPhase
+     *            The broad phase.
+     * @param pool
+     *            Threads for checking the pairs, or null to check all pairs
+     *            on the calling thread.
+     * @param metrics
+     *            The amount of pairs found by the broad phase is reported
+     *            here, may be null.
+     * @return All collisions, in the order the broad phase reported the
+     *         pairs.
+     */
+    static List<Collision> getCollisions(List<PhysicalObject> objects, BroadPhase broadPhase,
+            @Nullable ForkJoinPool pool, @Nullable StepMetrics metrics) {
+        return getCollisions(objects, broadPhase, pool, metrics, null);
+    }
+
+    /**
+     * Gets all collisions between the given objects, like
+     * {@link #getCollisions(List, BroadPhase, ForkJoinPool, StepMetrics)}.
+     * Additionally collects the pairs that need a
+     * {@link ContinuousCollisionChecker continuous collision check}.
+     *
+     * @param objects
+     *            The objects.
+     * @param broadPhase
+     *            The broad phase.
+     * @param pool
+     *            Threads for checking the pairs, or null to check all pairs
+     *            on the calling thread.
+     * @param metrics
+     *            The amount of pairs found by the broad phase is reported
+     *            here, may be null.
+     * @param fastPairs
+     *            The pairs found by the broad phase with at least one
+     *            {@link ContinuousCollisionChecker#isFast(PhysicalObject)
+     *            fast} object are added to this list. May be null.
+     * @return All collisions, in the order the broad phase reported the
+     *         pairs.
+     */
+    static List<Collision> getCollisions(List<PhysicalObject> objects, BroadPhase broadPhase,
+            @Nullable ForkJoinPool pool, @Nullable StepMetrics metrics, @Nullable PairList fastPairs) {
+        PairList pairs = new PairList();
+        broadPhase.findPairs(objects, (first, second) -> {
+            PhysicalObject a = objects.get(first);
+            PhysicalObject b = objects.get(second);
+            if (isInactive(a) && isInactive(b)) {
+                // Two objects with infinite mass or sleeping objects, nothing
+                // can be resolved
+                return;
+            }
+            pairs.add(first, second);
+            if (fastPairs != null && (ContinuousCollisionChecker.isFast(a) || ContinuousCollisionChecker.isFast(b))) {
+                fastPairs.add(first, second);
+            }
+        });
+
+        int pairCount = pairs.size();
+        if (metrics != null) {
+            metrics.add(StepMetrics.Counter.CANDIDATE_PAIRS, pairCount);
+        }
+        if (pool == null || pairCount <= PAIRS_PER_CHUNK) {
+            List<Collision> collisions = new ArrayList<>();
+            checkPairs(objects, pairs, 0, pairCount, collisions);
+            return collisions;
+        }
+
+        int chunkCount = (pairCount + PAIRS_PER_CHUNK - 1) / PAIRS_PER_CHUNK;
+        List<List<Collision>> chunks = new ArrayList<>(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            chunks.add(new ArrayList<>());
+        }
+        pool.invoke(new RecursiveAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void compute() {
+                List<RecursiveAction> tasks = new ArrayList<>(chunkCount);
+                for (int i = 0; i < chunkCount; i++) {
+                    int chunk = i;
+                    tasks.add(new RecursiveAction() {
+                        private static final long serialVersionUID = 1L;
+
+                        @Override
+                        protected void compute() {
+                            int start = chunk * PAIRS_PER_CHUNK;
+                            int end = Math.min(pairCount, start + PAIRS_PER_CHUNK);
+                            checkPairs(objects, pairs, start, end, chunks.get(chunk));
+                        }
+                    });
                 }
+                invokeAll(tasks);
             }
+        });
+
+        List<Collision> collisions = new ArrayList<>();
+        for (List<Collision> chunk : chunks) {
+            collisions.addAll(chunk);
         }
         return collisions;
     }
 
-}
\ No newline at end of file
+    /**
+     * Checks whether the object can be ignored when it collides with another
+     * ignored object.
+     *
+     * @param object
+     *            The object.
+     * @return True if the object has an infinite mass or is sleeping.
+     */
+    private static boolean isInactive(PhysicalObject object) {
+        return object.getInvertedMass() == 0 || object.isSleeping();
+    }
+
+    private static void checkPairs(List<PhysicalObject> objects, PairList pairs, int start, int end,
+            List<Collision> collisions) {
+        for (int i = start; i < end; i++) {
+            Collision collision = checkCollision(objects.get(pairs.getFirst(i)), objects.get(pairs.getSecond(i)));
+            if (collision != null) {
+                collisions.add(collision);
+            }
+        }
+    }
+
+}
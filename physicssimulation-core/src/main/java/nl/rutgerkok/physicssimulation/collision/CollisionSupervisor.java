@@ -1,44 +1,390 @@
 package nl.rutgerkok.physicssimulation.collision;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import nl.rutgerkok.physicssimulation.collision.ContinuousCollisionChecker.Impact;
 import nl.rutgerkok.physicssimulation.vector.Vector;
 import nl.rutgerkok.physicssimulation.world.PhysicalObject;
 import nl.rutgerkok.physicssimulation.world.PhysicsSimulation;
+import nl.rutgerkok.physicssimulation.world.StepMetrics;
 import nl.rutgerkok.physicssimulation.world.Supervisor;
+import nl.rutgerkok.physicssimulation.world.WorldView;
+
+import org.eclipse.jdt.annotation.Nullable;
 
+/**
+ * Supervisor that makes objects bounce off each other when they collide.
+ *
+ * <p>
+ * Finding out which objects collide is done in two phases. First, the
+ * {@link BroadPhase} quickly finds all pairs of objects that might collide.
+ * Then, each pair is checked exactly. The broad phase can be chosen when
+ * creating the supervisor. The exact checks can optionally be spread over
+ * multiple threads using {@link #withParallelism(int)}; the collisions are then
+ * still resolved in the same order as on a single thread.
+ * </p>
+ *
+ * <p>
+ * By default, every collision is resolved once, by applying a single impulse.
+ * This doesn't work well for objects stacked on top of each other: resolving
+ * one collision disturbs the others, so stacks jitter. Using
+ * {@link #withIterations(int)}, all collisions are instead resolved together
+ * by an iterative solver.
+ * </p>
+ *
+ * <p>
+ * Objects that move further than their own size in a single step could pass
+ * through other objects without ever overlapping them at the end of a step.
+ * For those objects, the path traveled during the step can be checked too
+ * (see {@link #withContinuousCollisions(boolean)}).
+ * </p>
+ */
 public final class CollisionSupervisor implements Supervisor {
 
+    private final BroadPhase broadPhase;
+    private @Nullable ForkJoinPool pool;
+
+    /**
+     * Solves all collisions together, or null to resolve each collision once.
+     */
+    private @Nullable ContactSolver solver;
+
+    /**
+     * Fraction of the penetration that is corrected every step, 0 to disable
+     * positional correction.
+     */
+    private double correctionFraction = 0;
+    private double slop = 0;
+
+    private boolean continuousCollisions = false;
+    private final ContinuousCollisionChecker continuousChecker = new ContinuousCollisionChecker();
+
+    /**
+     * The pairs that need a continuous collision check, reused between steps.
+     */
+    private final PairList fastPairs = new PairList();
+
+    /**
+     * The objects of the world, reused between steps.
+     */
+    private final ArrayList<PhysicalObject> objects = new ArrayList<>();
+
+    /**
+     * Creates a collision supervisor that uses
+     * {@link BroadPhases#uniformGrid()} as its broad phase.
+     */
+    public CollisionSupervisor() {
+        this(BroadPhases.uniformGrid());
+    }
+
+    /**
+     * Creates a collision supervisor with the given broad phase.
+     *
+     * @param broadPhase
+     *            The broad phase, see {@link BroadPhases}. Must not be shared
+     *            with other supervisors.
+     */
+    public CollisionSupervisor(BroadPhase broadPhase) {
+        this.broadPhase = Objects.requireNonNull(broadPhase);
+    }
+
     @Override
     public void check(PhysicsSimulation world) {
-        CollisionChecker.getCollisions(world).forEach(this::resolveCollision);
+        WorldView view = world.getWorld();
+        int size = view.size();
+        objects.clear();
+        objects.ensureCapacity(size);
+        for (int i = 0; i < size; i++) {
+            objects.add(view.get(i));
+        }
+        StepMetrics metrics = world.getStepMetrics();
+        fastPairs.clear();
+        List<Collision> collisions = CollisionChecker.getCollisions(objects, broadPhase, pool, metrics,
+                continuousCollisions ? fastPairs : null);
+
+        int impacts = 0;
+        if (continuousCollisions) {
+            // Only objects that can move; a floor can stop any number of
+            // objects in the same step
+            Set<PhysicalObject> handled = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Impact impact : continuousChecker.getImpacts(objects, fastPairs)) {
+                PhysicalObject a = impact.getOneObject();
+                PhysicalObject b = impact.getOtherObject();
+                if (handled.contains(a) || handled.contains(b)) {
+                    continue;
+                }
+                world.reportContact(a, b);
+                resolveImpact(impact, world.getDeltaTime());
+                if (a.getInvertedMass() != 0) {
+                    handled.add(a);
+                }
+                if (b.getInvertedMass() != 0) {
+                    handled.add(b);
+                }
+                impacts++;
+            }
+            if (!handled.isEmpty()) {
+                // Already placed at the moment of impact, so don't resolve
+                // their collisions at the end of the step
+                List<Collision> remaining = new ArrayList<>(collisions.size());
+                for (Collision collision : collisions) {
+                    if (!handled.contains(collision.getOneObject()) && !handled.contains(collision.getOtherObject())) {
+                        remaining.add(collision);
+                    }
+                }
+                collisions = remaining;
+            }
+        }
+
+        for (Collision collision : collisions) {
+            // Wakes up sleeping objects that are hit
+            world.reportContact(collision.getOneObject(), collision.getOtherObject());
+        }
+
+        int impulses = 0;
+        ContactSolver solver = this.solver;
+        if (solver == null) {
+            for (Collision collision : collisions) {
+                if (resolveCollision(collision)) {
+                    impulses++;
+                }
+            }
+        } else {
+            impulses = solver.solve(collisions, this);
+        }
+        if (correctionFraction > 0) {
+            for (Collision collision : collisions) {
+                correctPosition(collision);
+            }
+        }
+        if (metrics != null) {
+            metrics.add(StepMetrics.Counter.COLLISIONS, collisions.size());
+            metrics.add(StepMetrics.Counter.IMPULSES, impulses);
+            metrics.add(StepMetrics.Counter.CONTINUOUS_COLLISIONS, impacts);
+        }
     }
 
-    private void resolveCollision(Collision collision) {
+    /**
+     * Pushes the two objects of the collision apart, so that they are no
+     * longer inside each other. Objects with a lower mass are moved more.
+     *
+     * @param collision
+     *            The collision.
+     */
+    private void correctPosition(Collision collision) {
+        double penetration = collision.getPenetration() - slop;
+        if (penetration <= 0) {
+            return;
+        }
         PhysicalObject a = collision.getOneObject();
         PhysicalObject b = collision.getOtherObject();
+        double totalInvertedMass = a.getInvertedMass() + b.getInvertedMass();
+        Vector correction = collision.getNormal().multiply(penetration * correctionFraction / totalInvertedMass);
+        if (a.getInvertedMass() != 0) {
+            this.move(a, correction.multiply(-a.getInvertedMass()));
+        }
+        if (b.getInvertedMass() != 0) {
+            this.move(b, correction.multiply(b.getInvertedMass()));
+        }
+    }
 
+    /**
+     * Makes the two objects of the collision bounce off each other.
+     *
+     * @param collision
+     *            The collision.
+     * @return True if an impulse was applied, false if the objects were
+     *         already moving away from each other.
+     */
+    private boolean resolveCollision(Collision collision) {
+        return resolveCollision(collision.getOneObject(), collision.getOtherObject(), collision.getNormal());
+    }
+
+    /**
+     * Makes the two objects bounce off each other.
+     *
+     * @param a
+     *            One object.
+     * @param b
+     *            The other object.
+     * @param normal
+     *            The collision normal, pointing from a to b.
+     * @return True if an impulse was applied, false if the objects were
+     *         already moving away from each other.
+     */
+    private boolean resolveCollision(PhysicalObject a, PhysicalObject b, Vector normal) {
         // Calculate relative velocity
         Vector velocityDifference = b.getVelocity().minus(a.getVelocity());
 
         // Calculate relative velocity in terms of the normal direction
-        double velAlongNormal = velocityDifference.dotProduct(collision.getNormal());
+        double velAlongNormal = velocityDifference.dotProduct(normal);
 
         // Do not resolve if velocities are separating
         if (velAlongNormal > 0) {
-            return;
+            return false;
         }
 
         // Calculate restitution
         double bouncyness = Math.min(a.getMaterial().restitution, b.getMaterial().restitution);
 
         // Calculate impulse scalar
-        double impulseLength = -(1 + bouncyness) * velAlongNormal / (a.invertedMass + b.invertedMass);
+        double impulseLength = -(1 + bouncyness) * velAlongNormal / (a.getInvertedMass() + b.getInvertedMass());
 
         // Apply impulse
-        Vector impulse = collision.getNormal().multiply(impulseLength);
+        Vector impulse = normal.multiply(impulseLength);
 
         // Update speeds
-        this.changeVelocity(a, a.getVelocity().minus(impulse.multiply(a.invertedMass)));
-        this.changeVelocity(b, b.getVelocity().plus(impulse.multiply(b.invertedMass)));
+        this.changeVelocity(a, a.getVelocity().minus(impulse.multiply(a.getInvertedMass())));
+        this.changeVelocity(b, b.getVelocity().plus(impulse.multiply(b.getInvertedMass())));
+        return true;
+    }
+
+    /**
+     * Makes two objects bounce off each other at the moment they first
+     * touched. The new velocities are used for the rest of the step, so the
+     * objects end up where they would have been if they had bounced at that
+     * moment.
+     *
+     * @param impact
+     *            The impact.
+     * @param deltaTime
+     *            The time step.
+     */
+    private void resolveImpact(Impact impact, double deltaTime) {
+        PhysicalObject a = impact.getOneObject();
+        PhysicalObject b = impact.getOtherObject();
+        Vector oldVelocityA = a.getVelocity();
+        Vector oldVelocityB = b.getVelocity();
+        if (!resolveCollision(a, b, impact.getNormal())) {
+            return;
+        }
+
+        // The objects will now move with the new velocity for the whole step,
+        // correct that for the part before the impact
+        double timeBeforeImpact = impact.getTime() * deltaTime;
+        if (a.getInvertedMass() != 0) {
+            this.move(a, oldVelocityA.minus(a.getVelocity()).multiply(timeBeforeImpact));
+        }
+        if (b.getInvertedMass() != 0) {
+            this.move(b, oldVelocityB.minus(b.getVelocity()).multiply(timeBeforeImpact));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CollisionSupervisor(" + broadPhase + ")";
     }
 
+    /**
+     * Sets whether the path traveled by fast objects is checked for
+     * collisions. Objects that move further than their own size in a single
+     * step could otherwise pass through thin objects (tunneling), which
+     * limits how large the time step can be. Such objects are placed at the
+     * moment they first touched the other object, and bounce off from there.
+     * Slower objects are not affected.
+     *
+     * <p>
+     * Only circles and spheres against each other and circles against
+     * rectangles are checked this way. This is disabled by default.
+     * </p>
+     *
+     * @param enabled
+     *            True to enable, false to disable.
+     * @return This supervisor, for chaining.
+     */
+    public CollisionSupervisor withContinuousCollisions(boolean enabled) {
+        this.continuousCollisions = enabled;
+        return this;
+    }
+
+    /**
+     * Sets how many times all collisions are gone over when resolving them.
+     * For 1, which is the default, every collision is resolved once with a
+     * single impulse. For higher values, the impulses of all collisions are
+     * adjusted together during every iteration, until they agree with each
+     * other. The impulses are remembered for the next step, so that objects
+     * resting on each other start with the right impulse; a few iterations
+     * are then enough for stable stacks.
+     *
+     * @param iterations
+     *            The amount of iterations.
+     * @return This supervisor, for chaining.
+     * @throws IllegalArgumentException
+     *             If the amount of iterations is smaller than 1.
+     */
+    public CollisionSupervisor withIterations(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Invalid amount of iterations: " + iterations);
+        }
+        this.solver = iterations > 1 ? new ContactSolver(iterations) : null;
+        return this;
+    }
+
+    /**
+     * Sets the amount of threads used to check the pairs found by the broad
+     * phase. The broad phase itself and resolving the collisions always happen
+     * on the thread of the simulation. The default is 1, which checks all
+     * pairs on the thread of the simulation too.
+     *
+     * @param parallelism
+     *            The amount of threads.
+     * @return This supervisor, for chaining.
+     * @throws IllegalArgumentException
+     *             If the parallelism is smaller than 1.
+     */
+    public CollisionSupervisor withParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Invalid parallelism: " + parallelism);
+        }
+        ForkJoinPool oldPool = this.pool;
+        if (oldPool != null) {
+            oldPool.shutdown();
+        }
+        this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        return this;
+    }
+
+    /**
+     * Pushes apart objects that ended up inside each other. Resolving a
+     * collision only changes the velocities of the objects, so objects that
+     * keep pushing into each other, like objects stacked on top of each
+     * other, slowly sink into each other. Especially for larger time steps.
+     * This moves the objects apart directly, without changing their
+     * velocities, so no energy is added to the world.
+     *
+     * <p>
+     * Correcting the full penetration at once makes objects resting on each
+     * other jitter, so only a fraction of the penetration is corrected every
+     * step. Penetrations smaller than the slop are not corrected at all, so
+     * that resting objects keep touching.
+     * </p>
+     *
+     * @param fraction
+     *            Fraction of the penetration to correct every step, from 0 to
+     *            1. Use 0 to disable positional correction, which is the
+     *            default. Values from 0.2 to 0.8 work well.
+     * @param slop
+     *            Penetrations up to this depth are allowed.
+     * @return This supervisor, for chaining.
+     * @throws IllegalArgumentException
+     *             If the fraction is not from 0 to 1, or if the slop is
+     *             negative.
+     */
+    public CollisionSupervisor withPositionCorrection(double fraction, double slop) {
+        if (!(fraction >= 0 && fraction <= 1)) {
+            throw new IllegalArgumentException("Invalid fraction: " + fraction);
+        }
+        if (!(slop >= 0)) {
+            throw new IllegalArgumentException("Invalid slop: " + slop);
+        }
+        this.correctionFraction = fraction;
+        this.slop = slop;
+        return this;
+    }
 }
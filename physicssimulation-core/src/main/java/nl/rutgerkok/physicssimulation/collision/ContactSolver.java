@@ -0,0 +1,243 @@
+package nl.rutgerkok.physicssimulation.collision;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import nl.rutgerkok.physicssimulation.vector.Vector;
+import nl.rutgerkok.physicssimulation.world.PhysicalObject;
+import nl.rutgerkok.physicssimulation.world.Supervisor;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Resolves all collisions of a step together, by repeatedly going over them
+ * and correcting the velocities a little bit (sequential impulses).
+ *
+ * <p>
+ * For every collision, the total impulse applied in this step is remembered.
+ * This total may never become negative: objects can be pushed apart, but
+ * never pulled together. Adjusting the total instead of applying independent
+ * impulses lets later iterations undo the overshoot of earlier iterations,
+ * which is what makes stacks of objects stable.
+ * </p>
+ *
+ * <p>
+ * The totals are kept for the next step (warm starting). Objects resting on
+ * each other need about the same impulse every step, so starting with the
+ * impulse of the previous step means that only a few iterations are needed.
+ * </p>
+ */
+final class ContactSolver {
+
+    /**
+     * Identifies a pair of objects, no matter in which order they are given.
+     */
+    private static final class PairKey {
+        private final PhysicalObject a;
+        private final PhysicalObject b;
+
+        PairKey(PhysicalObject a, PhysicalObject b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (!(obj instanceof PairKey)) {
+                return false;
+            }
+            PairKey that = (PairKey) obj;
+            return (this.a == that.a && this.b == that.b) || (this.a == that.b && this.b == that.a);
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(a) ^ System.identityHashCode(b);
+        }
+    }
+
+    private final int iterations;
+
+    /**
+     * Total impulses of the previous step.
+     */
+    private Map<PairKey, Double> previousImpulses = new HashMap<>();
+    private Map<PairKey, Double> impulses = new HashMap<>();
+
+    /**
+     * Every object involved in a collision gets an index here. The velocity
+     * of object i along axis a is stored at {@code i * dimension + a}.
+     */
+    private final Map<PhysicalObject, Integer> bodyIndices = new IdentityHashMap<>();
+    private final List<PhysicalObject> bodies = new ArrayList<>();
+    private double[] velocities = new double[0];
+    private double[] invertedMasses = new double[0];
+
+    private int[] firstBodies = new int[0];
+    private int[] secondBodies = new int[0];
+    private double[] normals = new double[0];
+    private double[] targetVelocities = new double[0];
+    private double[] effectiveMasses = new double[0];
+    private double[] totalImpulses = new double[0];
+
+    /**
+     * Creates a new solver.
+     *
+     * @param iterations
+     *            Amount of times to go over all collisions.
+     */
+    ContactSolver(int iterations) {
+        this.iterations = iterations;
+    }
+
+    private void applyImpulse(int contact, double impulse, int dimension) {
+        int first = firstBodies[contact] * dimension;
+        int second = secondBodies[contact] * dimension;
+        double firstInvertedMass = invertedMasses[firstBodies[contact]];
+        double secondInvertedMass = invertedMasses[secondBodies[contact]];
+        for (int axis = 0; axis < dimension; axis++) {
+            double normal = normals[contact * dimension + axis];
+            velocities[first + axis] -= impulse * normal * firstInvertedMass;
+            velocities[second + axis] += impulse * normal * secondInvertedMass;
+        }
+    }
+
+    private int getBodyIndex(PhysicalObject object, int dimension) {
+        Integer index = bodyIndices.get(object);
+        if (index != null) {
+            return index;
+        }
+        int newIndex = bodies.size();
+        bodies.add(object);
+        bodyIndices.put(object, newIndex);
+        if (invertedMasses.length <= newIndex) {
+            invertedMasses = Arrays.copyOf(invertedMasses, Math.max(16, newIndex * 2));
+            velocities = Arrays.copyOf(velocities, invertedMasses.length * dimension);
+        }
+        invertedMasses[newIndex] = object.getInvertedMass();
+        Vector velocity = object.getVelocity();
+        for (int axis = 0; axis < dimension; axis++) {
+            velocities[newIndex * dimension + axis] = velocity.getCoord(axis);
+        }
+        return newIndex;
+    }
+
+    private double getNormalVelocity(int contact, int dimension) {
+        int first = firstBodies[contact] * dimension;
+        int second = secondBodies[contact] * dimension;
+        double normalVelocity = 0;
+        for (int axis = 0; axis < dimension; axis++) {
+            normalVelocity += (velocities[second + axis] - velocities[first + axis])
+                    * normals[contact * dimension + axis];
+        }
+        return normalVelocity;
+    }
+
+    private void prepare(List<Collision> collisions, int dimension) {
+        int count = collisions.size();
+        if (firstBodies.length < count) {
+            firstBodies = new int[count];
+            secondBodies = new int[count];
+            normals = new double[count * dimension];
+            targetVelocities = new double[count];
+            effectiveMasses = new double[count];
+            totalImpulses = new double[count];
+        } else if (normals.length < count * dimension) {
+            normals = new double[count * dimension];
+        }
+
+        for (int i = 0; i < count; i++) {
+            Collision collision = collisions.get(i);
+            PhysicalObject a = collision.getOneObject();
+            PhysicalObject b = collision.getOtherObject();
+            firstBodies[i] = getBodyIndex(a, dimension);
+            secondBodies[i] = getBodyIndex(b, dimension);
+            Vector normal = collision.getNormal();
+            for (int axis = 0; axis < dimension; axis++) {
+                normals[i * dimension + axis] = normal.getCoord(axis);
+            }
+            effectiveMasses[i] = 1 / (a.getInvertedMass() + b.getInvertedMass());
+
+            // Objects that move towards each other must bounce back
+            double bouncyness = Math.min(a.getMaterial().restitution, b.getMaterial().restitution);
+            double normalVelocity = getNormalVelocity(i, dimension);
+            targetVelocities[i] = normalVelocity < 0 ? -bouncyness * normalVelocity : 0;
+        }
+    }
+
+    /**
+     * Resolves the collisions.
+     *
+     * @param collisions
+     *            The collisions, none of them between two objects of infinite
+     *            mass.
+     * @param supervisor
+     *            Used to change the velocities of the objects.
+     * @return Amount of collisions where an impulse was applied.
+     */
+    int solve(List<Collision> collisions, Supervisor supervisor) {
+        int count = collisions.size();
+        if (count == 0) {
+            previousImpulses.clear();
+            return 0;
+        }
+        int dimension = collisions.get(0).getNormal().getDimension();
+        prepare(collisions, dimension);
+
+        // Warm starting
+        for (int i = 0; i < count; i++) {
+            Collision collision = collisions.get(i);
+            Double previous = previousImpulses.get(new PairKey(collision.getOneObject(), collision.getOtherObject()));
+            totalImpulses[i] = previous == null ? 0 : previous;
+            if (totalImpulses[i] != 0) {
+                applyImpulse(i, totalImpulses[i], dimension);
+            }
+        }
+
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            for (int i = 0; i < count; i++) {
+                double impulse = effectiveMasses[i] * (targetVelocities[i] - getNormalVelocity(i, dimension));
+                double newTotal = Math.max(0, totalImpulses[i] + impulse);
+                impulse = newTotal - totalImpulses[i];
+                totalImpulses[i] = newTotal;
+                if (impulse != 0) {
+                    applyImpulse(i, impulse, dimension);
+                }
+            }
+        }
+
+        // Remember the impulses for the next step
+        int impulseCount = 0;
+        impulses.clear();
+        for (int i = 0; i < count; i++) {
+            if (totalImpulses[i] > 0) {
+                Collision collision = collisions.get(i);
+                impulses.put(new PairKey(collision.getOneObject(), collision.getOtherObject()), totalImpulses[i]);
+                impulseCount++;
+            }
+        }
+        Map<PairKey, Double> swap = previousImpulses;
+        previousImpulses = impulses;
+        impulses = swap;
+
+        // Write back the velocities that changed
+        for (int body = 0; body < bodies.size(); body++) {
+            PhysicalObject object = bodies.get(body);
+            Vector velocity = object.getVelocity();
+            for (int axis = 0; axis < dimension; axis++) {
+                if (velocities[body * dimension + axis] != velocity.getCoord(axis)) {
+                    double[] coords = Arrays.copyOfRange(velocities, body * dimension, (body + 1) * dimension);
+                    supervisor.changeVelocity(object, Vector.vec(coords));
+                    break;
+                }
+            }
+        }
+        bodies.clear();
+        bodyIndices.clear();
+        return impulseCount;
+    }
+}
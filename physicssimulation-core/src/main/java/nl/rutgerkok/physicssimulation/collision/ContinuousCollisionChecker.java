@@ -0,0 +1,372 @@
+package nl.rutgerkok.physicssimulation.collision;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import nl.rutgerkok.physicssimulation.shape.Rectangle;
+import nl.rutgerkok.physicssimulation.shape.Shape;
+import nl.rutgerkok.physicssimulation.shape.Spherical;
+import nl.rutgerkok.physicssimulation.vector.Vector;
+import nl.rutgerkok.physicssimulation.world.PhysicalObject;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Finds collisions that the normal collision check misses: an object that
+ * moves further than its own size in a single step can end up on the other
+ * side of a thin object, without ever overlapping it at the end of a step.
+ *
+ * <p>
+ * For such fast objects, the path traveled during the step is checked instead
+ * of only the end position. Both objects are assumed to move in a straight
+ * line during the step. Supported are spheres and circles against each other,
+ * and circles against rectangles.
+ * </p>
+ *
+ * <p>
+ * The candidates are the pairs found by the broad phase, whose
+ * {@link BoundingBoxes boxes} cover the path of every object. The arrays used
+ * for the calculations are reused, so a checker must not be used by multiple
+ * threads at the same time.
+ * </p>
+ */
+final class ContinuousCollisionChecker {
+
+    /**
+     * The moment two objects first touched during a step.
+     */
+    static final class Impact {
+        private final PhysicalObject one;
+        private final PhysicalObject other;
+        private final double time;
+        private final Vector normal;
+
+        Impact(PhysicalObject one, PhysicalObject other, double time, Vector normal) {
+            this.one = Objects.requireNonNull(one);
+            this.other = Objects.requireNonNull(other);
+            this.time = time;
+            this.normal = Objects.requireNonNull(normal);
+        }
+
+        /**
+         * Gets the normal at the moment of impact, pointing from
+         * {@link #getOneObject()} to {@link #getOtherObject()}.
+         *
+         * @return The normal.
+         */
+        Vector getNormal() {
+            return normal;
+        }
+
+        PhysicalObject getOneObject() {
+            return one;
+        }
+
+        PhysicalObject getOtherObject() {
+            return other;
+        }
+
+        /**
+         * Gets the moment of impact.
+         *
+         * @return The moment, as a fraction of the step: 0 for the start, 1
+         *         for the end.
+         */
+        double getTime() {
+            return time;
+        }
+
+        @Override
+        public String toString() {
+            return "Impact(" + one + ", " + other + ", time=" + time + ", normal=" + normal + ")";
+        }
+    }
+
+    /**
+     * Gets the first moment at which a moving point is at the given distance
+     * of the origin.
+     *
+     * @param start
+     *            Start position of the point, must be further away than the
+     *            distance.
+     * @param movement
+     *            Movement of the point during the step.
+     * @param distance
+     *            The distance.
+     * @return The moment, as a fraction of the step, or NaN if the point never
+     *         comes that close.
+     */
+    private static double getTimeAtDistance(double[] start, double[] movement, double distance) {
+        double a = 0;
+        double b = 0;
+        double c = -distance * distance;
+        for (int axis = 0; axis < start.length; axis++) {
+            a += movement[axis] * movement[axis];
+            b += 2 * start[axis] * movement[axis];
+            c += start[axis] * start[axis];
+        }
+        double discriminant = b * b - 4 * a * c;
+        if (a == 0 || discriminant < 0) {
+            return Double.NaN;
+        }
+        return (-b - Math.sqrt(discriminant)) / (2 * a);
+    }
+
+    private static Vector getUnitVector(double[] start, double[] movement, double time) {
+        double[] coords = new double[start.length];
+        for (int axis = 0; axis < start.length; axis++) {
+            coords[axis] = start[axis] + movement[axis] * time;
+        }
+        return Vector.vec(coords).normalized();
+    }
+
+    /**
+     * Checks whether the object moved further than its own size during the
+     * step. Only those objects can pass through other objects.
+     *
+     * @param object
+     *            The object.
+     * @return True if the object is fast.
+     */
+    static boolean isFast(PhysicalObject object) {
+        if (object.getInvertedMass() == 0 || object.isSleeping()) {
+            return false;
+        }
+        int dimension = object.getVelocity().getDimension();
+        double distanceSquared = 0;
+        double smallestExtent = Double.POSITIVE_INFINITY;
+        for (int axis = 0; axis < dimension; axis++) {
+            double distance = object.getCenterCoord(axis) - object.getPreviousCenterCoord(axis);
+            distanceSquared += distance * distance;
+            smallestExtent = Math.min(smallestExtent, object.getExtent(axis));
+        }
+        return distanceSquared > smallestExtent * smallestExtent;
+    }
+
+    /**
+     * Position of the first object relative to the second object at the start
+     * of the step, and the movement of the first object relative to the
+     * second object during the step. Reused for every pair.
+     */
+    private double[] start = new double[0];
+    private double[] movement = new double[0];
+    private double[] corner = new double[0];
+
+    /**
+     * The earliest impact found so far for every object, by index. Reused
+     * between steps; all elements are null outside of
+     * {@link #getImpacts(List, PairList)}.
+     */
+    private @Nullable Impact[] earliestImpacts = new Impact[0];
+
+    /**
+     * Finds the impacts of all objects that moved further than their own size
+     * during the step. For every such object, only the earliest impact is
+     * returned.
+     *
+     * @param objects
+     *            All objects in the world.
+     * @param pairs
+     *            The pairs to check, each with at least one fast object.
+     * @return The impacts, in the order of the fast objects in the list.
+     */
+    List<Impact> getImpacts(List<PhysicalObject> objects, PairList pairs) {
+        int pairCount = pairs.size();
+        if (pairCount == 0) {
+            return Collections.emptyList();
+        }
+        int size = objects.size();
+        if (earliestImpacts.length < size) {
+            earliestImpacts = new Impact[size];
+        }
+
+        for (int i = 0; i < pairCount; i++) {
+            int first = pairs.getFirst(i);
+            int second = pairs.getSecond(i);
+            Impact impact = getImpact(objects.get(first), objects.get(second));
+            if (impact == null) {
+                continue;
+            }
+            keepEarliest(objects, first, impact);
+            keepEarliest(objects, second, impact);
+        }
+
+        List<Impact> impacts = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Impact impact = earliestImpacts[i];
+            if (impact != null) {
+                impacts.add(impact);
+                earliestImpacts[i] = null;
+            }
+        }
+        return impacts;
+    }
+
+    /**
+     * Finds the moment the two objects first touched during the step.
+     *
+     * @param a
+     *            One object.
+     * @param b
+     *            The other object.
+     * @return The impact, or null if the objects didn't touch, already
+     *         touched at the start of the step, or have shapes that are not
+     *         supported.
+     */
+    @Nullable
+    Impact getImpact(PhysicalObject a, PhysicalObject b) {
+        if (!sweptBoxesOverlap(a, b)) {
+            return null;
+        }
+        Shape shapeA = a.getShape();
+        Shape shapeB = b.getShape();
+        if (shapeA instanceof Spherical) {
+            if (shapeB instanceof Spherical) {
+                return sweepSpheres(a, ((Spherical) shapeA).getRadius(), b, ((Spherical) shapeB).getRadius());
+            }
+            if (shapeB instanceof Rectangle) {
+                return sweepSphereAgainstBox(a, ((Spherical) shapeA).getRadius(), b);
+            }
+        } else if (shapeA instanceof Rectangle && shapeB instanceof Spherical) {
+            return sweepSphereAgainstBox(b, ((Spherical) shapeB).getRadius(), a);
+        }
+        return null;
+    }
+
+    /**
+     * Stores the impact as the earliest impact of the object, if the object
+     * is fast and has no earlier impact yet.
+     */
+    private void keepEarliest(List<PhysicalObject> objects, int index, Impact impact) {
+        Impact earliest = earliestImpacts[index];
+        if ((earliest == null || impact.time < earliest.time) && isFast(objects.get(index))) {
+            earliestImpacts[index] = impact;
+        }
+    }
+
+    /**
+     * Stores the position of the first object relative to the second object
+     * at the start of the step in {@link #start}, and the movement of the
+     * first object relative to the second object during the step in
+     * {@link #movement}.
+     */
+    private void setRelativeMotion(PhysicalObject a, PhysicalObject b, int dimension) {
+        if (start.length != dimension) {
+            start = new double[dimension];
+            movement = new double[dimension];
+            corner = new double[dimension];
+        }
+        for (int axis = 0; axis < dimension; axis++) {
+            start[axis] = a.getPreviousCenterCoord(axis) - b.getPreviousCenterCoord(axis);
+            movement[axis] = (a.getCenterCoord(axis) - a.getPreviousCenterCoord(axis))
+                    - (b.getCenterCoord(axis) - b.getPreviousCenterCoord(axis));
+        }
+    }
+
+    /**
+     * Checks whether the boxes around everything the objects touched during
+     * the step overlap. If not, the objects cannot have collided.
+     */
+    private static boolean sweptBoxesOverlap(PhysicalObject a, PhysicalObject b) {
+        int dimension = a.getVelocity().getDimension();
+        for (int axis = 0; axis < dimension; axis++) {
+            double aStart = a.getPreviousCenterCoord(axis);
+            double aEnd = a.getCenterCoord(axis);
+            double bStart = b.getPreviousCenterCoord(axis);
+            double bEnd = b.getCenterCoord(axis);
+            if (Math.min(aStart, aEnd) - a.getExtent(axis) > Math.max(bStart, bEnd) + b.getExtent(axis)
+                    || Math.min(bStart, bEnd) - b.getExtent(axis) > Math.max(aStart, aEnd) + a.getExtent(axis)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves a sphere against a box. This is the same as moving a point against
+     * the box grown by the radius of the sphere, with rounded corners.
+     */
+    private @Nullable Impact sweepSphereAgainstBox(PhysicalObject sphere, double radius, PhysicalObject box) {
+        int dimension = sphere.getVelocity().getDimension();
+        setRelativeMotion(sphere, box, dimension);
+        double[] start = this.start;
+        double[] movement = this.movement;
+
+        // Find where the point enters the grown box (slab test)
+        double enterTime = Double.NEGATIVE_INFINITY;
+        double exitTime = Double.POSITIVE_INFINITY;
+        int enterAxis = -1;
+        for (int axis = 0; axis < dimension; axis++) {
+            double grownExtent = box.getExtent(axis) + radius;
+            if (movement[axis] == 0) {
+                if (Math.abs(start[axis]) > grownExtent) {
+                    return null;
+                }
+                continue;
+            }
+            double time1 = (-grownExtent - start[axis]) / movement[axis];
+            double time2 = (grownExtent - start[axis]) / movement[axis];
+            if (Math.min(time1, time2) > enterTime) {
+                enterTime = Math.min(time1, time2);
+                enterAxis = axis;
+            }
+            exitTime = Math.min(exitTime, Math.max(time1, time2));
+        }
+        if (enterAxis == -1 || enterTime < 0 || enterTime > 1 || enterTime > exitTime) {
+            // Missed, or already touching at the start
+            return null;
+        }
+
+        // Check for the rounded corners
+        double[] corner = this.corner;
+        boolean atCorner = true;
+        for (int axis = 0; axis < dimension; axis++) {
+            double position = start[axis] + movement[axis] * enterTime;
+            double extent = box.getExtent(axis);
+            if (Math.abs(position) <= extent) {
+                atCorner = false;
+                break;
+            }
+            corner[axis] = Math.copySign(extent, position);
+        }
+        if (atCorner) {
+            // Reuse the array for the start position relative to the corner
+            double[] startFromCorner = corner;
+            for (int axis = 0; axis < dimension; axis++) {
+                startFromCorner[axis] = start[axis] - corner[axis];
+            }
+            double time = getTimeAtDistance(startFromCorner, movement, radius);
+            if (!(time >= enterTime && time <= 1)) {
+                return null;
+            }
+            return new Impact(box, sphere, time, getUnitVector(startFromCorner, movement, time));
+        }
+
+        double[] normal = new double[dimension];
+        normal[enterAxis] = movement[enterAxis] < 0 ? 1 : -1;
+        return new Impact(box, sphere, enterTime, Vector.vec(normal));
+    }
+
+    private @Nullable Impact sweepSpheres(PhysicalObject a, double radiusA, PhysicalObject b, double radiusB) {
+        int dimension = a.getVelocity().getDimension();
+        setRelativeMotion(a, b, dimension);
+        double[] start = this.start;
+        double radius = radiusA + radiusB;
+        double startDistanceSquared = 0;
+        for (int axis = 0; axis < dimension; axis++) {
+            startDistanceSquared += start[axis] * start[axis];
+        }
+        if (startDistanceSquared <= radius * radius) {
+            // Already touching at the start
+            return null;
+        }
+        double[] movement = this.movement;
+        double time = getTimeAtDistance(start, movement, radius);
+        if (!(time >= 0 && time <= 1)) {
+            return null;
+        }
+        return new Impact(b, a, time, getUnitVector(start, movement, time));
+    }
+}
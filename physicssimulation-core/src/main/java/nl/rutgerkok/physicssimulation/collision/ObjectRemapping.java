@@ -0,0 +1,97 @@
+package nl.rutgerkok.physicssimulation.collision;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import nl.rutgerkok.physicssimulation.world.PhysicalObject;
+
+/**
+ * Finds out where the objects of the previous step ended up in the list of
+ * objects of this step, after objects were spawned or despawned. Broad phases
+ * use this to update their structures, instead of rebuilding them.
+ */
+final class ObjectRemapping {
+
+    /**
+     * Used in {@link #getNewIndex(int)} for objects that were removed.
+     */
+    static final int REMOVED = -1;
+
+    private final int[] newIndices;
+    private final boolean[] isNew;
+    private int removedCount;
+    private int addedCount;
+
+    /**
+     * Compares the objects of two steps.
+     *
+     * @param previous
+     *            The objects of the previous step.
+     * @param current
+     *            The objects of this step.
+     */
+    ObjectRemapping(PhysicalObject[] previous, List<PhysicalObject> current) {
+        int size = current.size();
+        Map<PhysicalObject, Integer> currentIndices = new IdentityHashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            currentIndices.put(current.get(i), i);
+        }
+
+        this.isNew = new boolean[size];
+        Arrays.fill(isNew, true);
+        this.newIndices = new int[previous.length];
+        for (int i = 0; i < previous.length; i++) {
+            Integer newIndex = currentIndices.get(previous[i]);
+            if (newIndex == null) {
+                newIndices[i] = REMOVED;
+                removedCount++;
+            } else {
+                newIndices[i] = newIndex;
+                isNew[newIndex] = false;
+            }
+        }
+        this.addedCount = size - (previous.length - removedCount);
+    }
+
+    /**
+     * Gets the amount of objects that were not there in the previous step.
+     *
+     * @return The amount.
+     */
+    int getAddedCount() {
+        return addedCount;
+    }
+
+    /**
+     * Gets the index in this step of an object of the previous step.
+     *
+     * @param previousIndex
+     *            Index in the previous step.
+     * @return Index in this step, or {@link #REMOVED}.
+     */
+    int getNewIndex(int previousIndex) {
+        return newIndices[previousIndex];
+    }
+
+    /**
+     * Gets the amount of objects of the previous step that are gone.
+     *
+     * @return The amount.
+     */
+    int getRemovedCount() {
+        return removedCount;
+    }
+
+    /**
+     * Checks whether an object was not there in the previous step.
+     *
+     * @param currentIndex
+     *            Index in this step.
+     * @return True if the object is new, false otherwise.
+     */
+    boolean isNew(int currentIndex) {
+        return isNew[currentIndex];
+    }
+}
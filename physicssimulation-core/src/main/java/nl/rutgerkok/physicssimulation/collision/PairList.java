@@ -0,0 +1,67 @@
+package nl.rutgerkok.physicssimulation.collision;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of pairs of object indices, stored in a single array.
+ */
+final class PairList {
+
+    private int[] pairs = new int[64];
+    private int size;
+
+    /**
+     * Adds a pair to the list.
+     *
+     * @param first
+     *            Index of the first object.
+     * @param second
+     *            Index of the second object.
+     */
+    void add(int first, int second) {
+        if (size * 2 == pairs.length) {
+            pairs = Arrays.copyOf(pairs, pairs.length * 2);
+        }
+        pairs[size * 2] = first;
+        pairs[size * 2 + 1] = second;
+        size++;
+    }
+
+    /**
+     * Removes all pairs from the list.
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Gets the first object of a pair.
+     *
+     * @param pair
+     *            Index of the pair.
+     * @return Index of the object.
+     */
+    int getFirst(int pair) {
+        return pairs[pair * 2];
+    }
+
+    /**
+     * Gets the second object of a pair.
+     *
+     * @param pair
+     *            Index of the pair.
+     * @return Index of the object.
+     */
+    int getSecond(int pair) {
+        return pairs[pair * 2 + 1];
+    }
+
+    /**
+     * Gets the amount of pairs in the list.
+     *
+     * @return The amount of pairs.
+     */
+    int size() {
+        return size;
+    }
+}
@@ -0,0 +1,202 @@
+package nl.rutgerkok.physicssimulation.collision;
+
+import java.util.Arrays;
+import java.util.List;
+
+import nl.rutgerkok.physicssimulation.world.PhysicalObject;
+
+/**
+ * Broad phase that sorts all bounding boxes along one axis, and then sweeps
+ * over them. Only boxes that overlap on that axis can form a pair.
+ *
+ * <p>
+ * The sorted order is kept between steps. Objects usually move only a little
+ * bit in a step, so the order is almost correct at the start of the next step.
+ * An insertion sort then only needs a few swaps to fix the order. The order is
+ * kept as well when objects are added or removed: removed objects are left
+ * out, and added objects are sorted and merged in.
+ * </p>
+ */
+final class SweepAndPrune implements BroadPhase {
+
+    private final BoundingBoxes boxes = new BoundingBoxes();
+
+    /**
+     * The objects of the previous step, used to detect whether the sorted
+     * order can be reused.
+     */
+    private PhysicalObject[] previousObjects = new PhysicalObject[0];
+
+    /**
+     * Indices of the objects, sorted on the lowest coordinate of their box
+     * along the sweep axis.
+     */
+    private int[] order = new int[0];
+    private int axis = 0;
+
+    /**
+     * Picks the axis along which the centers of the boxes are spread out the
+     * most. Sweeping along that axis removes the most pairs.
+     */
+    private void chooseAxis() {
+        int size = boxes.size();
+        int dimension = boxes.getDimension();
+        double bestVariance = -1;
+        for (int axis = 0; axis < dimension; axis++) {
+            double sum = 0;
+            double squaredSum = 0;
+            for (int i = 0; i < size; i++) {
+                double center = (boxes.getMin(i, axis) + boxes.getMax(i, axis)) / 2;
+                sum += center;
+                squaredSum += center * center;
+            }
+            double variance = squaredSum / size - (sum / size) * (sum / size);
+            if (variance > bestVariance) {
+                bestVariance = variance;
+                this.axis = axis;
+            }
+        }
+    }
+
+    @Override
+    public void findPairs(List<PhysicalObject> objects, PairConsumer consumer) {
+        boxes.update(objects);
+        int size = boxes.size();
+
+        if (isSameObjects(objects)) {
+            insertionSort();
+        } else if (previousObjects.length > 0 && size > 0) {
+            update(objects);
+        } else {
+            rebuild(objects);
+        }
+
+        for (int i = 0; i < size; i++) {
+            int a = order[i];
+            double maxA = boxes.getMax(a, axis);
+            for (int j = i + 1; j < size; j++) {
+                int b = order[j];
+                if (boxes.getMin(b, axis) > maxA) {
+                    // Boxes are sorted, so no later box can overlap either
+                    break;
+                }
+                if (boxes.overlap(a, b)) {
+                    consumer.accept(Math.min(a, b), Math.max(a, b));
+                }
+            }
+        }
+    }
+
+    private void insertionSort() {
+        insertionSort(boxes.size());
+    }
+
+    private void insertionSort(int size) {
+        for (int i = 1; i < size; i++) {
+            int object = order[i];
+            double min = boxes.getMin(object, axis);
+            int j = i - 1;
+            while (j >= 0 && boxes.getMin(order[j], axis) > min) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = object;
+        }
+    }
+
+    private boolean isSameObjects(List<PhysicalObject> objects) {
+        if (objects.size() != previousObjects.length) {
+            return false;
+        }
+        for (int i = 0; i < previousObjects.length; i++) {
+            if (objects.get(i) != previousObjects[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rebuild(List<PhysicalObject> objects) {
+        int size = objects.size();
+        previousObjects = objects.toArray(new PhysicalObject[size]);
+        if (size == 0) {
+            order = new int[0];
+            return;
+        }
+
+        chooseAxis();
+        int[] all = new int[size];
+        for (int i = 0; i < size; i++) {
+            all[i] = i;
+        }
+        order = sortOnMin(all);
+    }
+
+    private int[] sortOnMin(int[] objects) {
+        Integer[] sorted = new Integer[objects.length];
+        for (int i = 0; i < objects.length; i++) {
+            sorted[i] = objects[i];
+        }
+        Arrays.sort(sorted, (a, b) -> Double.compare(boxes.getMin(a, axis), boxes.getMin(b, axis)));
+
+        int[] result = new int[objects.length];
+        for (int i = 0; i < objects.length; i++) {
+            result[i] = sorted[i];
+        }
+        return result;
+    }
+
+    /**
+     * Keeps the order of the objects that are still there, and merges in the
+     * objects that were added. The sweep axis stays the same.
+     *
+     * @param objects
+     *            The objects of this step.
+     */
+    private void update(List<PhysicalObject> objects) {
+        ObjectRemapping remapping = new ObjectRemapping(previousObjects, objects);
+        int size = objects.size();
+        previousObjects = objects.toArray(new PhysicalObject[size]);
+
+        // Remaining objects, in the old order
+        int[] remaining = new int[order.length - remapping.getRemovedCount()];
+        int remainingCount = 0;
+        for (int object : order) {
+            int newIndex = remapping.getNewIndex(object);
+            if (newIndex != ObjectRemapping.REMOVED) {
+                remaining[remainingCount++] = newIndex;
+            }
+        }
+        order = remaining;
+        insertionSort(remainingCount);
+
+        // Added objects
+        int[] added = new int[remapping.getAddedCount()];
+        int addedCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (remapping.isNew(i)) {
+                added[addedCount++] = i;
+            }
+        }
+        added = sortOnMin(added);
+
+        // Merge them
+        int[] merged = new int[size];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < size; k++) {
+            if (j >= added.length
+                    || (i < remaining.length && boxes.getMin(remaining[i], axis) <= boxes.getMin(added[j], axis))) {
+                merged[k] = remaining[i++];
+            } else {
+                merged[k] = added[j++];
+            }
+        }
+        order = merged;
+    }
+
+    @Override
+    public String toString() {
+        return "BroadPhases.sweepAndPrune()";
+    }
+}
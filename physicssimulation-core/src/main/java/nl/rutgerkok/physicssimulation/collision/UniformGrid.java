@@ -0,0 +1,318 @@
+package nl.rutgerkok.physicssimulation.collision;
+
+import java.util.Arrays;
+import java.util.List;
+
+import nl.rutgerkok.physicssimulation.world.PhysicalObject;
+
+/**
+ * Broad phase that divides space into a grid of equally sized cells (a spatial
+ * hash). Only objects that share a cell can form a pair.
+ *
+ * <p>
+ * Each object is placed in all cells its bounding box touches. A pair of
+ * objects often shares more than one cell, so a pair is only reported from the
+ * cell that contains the lowest corner of the overlap of both boxes. This way,
+ * every pair is visited once, without having to keep a set of visited pairs.
+ * </p>
+ *
+ * <p>
+ * Objects that would cover a huge amount of cells (a long wall, for example)
+ * are not placed in the grid at all. Instead, they are checked against every
+ * other object.
+ * </p>
+ */
+final class UniformGrid implements BroadPhase {
+
+    /**
+     * Objects touching more cells than this are checked against all objects
+     * instead.
+     */
+    private static final int MAX_CELLS_PER_OBJECT = 256;
+
+    /**
+     * In three dimensions, each cell coordinate is stored in 21 bits of the
+     * key.
+     */
+    private static final int BITS_PER_3D_COORD = 21;
+    private static final long MASK_3D_COORD = (1L << BITS_PER_3D_COORD) - 1;
+    private static final double MAX_3D_COORD = (1 << (BITS_PER_3D_COORD - 1)) - 1;
+
+    private static long getCellKey(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    private static long getCellKey(int x, int y, int z) {
+        return ((long) x << (2 * BITS_PER_3D_COORD))
+                | ((y & MASK_3D_COORD) << BITS_PER_3D_COORD)
+                | (z & MASK_3D_COORD);
+    }
+
+    /**
+     * Size of the cells, or 0 to calculate a size in every step.
+     */
+    private final double fixedCellSize;
+    private final BoundingBoxes boxes = new BoundingBoxes();
+
+    /**
+     * Lowest and highest cell coordinate of every object, for every axis.
+     */
+    private int[] cellMin = new int[0];
+    private int[] cellMax = new int[0];
+
+    /**
+     * Objects that are too large to be placed in the grid.
+     */
+    private int[] oversizedObjects = new int[0];
+    private boolean[] isOversized = new boolean[0];
+    private int oversizedCount;
+
+    /**
+     * Every placement of an object in a cell is an entry. The entries of a cell
+     * form a linked list.
+     */
+    private int[] entryObjects = new int[0];
+    private int[] entryNext = new int[0];
+    private int entryCount;
+
+    /**
+     * Hash table from cell key to the first entry in that cell, using open
+     * addressing.
+     */
+    private long[] tableKeys = new long[0];
+    private int[] tableHeads = new int[0];
+    private int tableBits;
+
+    /**
+     * Creates a grid that picks a cell size based on the average size of the
+     * objects.
+     */
+    UniformGrid() {
+        this.fixedCellSize = 0;
+    }
+
+    /**
+     * Creates a grid with a fixed cell size.
+     *
+     * @param cellSize
+     *            The size of the cells.
+     * @throws IllegalArgumentException
+     *             If the cell size is not a positive number.
+     */
+    UniformGrid(double cellSize) {
+        if (!Double.isFinite(cellSize) || cellSize <= 0) {
+            throw new IllegalArgumentException("Invalid cell size: " + cellSize);
+        }
+        this.fixedCellSize = cellSize;
+    }
+
+    private void addEntry(int object, long key) {
+        int mask = tableHeads.length - 1;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - tableBits));
+        while (tableHeads[slot] != -1 && tableKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        tableKeys[slot] = key;
+
+        int entry = entryCount++;
+        entryObjects[entry] = object;
+        entryNext[entry] = tableHeads[slot];
+        tableHeads[slot] = entry;
+    }
+
+    private void addToCells(int object, int dimension) {
+        int start = object * dimension;
+        if (dimension == 2) {
+            for (int x = cellMin[start]; x <= cellMax[start]; x++) {
+                for (int y = cellMin[start + 1]; y <= cellMax[start + 1]; y++) {
+                    addEntry(object, getCellKey(x, y));
+                }
+            }
+        } else {
+            for (int x = cellMin[start]; x <= cellMax[start]; x++) {
+                for (int y = cellMin[start + 1]; y <= cellMax[start + 1]; y++) {
+                    for (int z = cellMin[start + 2]; z <= cellMax[start + 2]; z++) {
+                        addEntry(object, getCellKey(x, y, z));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Calculates the cells covered by the given object.
+     *
+     * @param object
+     *            Index of the object.
+     * @param cellSize
+     *            Size of a cell.
+     * @return Amount of cells covered, or -1 if the object is too large for
+     *         the grid.
+     */
+    private int calculateCells(int object, double cellSize) {
+        int dimension = boxes.getDimension();
+        double maxCoord = dimension == 2 ? Integer.MAX_VALUE : MAX_3D_COORD;
+        long cellCount = 1;
+        for (int axis = 0; axis < dimension; axis++) {
+            double min = Math.floor(boxes.getMin(object, axis) / cellSize);
+            double max = Math.floor(boxes.getMax(object, axis) / cellSize);
+            if (min < -maxCoord || max > maxCoord) {
+                return -1;
+            }
+            cellMin[object * dimension + axis] = (int) min;
+            cellMax[object * dimension + axis] = (int) max;
+            cellCount *= (long) max - (long) min + 1;
+            if (cellCount > MAX_CELLS_PER_OBJECT) {
+                return -1;
+            }
+        }
+        return (int) cellCount;
+    }
+
+    private double calculateCellSize(int size) {
+        if (fixedCellSize > 0) {
+            return fixedCellSize;
+        }
+
+        // Use the average of the largest side of each box
+        int dimension = boxes.getDimension();
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            double largestSide = 0;
+            for (int axis = 0; axis < dimension; axis++) {
+                largestSide = Math.max(largestSide, boxes.getMax(i, axis) - boxes.getMin(i, axis));
+            }
+            sum += largestSide;
+        }
+        double average = sum / size;
+        if (!Double.isFinite(average) || average <= 0) {
+            return 1;
+        }
+        return average;
+    }
+
+    private void ensureCapacity(int size, int dimension) {
+        if (isOversized.length < size) {
+            isOversized = new boolean[size];
+            oversizedObjects = new int[size];
+        }
+        if (cellMin.length < size * dimension) {
+            cellMin = new int[size * dimension];
+            cellMax = new int[size * dimension];
+        }
+    }
+
+    @Override
+    public void findPairs(List<PhysicalObject> objects, PairConsumer consumer) {
+        boxes.update(objects);
+        int size = boxes.size();
+        if (size < 2) {
+            return;
+        }
+        int dimension = boxes.getDimension();
+        double cellSize = calculateCellSize(size);
+        ensureCapacity(size, dimension);
+
+        // Find out which cells are covered by each object
+        int totalEntries = 0;
+        oversizedCount = 0;
+        for (int i = 0; i < size; i++) {
+            int cells = calculateCells(i, cellSize);
+            isOversized[i] = cells == -1;
+            if (cells == -1) {
+                oversizedObjects[oversizedCount++] = i;
+            } else {
+                totalEntries += cells;
+            }
+        }
+
+        // Place all objects in the grid
+        prepareTable(totalEntries);
+        for (int i = 0; i < size; i++) {
+            if (!isOversized[i]) {
+                addToCells(i, dimension);
+            }
+        }
+
+        // Report pairs from all cells
+        for (int slot = 0; slot < tableHeads.length; slot++) {
+            int head = tableHeads[slot];
+            if (head == -1) {
+                continue;
+            }
+            long cellKey = tableKeys[slot];
+            for (int entry = head; entry != -1; entry = entryNext[entry]) {
+                int a = entryObjects[entry];
+                for (int other = entryNext[entry]; other != -1; other = entryNext[other]) {
+                    int b = entryObjects[other];
+                    if (getOverlapStartKey(a, b, dimension) == cellKey && boxes.overlap(a, b)) {
+                        consumer.accept(Math.min(a, b), Math.max(a, b));
+                    }
+                }
+            }
+        }
+
+        // Check the objects outside the grid against everything
+        for (int i = 0; i < oversizedCount; i++) {
+            int a = oversizedObjects[i];
+            for (int b = 0; b < size; b++) {
+                if (a == b || (isOversized[b] && b < a)) {
+                    // Avoid reporting pairs of oversized objects twice
+                    continue;
+                }
+                if (boxes.overlap(a, b)) {
+                    consumer.accept(Math.min(a, b), Math.max(a, b));
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the key of the cell where the overlap of the cells of both objects
+     * starts.
+     *
+     * @param a
+     *            One object.
+     * @param b
+     *            Another object.
+     * @param dimension
+     *            The dimension of the world.
+     * @return The key of the cell.
+     */
+    private long getOverlapStartKey(int a, int b, int dimension) {
+        int aStart = a * dimension;
+        int bStart = b * dimension;
+        int x = Math.max(cellMin[aStart], cellMin[bStart]);
+        int y = Math.max(cellMin[aStart + 1], cellMin[bStart + 1]);
+        if (dimension == 2) {
+            return getCellKey(x, y);
+        }
+        int z = Math.max(cellMin[aStart + 2], cellMin[bStart + 2]);
+        return getCellKey(x, y, z);
+    }
+
+    private void prepareTable(int totalEntries) {
+        if (entryObjects.length < totalEntries) {
+            entryObjects = new int[totalEntries];
+            entryNext = new int[totalEntries];
+        }
+        entryCount = 0;
+
+        // Keep the table at most half full
+        int capacity = Math.max(16, Integer.highestOneBit(Math.max(1, totalEntries)) << 2);
+        if (tableHeads.length != capacity) {
+            tableHeads = new int[capacity];
+            tableKeys = new long[capacity];
+            tableBits = Integer.numberOfTrailingZeros(capacity);
+        }
+        Arrays.fill(tableHeads, -1);
+    }
+
+    @Override
+    public String toString() {
+        if (fixedCellSize > 0) {
+            return "BroadPhases.uniformGrid(" + fixedCellSize + ")";
+        }
+        return "BroadPhases.uniformGrid()";
+    }
+}
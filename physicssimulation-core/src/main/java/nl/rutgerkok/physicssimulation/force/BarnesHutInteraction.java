@@ -0,0 +1,93 @@
+package nl.rutgerkok.physicssimulation.force;
+
+import nl.rutgerkok.physicssimulation.vector.MutableVector;
+import nl.rutgerkok.physicssimulation.vector.Vector;
+import nl.rutgerkok.physicssimulation.world.Force;
+import nl.rutgerkok.physicssimulation.world.PhysicalObject;
+import nl.rutgerkok.physicssimulation.world.WorldView;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Same force as {@link IsotropicInteraction}, but approximated using the
+ * <a href="https://en.wikipedia.org/wiki/Barnes%E2%80%93Hut_simulation">Barnes-
+ * Hut algorithm</a>. Groups of objects that are far away are treated as a
+ * single object at their average position, so that calculating the force on
+ * an object takes {@code O(log n)} instead of {@code O(n)} time.
+ *
+ * <p>
+ * The tree of objects is built in {@link #prepare(WorldView)}, so once per
+ * step, and shared by all objects. If the force is calculated without
+ * preparing, the tree is built as soon as the objects have moved. Every world
+ * the force is used in gets its own tree.
+ * </p>
+ */
+final class BarnesHutInteraction implements Force {
+
+    private final double constant;
+    private final int power;
+    private final double openingAngle;
+
+    private final WorldCache<BarnesHutTree> trees = new WorldCache<>(BarnesHutInteraction::buildTree);
+
+    /**
+     * Creates an approximated isotropic interaction force,
+     * {@code F = c / r^p}.
+     *
+     * @param constant
+     *            The constant c in the above expression.
+     * @param power
+     *            The power p in the above expression.
+     * @param openingAngle
+     *            Groups of objects are approximated if their size divided by
+     *            their distance is smaller than this value. 0 gives exact
+     *            results.
+     * @throws IllegalArgumentException
+     *             When p is negative or too high, when c is 0 or when the
+     *             opening angle is negative.
+     */
+    BarnesHutInteraction(double constant, int power, double openingAngle) {
+        IsotropicInteraction.checkParameters(constant, power);
+        if (!Double.isFinite(openingAngle) || openingAngle < 0) {
+            throw new IllegalArgumentException("Invalid opening angle: " + openingAngle);
+        }
+        this.constant = constant;
+        this.power = power;
+        this.openingAngle = openingAngle;
+    }
+
+    @Override
+    public Vector calculate(PhysicalObject object, WorldView world) {
+        MutableVector result = MutableVector.zero(world.getZeroVector().getDimension());
+        calculate(object, world, result);
+        return result.toVector();
+    }
+
+    @Override
+    public void calculate(PhysicalObject object, WorldView world, MutableVector result) {
+        trees.get(world).calculate(object, constant, power, openingAngle, result);
+    }
+
+    private static BarnesHutTree buildTree(@Nullable BarnesHutTree tree, WorldView world) {
+        int dimension = world.getZeroVector().getDimension();
+        if (tree == null || tree.getDimension() != dimension) {
+            tree = new BarnesHutTree(dimension);
+        }
+        tree.build(world);
+        return tree;
+    }
+
+    @Override
+    public void prepare(WorldView world) {
+        trees.get(world);
+    }
+
+    @Override
+    public String toString() {
+        if (constant < 0) {
+            return "Forces.attraction(" + -constant + ", " + power + ", " + openingAngle + ")";
+        } else {
+            return "Forces.repulsion(" + constant + ", " + power + ", " + openingAngle + ")";
+        }
+    }
+}
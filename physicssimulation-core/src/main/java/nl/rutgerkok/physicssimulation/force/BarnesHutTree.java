@@ -0,0 +1,303 @@
+package nl.rutgerkok.physicssimulation.force;
+
+import java.util.Arrays;
+
+import nl.rutgerkok.physicssimulation.MoreMath;
+import nl.rutgerkok.physicssimulation.vector.MutableVector;
+import nl.rutgerkok.physicssimulation.world.PhysicalObject;
+import nl.rutgerkok.physicssimulation.world.WorldView;
+
+/**
+ * A quadtree (in 2D) or octree (in 3D) of all objects in the world, used to
+ * approximate the interaction with far-away groups of objects. Every node
+ * knows how many objects it contains and where their average position is.
+ *
+ * <p>
+ * Nodes are stored in pre-order, and every node knows where its subtree ends.
+ * This makes it possible to walk through the tree without recursion: to skip
+ * the children of a node, jump to the end of its subtree.
+ * </p>
+ *
+ * <p>
+ * Once built, the tree is never modified, so multiple threads can use it at
+ * the same time.
+ * </p>
+ */
+final class BarnesHutTree {
+
+    /**
+     * Objects at (almost) the same position would make the tree infinitely
+     * deep. So after this depth, nodes are no longer split.
+     */
+    private static final int MAX_DEPTH = 40;
+
+    private final int dimension;
+    private final int childrenPerNode;
+
+    private PhysicalObject[] objects = new PhysicalObject[0];
+    private double[] positions = new double[0];
+
+    /**
+     * Indices of the objects, ordered such that the objects of every node are
+     * next to each other.
+     */
+    private int[] order = new int[0];
+    private int[] scratch = new int[0];
+    private final int[] octantStarts;
+
+    private int nodeCount;
+    private double[] nodeCellCenter = new double[0];
+    private double[] nodeCellSize = new double[0];
+    private double[] nodeAveragePosition = new double[0];
+    private int[] nodeStart = new int[0];
+    private int[] nodeEnd = new int[0];
+    private int[] nodeSubtreeEnd = new int[0];
+    private boolean[] nodeIsLeaf = new boolean[0];
+
+    /**
+     * Creates an empty tree.
+     *
+     * @param dimension
+     *            The dimension of the world, 2 or 3.
+     */
+    BarnesHutTree(int dimension) {
+        if (dimension != 2 && dimension != 3) {
+            throw new IllegalArgumentException("Unsupported dimension: " + dimension);
+        }
+        this.dimension = dimension;
+        this.childrenPerNode = 1 << dimension;
+        this.octantStarts = new int[(MAX_DEPTH + 1) * (childrenPerNode + 1)];
+    }
+
+    /**
+     * Builds the tree from scratch.
+     *
+     * @param world
+     *            The objects to place in the tree.
+     */
+    void build(WorldView world) {
+        int size = world.size();
+        if (objects.length < size) {
+            objects = new PhysicalObject[size];
+            positions = new double[size * dimension];
+            order = new int[size];
+            scratch = new int[size];
+        }
+
+        for (int i = 0; i < size; i++) {
+            PhysicalObject object = world.get(i);
+            objects[i] = object;
+            for (int axis = 0; axis < dimension; axis++) {
+                positions[i * dimension + axis] = object.getCenterCoord(axis);
+            }
+            order[i] = i;
+        }
+
+        nodeCount = 0;
+        if (size == 0) {
+            return;
+        }
+
+        // Root cell is a square or cube around all objects
+        ensureNodeCapacity(1);
+        double largestSide = 0;
+        for (int axis = 0; axis < dimension; axis++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int object = 0; object < size; object++) {
+                min = Math.min(min, positions[object * dimension + axis]);
+                max = Math.max(max, positions[object * dimension + axis]);
+            }
+            nodeCellCenter[axis] = (min + max) / 2;
+            largestSide = Math.max(largestSide, max - min);
+        }
+        nodeCellSize[0] = largestSide;
+        buildNode(0, size, 0);
+    }
+
+    private void buildNode(int start, int end, int depth) {
+        int node = nodeCount++;
+        nodeStart[node] = start;
+        nodeEnd[node] = end;
+
+        // Average position of the objects
+        for (int axis = 0; axis < dimension; axis++) {
+            double sum = 0;
+            for (int i = start; i < end; i++) {
+                sum += positions[order[i] * dimension + axis];
+            }
+            nodeAveragePosition[node * dimension + axis] = sum / (end - start);
+        }
+
+        if (end - start == 1 || depth >= MAX_DEPTH) {
+            nodeIsLeaf[node] = true;
+            nodeSubtreeEnd[node] = nodeCount;
+            return;
+        }
+        nodeIsLeaf[node] = false;
+
+        // Sort the objects on the child cell they belong to
+        int starts = depth * (childrenPerNode + 1);
+        Arrays.fill(octantStarts, starts, starts + childrenPerNode + 1, 0);
+        for (int i = start; i < end; i++) {
+            octantStarts[starts + getChildCell(node, order[i]) + 1]++;
+        }
+        octantStarts[starts] = start;
+        for (int child = 1; child <= childrenPerNode; child++) {
+            octantStarts[starts + child] += octantStarts[starts + child - 1];
+        }
+        for (int i = start; i < end; i++) {
+            int child = getChildCell(node, order[i]);
+            scratch[octantStarts[starts + child]++] = order[i];
+        }
+        System.arraycopy(scratch, start, order, start, end - start);
+
+        // Build the children (octantStarts now holds the ends of each child)
+        double childSize = nodeCellSize[node] / 2;
+        int childStart = start;
+        for (int child = 0; child < childrenPerNode; child++) {
+            int childEnd = octantStarts[starts + child];
+            if (childEnd == childStart) {
+                continue;
+            }
+            ensureNodeCapacity(nodeCount + 1);
+            int childNode = nodeCount;
+            nodeCellSize[childNode] = childSize;
+            for (int axis = 0; axis < dimension; axis++) {
+                double offset = ((child >> axis) & 1) == 0 ? -childSize / 2 : childSize / 2;
+                nodeCellCenter[childNode * dimension + axis] = nodeCellCenter[node * dimension + axis] + offset;
+            }
+            buildNode(childStart, childEnd, depth + 1);
+            childStart = childEnd;
+        }
+        nodeSubtreeEnd[node] = nodeCount;
+    }
+
+    /**
+     * Calculates the interaction {@code F = c / r^p} of all objects in the tree
+     * with the given object. Far-away groups of objects are approximated as a
+     * single object.
+     *
+     * @param object
+     *            The object to calculate the interaction for. Doesn't need to
+     *            be in the tree.
+     * @param constant
+     *            The constant c.
+     * @param power
+     *            The power p.
+     * @param openingAngle
+     *            Groups of objects are approximated if the size of the group
+     *            divided by the distance to the group is smaller than this
+     *            value. Use 0 to never approximate.
+     * @param result
+     *            The interaction is added to this vector.
+     */
+    void calculate(PhysicalObject object, double constant, int power, double openingAngle, MutableVector result) {
+        double x = object.getCenterCoord(0);
+        double y = object.getCenterCoord(1);
+        double z = dimension == 3 ? object.getCenterCoord(2) : 0;
+
+        int node = 0;
+        while (node < nodeCount) {
+            if (nodeIsLeaf[node]) {
+                for (int i = nodeStart[node]; i < nodeEnd[node]; i++) {
+                    int other = order[i];
+                    if (objects[other] == object) {
+                        continue;
+                    }
+                    addInteraction(x, y, z, positions, other * dimension, 1, constant, power, result);
+                }
+                node = nodeSubtreeEnd[node];
+                continue;
+            }
+
+            double distance = getDistance(x, y, z, nodeAveragePosition, node * dimension);
+            if (nodeCellSize[node] < openingAngle * distance && !isInCell(node, x, y, z)) {
+                // Far enough away, treat the whole group as a single object
+                int count = nodeEnd[node] - nodeStart[node];
+                addInteraction(x, y, z, nodeAveragePosition, node * dimension, count, constant, power, result);
+                node = nodeSubtreeEnd[node];
+            } else {
+                // Open the node
+                node++;
+            }
+        }
+    }
+
+    private void addInteraction(double x, double y, double z, double[] otherPositions, int otherStart, int count,
+            double constant, int power, MutableVector result) {
+        double dx = x - otherPositions[otherStart];
+        double dy = y - otherPositions[otherStart + 1];
+        double dz = dimension == 3 ? z - otherPositions[otherStart + 2] : 0;
+        double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (distance == 0) {
+            // Prevent division by zero
+            return;
+        }
+        double magnitude = count * constant / MoreMath.pow(distance, power);
+        result.addToCoord(0, dx / distance * magnitude);
+        result.addToCoord(1, dy / distance * magnitude);
+        if (dimension == 3) {
+            result.addToCoord(2, dz / distance * magnitude);
+        }
+    }
+
+    private void ensureNodeCapacity(int capacity) {
+        if (nodeCellSize.length >= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, nodeCellSize.length * 2);
+        nodeCellCenter = Arrays.copyOf(nodeCellCenter, newCapacity * dimension);
+        nodeCellSize = Arrays.copyOf(nodeCellSize, newCapacity);
+        nodeAveragePosition = Arrays.copyOf(nodeAveragePosition, newCapacity * dimension);
+        nodeStart = Arrays.copyOf(nodeStart, newCapacity);
+        nodeEnd = Arrays.copyOf(nodeEnd, newCapacity);
+        nodeSubtreeEnd = Arrays.copyOf(nodeSubtreeEnd, newCapacity);
+        nodeIsLeaf = Arrays.copyOf(nodeIsLeaf, newCapacity);
+    }
+
+    /**
+     * Gets the child cell of the node that the object is in. Bit i of the
+     * result is set if the object is on the positive side of the center along
+     * axis i.
+     *
+     * @param node
+     *            The node.
+     * @param object
+     *            The object.
+     * @return The child cell.
+     */
+    private int getChildCell(int node, int object) {
+        int child = 0;
+        for (int axis = 0; axis < dimension; axis++) {
+            if (positions[object * dimension + axis] >= nodeCellCenter[node * dimension + axis]) {
+                child |= 1 << axis;
+            }
+        }
+        return child;
+    }
+
+    /**
+     * Gets the dimension of the objects in this tree.
+     *
+     * @return The dimension.
+     */
+    int getDimension() {
+        return dimension;
+    }
+
+    private double getDistance(double x, double y, double z, double[] otherPositions, int otherStart) {
+        double dx = x - otherPositions[otherStart];
+        double dy = y - otherPositions[otherStart + 1];
+        double dz = dimension == 3 ? z - otherPositions[otherStart + 2] : 0;
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    private boolean isInCell(int node, double x, double y, double z) {
+        double halfSize = nodeCellSize[node] / 2;
+        int start = node * dimension;
+        return Math.abs(x - nodeCellCenter[start]) <= halfSize
+                && Math.abs(y - nodeCellCenter[start + 1]) <= halfSize
+                && (dimension == 2 || Math.abs(z - nodeCellCenter[start + 2]) <= halfSize);
+    }
+}
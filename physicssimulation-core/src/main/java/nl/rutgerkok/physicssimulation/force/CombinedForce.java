@@ -0,0 +1,48 @@
+package nl.rutgerkok.physicssimulation.force;
+
+import java.util.Arrays;
+
+import nl.rutgerkok.physicssimulation.vector.MutableVector;
+import nl.rutgerkok.physicssimulation.vector.Vector;
+import nl.rutgerkok.physicssimulation.world.Force;
+import nl.rutgerkok.physicssimulation.world.PhysicalObject;
+import nl.rutgerkok.physicssimulation.world.WorldView;
+
+/**
+ * The resultant of multiple forces.
+ *
+ */
+final class CombinedForce implements Force {
+
+    private final Force[] forces;
+
+    CombinedForce(Force... forces) {
+        this.forces = forces.clone();
+    }
+
+    @Override
+    public Vector calculate(PhysicalObject object, WorldView world) {
+        MutableVector result = MutableVector.zero(world.getZeroVector().getDimension());
+        calculate(object, world, result);
+        return result.toVector();
+    }
+
+    @Override
+    public void calculate(PhysicalObject object, WorldView world, MutableVector result) {
+        for (Force force : forces) {
+            force.calculate(object, world, result);
+        }
+    }
+
+    @Override
+    public void prepare(WorldView world) {
+        for (Force force : forces) {
+            force.prepare(world);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Forces.combine(" + Arrays.toString(forces) + ")";
+    }
+}
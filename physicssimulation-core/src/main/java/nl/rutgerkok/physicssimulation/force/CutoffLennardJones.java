@@ -0,0 +1,141 @@
+package nl.rutgerkok.physicssimulation.force;
+
+import nl.rutgerkok.physicssimulation.MoreMath;
+import nl.rutgerkok.physicssimulation.vector.MutableVector;
+import nl.rutgerkok.physicssimulation.vector.Vector;
+import nl.rutgerkok.physicssimulation.world.Force;
+import nl.rutgerkok.physicssimulation.world.PhysicalObject;
+import nl.rutgerkok.physicssimulation.world.WorldView;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Lennard-Jones force that ignores all objects further away than a cutoff
+ * radius. Nearby objects are found using a {@link VerletNeighbourList}, so
+ * that calculating the force on an object no longer requires looking at all
+ * other objects.
+ *
+ * <p>
+ * Within the cutoff radius, the force is the same as the force of
+ * {@link Forces#lennardJones(double, double)}.
+ * </p>
+ *
+ * <p>
+ * The lists are checked in {@link #prepare(WorldView)}, or if the force is
+ * calculated without preparing, as soon as the objects have moved. Every
+ * world the force is used in gets its own lists.
+ * </p>
+ */
+final class CutoffLennardJones implements Force {
+
+    private final double epsilon;
+    private final double sigma;
+    private final double cutoff;
+    private final double skin;
+
+    private final WorldCache<VerletNeighbourList> neighbourLists;
+
+    /**
+     * Creates the force.
+     *
+     * @param epsilon
+     *            Depth of potential well.
+     * @param sigma
+     *            Distance between particle centers where potential energy is 0.
+     * @param cutoff
+     *            Objects further away than this are ignored.
+     * @param skin
+     *            Extra distance for the neighbour lists.
+     * @throws IllegalArgumentException
+     *             When one of the parameters is not a positive number (the
+     *             skin may also be 0).
+     */
+    CutoffLennardJones(double epsilon, double sigma, double cutoff, double skin) {
+        if (!Double.isFinite(epsilon) || epsilon <= 0) {
+            throw new IllegalArgumentException("Invalid epsilon: " + epsilon);
+        }
+        if (!Double.isFinite(sigma) || sigma <= 0) {
+            throw new IllegalArgumentException("Invalid sigma: " + sigma);
+        }
+        if (!Double.isFinite(cutoff) || cutoff <= 0) {
+            throw new IllegalArgumentException("Invalid cutoff: " + cutoff);
+        }
+        if (!Double.isFinite(skin) || skin < 0) {
+            throw new IllegalArgumentException("Invalid skin: " + skin);
+        }
+        this.epsilon = epsilon;
+        this.sigma = sigma;
+        this.cutoff = cutoff;
+        this.skin = skin;
+        this.neighbourLists = new WorldCache<>(this::updateNeighbourList);
+    }
+
+    private void addInteraction(PhysicalObject object, PhysicalObject otherObject, MutableVector result) {
+        int dimension = result.getDimension();
+        double squaredDistance = 0;
+        for (int axis = 0; axis < dimension; axis++) {
+            double difference = object.getCenterCoord(axis) - otherObject.getCenterCoord(axis);
+            squaredDistance += difference * difference;
+        }
+        if (squaredDistance == 0 || squaredDistance > cutoff * cutoff) {
+            // Prevent division by zero, or too far away
+            return;
+        }
+
+        double distance = Math.sqrt(squaredDistance);
+        double sixthPower = MoreMath.pow(sigma / distance, 6);
+        double magnitude = 4 * epsilon * (sixthPower * sixthPower - sixthPower);
+        for (int axis = 0; axis < dimension; axis++) {
+            double difference = object.getCenterCoord(axis) - otherObject.getCenterCoord(axis);
+            result.addToCoord(axis, difference / distance * magnitude);
+        }
+    }
+
+    @Override
+    public Vector calculate(PhysicalObject object, WorldView world) {
+        MutableVector result = MutableVector.zero(world.getZeroVector().getDimension());
+        calculate(object, world, result);
+        return result.toVector();
+    }
+
+    @Override
+    public void calculate(PhysicalObject object, WorldView world, MutableVector result) {
+        VerletNeighbourList neighbourList = neighbourLists.get(world);
+        int index = neighbourList.indexOf(object);
+        if (index == -1) {
+            // Unknown object, so look at all objects
+            int size = world.size();
+            for (int i = 0; i < size; i++) {
+                PhysicalObject otherObject = world.get(i);
+                if (otherObject != object) {
+                    addInteraction(object, otherObject, result);
+                }
+            }
+        } else {
+            int neighbourCount = neighbourList.getNeighbourCount(index);
+            for (int i = 0; i < neighbourCount; i++) {
+                addInteraction(object, neighbourList.getNeighbour(index, i), result);
+            }
+        }
+    }
+
+    @Override
+    public void prepare(WorldView world) {
+        neighbourLists.get(world);
+    }
+
+    @Override
+    public String toString() {
+        return "Forces.lennardJones(" + epsilon + ", " + sigma + ", " + cutoff + ", " + skin + ")";
+    }
+
+    private VerletNeighbourList updateNeighbourList(@Nullable VerletNeighbourList neighbourList, WorldView world) {
+        if (neighbourList == null) {
+            neighbourList = new VerletNeighbourList(cutoff, skin);
+        }
+        if (neighbourList.needsRebuild(world)) {
+            neighbourList.rebuild(world);
+        }
+        return neighbourList;
+    }
+}
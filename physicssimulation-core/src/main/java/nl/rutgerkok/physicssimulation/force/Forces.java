@@ -2,7 +2,6 @@ package nl.rutgerkok.physicssimulation.force;
 
 import java.util.Collection;
 
-import nl.rutgerkok.physicssimulation.vector.Vector;
 import nl.rutgerkok.physicssimulation.world.Force;
 
 /**
@@ -36,6 +35,34 @@ public final class Forces {
         return new IsotropicInteraction(-constant, power);
     }
 
+    /**
+     * Creates an isotropic attractive force, {@code -F = c / r^p}, that is
+     * approximated using the Barnes-Hut algorithm. Groups of objects that are
+     * far away are treated as a single object, which is a lot faster for
+     * worlds with many objects.
+     *
+     * @param constant
+     *            The constant c in the above expression.
+     * @param power
+     *            The power p in the above expression.
+     * @param openingAngle
+     *            A group of objects is approximated when its size divided by
+     *            its distance is smaller than this value. 0 gives the same
+     *            result as {@link #attraction(double, int)}, 0.5 is a common
+     *            value.
+     * @return The attractive force.
+     * @throws IllegalArgumentException
+     *             When c or p are not positive, when p is too high or when
+     *             the opening angle is negative.
+     */
+    public static Force attraction(double constant, int power, double openingAngle) {
+        if (constant < 0) {
+            throw new IllegalArgumentException("Invalid constant: " + constant
+                    + " (maybe use a repulsive force instead?)");
+        }
+        return new BarnesHutInteraction(-constant, power, openingAngle);
+    }
+
     /**
      * Combines the given forces into one resultant force.
      * 
@@ -44,16 +71,7 @@ public final class Forces {
      * @return The resultant force.
      */
     public static Force combine(Collection<Force> forces) {
-        Force[] immutableForces = forces.toArray(new Force[0]);
-        return (object, world) -> {
-            Vector result = world.getZeroVector();
-
-            for (Force force : immutableForces) {
-                result = result.plus(force.calculate(object, world));
-            }
-
-            return result;
-        };
+        return new CombinedForce(forces.toArray(new Force[0]));
     }
 
     /**
@@ -70,7 +88,56 @@ public final class Forces {
     public static Force lennardJones(double epsilon, double sigma) {
         Force repulsive = Forces.repulsion(4 * epsilon * Math.pow(sigma, 12), 12);
         Force attractive = Forces.attraction(4 * epsilon * Math.pow(sigma, 6), 6);
-        return (object, world) -> repulsive.calculate(object, world).plus(attractive.calculate(object, world));
+        return new CombinedForce(repulsive, attractive);
+    }
+
+    /**
+     * Creates a Lennard-Jones potential that ignores all objects further away
+     * than the cutoff radius. As the potential quickly goes to zero, a cutoff
+     * of 2.5 sigma is common. A skin of 0.3 sigma is used for the neighbour
+     * lists.
+     *
+     * @param epsilon
+     *            Depth of potential well.
+     * @param sigma
+     *            Distance between particle centers where potential energy is 0.
+     * @param cutoff
+     *            Objects further away than this are ignored.
+     * @return The Lennard-Jones potential.
+     * @throws IllegalArgumentException
+     *             When one of the parameters is not a positive number.
+     * @see #lennardJones(double, double, double, double) Specifying the skin.
+     */
+    public static Force lennardJones(double epsilon, double sigma, double cutoff) {
+        return new CutoffLennardJones(epsilon, sigma, cutoff, 0.3 * sigma);
+    }
+
+    /**
+     * Creates a Lennard-Jones potential that ignores all objects further away
+     * than the cutoff radius.
+     *
+     * <p>
+     * For every object, the force keeps a list of all objects within
+     * {@code cutoff + skin}. These lists are only rebuilt once an object has
+     * moved more than half the skin. A larger skin means that the lists are
+     * rebuilt less often, but also that they are longer.
+     * </p>
+     *
+     * @param epsilon
+     *            Depth of potential well.
+     * @param sigma
+     *            Distance between particle centers where potential energy is 0.
+     * @param cutoff
+     *            Objects further away than this are ignored.
+     * @param skin
+     *            Extra distance for the neighbour lists, may be 0.
+     * @return The Lennard-Jones potential.
+     * @throws IllegalArgumentException
+     *             When one of the parameters is not a positive number, or
+     *             when the skin is negative.
+     */
+    public static Force lennardJones(double epsilon, double sigma, double cutoff, double skin) {
+        return new CutoffLennardJones(epsilon, sigma, cutoff, skin);
     }
 
     /**
@@ -96,6 +163,32 @@ public final class Forces {
         return new IsotropicInteraction(constant, power);
     }
 
+    /**
+     * Creates an isotropic repulsive force, {@code F = c / r^p}, that is
+     * approximated using the Barnes-Hut algorithm.
+     *
+     * @param constant
+     *            The constant c in the above expression.
+     * @param power
+     *            The power p in the above expression.
+     * @param openingAngle
+     *            A group of objects is approximated when its size divided by
+     *            its distance is smaller than this value. 0 gives the same
+     *            result as {@link #repulsion(double, int)}.
+     * @return The repulsive force.
+     * @throws IllegalArgumentException
+     *             When c or p are not positive, when p is too high or when
+     *             the opening angle is negative.
+     * @see #attraction(double, int, double) An attractive force.
+     */
+    public static Force repulsion(double constant, int power, double openingAngle) {
+        if (constant < 0) {
+            throw new IllegalArgumentException("Invalid constant: " + constant
+                    + " (maybe use an attractive force instead?)");
+        }
+        return new BarnesHutInteraction(constant, power, openingAngle);
+    }
+
     Forces() {
         throw new RuntimeException("No instances");
     }
@@ -1,5 +1,6 @@
 package nl.rutgerkok.physicssimulation.force;
 
+import nl.rutgerkok.physicssimulation.vector.MutableVector;
 import nl.rutgerkok.physicssimulation.vector.Vector;
 import nl.rutgerkok.physicssimulation.world.Force;
 import nl.rutgerkok.physicssimulation.world.WorldView;
@@ -14,11 +15,18 @@ final class Gravity implements Force {
     @Override
     public Vector calculate(PhysicalObject object, WorldView world) {
         // F = m g = g m = g / (1/m)
-        if (object.invertedMass == 0) {
+        if (object.getInvertedMass() == 0) {
             // Static objects don't fall
             return world.getZeroVector();
         }
-        return world.getZeroVector().withCoord(1, -9.81 / object.invertedMass);
+        return world.getZeroVector().withCoord(1, -9.81 / object.getInvertedMass());
+    }
+
+    @Override
+    public void calculate(PhysicalObject object, WorldView world, MutableVector result) {
+        if (object.getInvertedMass() != 0) {
+            result.addToCoord(1, -9.81 / object.getInvertedMass());
+        }
     }
 
     @Override
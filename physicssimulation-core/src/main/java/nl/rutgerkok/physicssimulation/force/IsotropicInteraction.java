@@ -1,5 +1,7 @@
 package nl.rutgerkok.physicssimulation.force;
 
+import nl.rutgerkok.physicssimulation.MoreMath;
+import nl.rutgerkok.physicssimulation.vector.MutableVector;
 import nl.rutgerkok.physicssimulation.vector.Vector;
 import nl.rutgerkok.physicssimulation.world.Force;
 import nl.rutgerkok.physicssimulation.world.WorldView;
@@ -11,11 +13,8 @@ import nl.rutgerkok.physicssimulation.world.PhysicalObject;
  */
 final class IsotropicInteraction implements Force {
 
-    private final double constant;
-    private final int power;
-
     /**
-     * Creates an isotropic interaction force, {@code F = c / r^p}.
+     * Checks the parameters of the force {@code F = c / r^p}.
      *
      * @param constant
      *            The constant c in the above expression.
@@ -24,36 +23,67 @@ final class IsotropicInteraction implements Force {
      * @throws IllegalArgumentException
      *             When p is negative or too high, or when c is 0.
      */
-    IsotropicInteraction(double constant, int power) {
+    static void checkParameters(double constant, int power) {
         if (constant == 0) {
             throw new IllegalArgumentException("Invalid constant: " + constant);
         }
         if (power <= 0 || power > 20) {
             throw new IllegalArgumentException("Invalid power: " + power);
         }
+    }
+
+    private final double constant;
+    private final int power;
+
+    /**
+     * Creates an isotropic interaction force, {@code F = c / r^p}.
+     *
+     * @param constant
+     *            The constant c in the above expression.
+     * @param power
+     *            The power p in the above expression.
+     * @throws IllegalArgumentException
+     *             When p is negative or too high, or when c is 0.
+     */
+    IsotropicInteraction(double constant, int power) {
+        checkParameters(constant, power);
         this.constant = constant;
         this.power = power;
     }
 
     @Override
     public Vector calculate(PhysicalObject object, WorldView world) {
-        Vector resultant = world.getZeroVector();
-        for (PhysicalObject otherObject : world) {
+        MutableVector result = MutableVector.zero(world.getZeroVector().getDimension());
+        calculate(object, world, result);
+        return result.toVector();
+    }
+
+    @Override
+    public void calculate(PhysicalObject object, WorldView world, MutableVector result) {
+        int dimension = result.getDimension();
+        int size = world.size();
+        for (int i = 0; i < size; i++) {
+            PhysicalObject otherObject = world.get(i);
             if (otherObject.equals(object)) {
                 continue;
             }
 
-            Vector difference = object.getShape().getCenter().minus(otherObject.getShape().getCenter());
-
-            double distance = difference.getLength();
+            double squaredDistance = 0;
+            for (int axis = 0; axis < dimension; axis++) {
+                double difference = object.getCenterCoord(axis) - otherObject.getCenterCoord(axis);
+                squaredDistance += difference * difference;
+            }
+            double distance = Math.sqrt(squaredDistance);
             if (distance == 0) {
                 // Prevent division by zero
                 continue;
             }
-            Vector differenceNormalized = difference.divide(distance);
-            resultant = resultant.plus(differenceNormalized.multiply(constant / Math.pow(distance, power)));
+            double magnitude = constant / MoreMath.pow(distance, power);
+            for (int axis = 0; axis < dimension; axis++) {
+                double difference = object.getCenterCoord(axis) - otherObject.getCenterCoord(axis);
+                result.addToCoord(axis, difference / distance * magnitude);
+            }
         }
-        return resultant;
     }
 
     @Override
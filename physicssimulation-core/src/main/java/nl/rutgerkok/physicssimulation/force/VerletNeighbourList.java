@@ -0,0 +1,255 @@
+package nl.rutgerkok.physicssimulation.force;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import nl.rutgerkok.physicssimulation.world.PhysicalObject;
+import nl.rutgerkok.physicssimulation.world.WorldView;
+
+/**
+ * Keeps, for every object, a list of all objects within
+ * {@code cutoff + skin} of it. As long as no object has moved more than half
+ * the skin, every pair of objects within the cutoff is guaranteed to be in the
+ * list, so the list can be reused for many steps.
+ *
+ * <p>
+ * The lists are built using a grid of cells the size of
+ * {@code cutoff + skin}: objects can only be neighbours if their cells touch.
+ * </p>
+ */
+final class VerletNeighbourList {
+
+    /**
+     * Each cell coordinate is stored in 21 bits of the key.
+     */
+    private static final int BITS_PER_COORD = 21;
+    private static final long MASK_COORD = (1L << BITS_PER_COORD) - 1;
+    private static final double MAX_COORD = (1 << (BITS_PER_COORD - 1)) - 1;
+
+    private static long getCellKey(long x, long y, long z) {
+        return ((x & MASK_COORD) << (2 * BITS_PER_COORD))
+                | ((y & MASK_COORD) << BITS_PER_COORD)
+                | (z & MASK_COORD);
+    }
+
+    private final double listRadius;
+    private final double maxDisplacement;
+
+    private int dimension;
+    private PhysicalObject[] objects = new PhysicalObject[0];
+    private final Map<PhysicalObject, Integer> indices = new IdentityHashMap<>();
+
+    /**
+     * Positions of the objects when the lists were built.
+     */
+    private double[] positionsAtBuild = new double[0];
+
+    /**
+     * The neighbours of object i are stored in
+     * {@code neighbours[neighbourStart[i]]} up to (but not including)
+     * {@code neighbours[neighbourStart[i + 1]]}.
+     */
+    private int[] neighbourStart = new int[1];
+    private int[] neighbours = new int[0];
+
+    /**
+     * Creates an empty neighbour list.
+     *
+     * @param cutoff
+     *            Objects further away than this are never needed.
+     * @param skin
+     *            Extra distance to add to the list, so that the list can be
+     *            reused until an object has moved more than half the skin.
+     */
+    VerletNeighbourList(double cutoff, double skin) {
+        this.listRadius = cutoff + skin;
+        this.maxDisplacement = skin / 2;
+    }
+
+    /**
+     * Gets the amount of neighbours in the list of the given object.
+     *
+     * @param index
+     *            Index of the object.
+     * @return The amount of neighbours.
+     */
+    int getNeighbourCount(int index) {
+        return neighbourStart[index + 1] - neighbourStart[index];
+    }
+
+    /**
+     * Gets a neighbour of an object.
+     *
+     * @param index
+     *            Index of the object.
+     * @param i
+     *            Which neighbour, from 0 (inclusive) to
+     *            {@link #getNeighbourCount(int)} (exclusive).
+     * @return The neighbour.
+     */
+    PhysicalObject getNeighbour(int index, int i) {
+        return objects[neighbours[neighbourStart[index] + i]];
+    }
+
+    /**
+     * Gets the index of the given object in the lists.
+     *
+     * @param object
+     *            The object.
+     * @return The index, or -1 if the object was not in the world when the
+     *         lists were last built.
+     */
+    int indexOf(PhysicalObject object) {
+        Integer index = indices.get(object);
+        if (index == null) {
+            return -1;
+        }
+        return index;
+    }
+
+    private boolean isSameObjects(WorldView world) {
+        if (world.size() != indices.size() || objects.length != indices.size()) {
+            return false;
+        }
+        for (int i = 0; i < objects.length; i++) {
+            if (objects[i] != world.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the lists can still be used, or whether they need to be
+     * rebuilt.
+     *
+     * @param world
+     *            The world.
+     * @return True if the objects in the world changed, or if an object moved
+     *         more than half the skin since the lists were built.
+     */
+    boolean needsRebuild(WorldView world) {
+        if (!isSameObjects(world)) {
+            return true;
+        }
+        double maxSquaredDisplacement = maxDisplacement * maxDisplacement;
+        for (int i = 0; i < objects.length; i++) {
+            double squaredDisplacement = 0;
+            for (int axis = 0; axis < dimension; axis++) {
+                double difference = objects[i].getCenterCoord(axis) - positionsAtBuild[i * dimension + axis];
+                squaredDisplacement += difference * difference;
+            }
+            if (squaredDisplacement > maxSquaredDisplacement) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Builds the lists from scratch.
+     *
+     * @param world
+     *            The objects.
+     */
+    void rebuild(WorldView world) {
+        int size = world.size();
+        dimension = world.getZeroVector().getDimension();
+        objects = world.toArray(new PhysicalObject[size]);
+        positionsAtBuild = new double[size * dimension];
+        indices.clear();
+        for (int i = 0; i < size; i++) {
+            indices.put(objects[i], i);
+            for (int axis = 0; axis < dimension; axis++) {
+                positionsAtBuild[i * dimension + axis] = objects[i].getCenterCoord(axis);
+            }
+        }
+
+        // Sort the objects on the cell they are in
+        long[] cells = new long[size * 3];
+        long[] sortedKeys = new long[size];
+        Integer[] sortedObjects = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            for (int axis = 0; axis < 3; axis++) {
+                cells[i * 3 + axis] = axis < dimension ? getCellCoord(positionsAtBuild[i * dimension + axis]) : 0;
+            }
+            sortedObjects[i] = i;
+        }
+        Arrays.sort(sortedObjects, (a, b) -> Long.compare(getCellKey(cells[a * 3], cells[a * 3 + 1], cells[a * 3 + 2]),
+                getCellKey(cells[b * 3], cells[b * 3 + 1], cells[b * 3 + 2])));
+        for (int i = 0; i < size; i++) {
+            int object = sortedObjects[i];
+            sortedKeys[i] = getCellKey(cells[object * 3], cells[object * 3 + 1], cells[object * 3 + 2]);
+        }
+
+        // Look for neighbours in the surrounding cells
+        double squaredRadius = listRadius * listRadius;
+        int zRange = dimension == 3 ? 1 : 0;
+        neighbourStart = new int[size + 1];
+        int[] newNeighbours = new int[Math.max(16, neighbours.length)];
+        int neighbourCount = 0;
+        for (int i = 0; i < size; i++) {
+            neighbourStart[i] = neighbourCount;
+            for (long dx = -1; dx <= 1; dx++) {
+                for (long dy = -1; dy <= 1; dy++) {
+                    for (long dz = -zRange; dz <= zRange; dz++) {
+                        long key = getCellKey(cells[i * 3] + dx, cells[i * 3 + 1] + dy, cells[i * 3 + 2] + dz);
+                        for (int j = findFirst(sortedKeys, key); j < size && sortedKeys[j] == key; j++) {
+                            int other = sortedObjects[j];
+                            if (other == i || getSquaredDistance(i, other) > squaredRadius) {
+                                continue;
+                            }
+                            if (neighbourCount == newNeighbours.length) {
+                                newNeighbours = Arrays.copyOf(newNeighbours, neighbourCount * 2);
+                            }
+                            newNeighbours[neighbourCount++] = other;
+                        }
+                    }
+                }
+            }
+        }
+        neighbourStart[size] = neighbourCount;
+        neighbours = newNeighbours;
+    }
+
+    /**
+     * Finds the first index of the given key in the sorted array.
+     *
+     * @param sortedKeys
+     *            The sorted keys.
+     * @param key
+     *            The key.
+     * @return The first index with the key, or the index where the key would
+     *         be inserted.
+     */
+    private int findFirst(long[] sortedKeys, long key) {
+        int low = 0;
+        int high = sortedKeys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedKeys[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long getCellCoord(double position) {
+        // Clamping far-away objects into the outermost cells is harmless: they
+        // are still in a cell next to all of their neighbours
+        double cell = Math.floor(position / listRadius);
+        return (long) Math.max(-MAX_COORD, Math.min(MAX_COORD, cell));
+    }
+
+    private double getSquaredDistance(int a, int b) {
+        double squaredDistance = 0;
+        for (int axis = 0; axis < dimension; axis++) {
+            double difference = positionsAtBuild[a * dimension + axis] - positionsAtBuild[b * dimension + axis];
+            squaredDistance += difference * difference;
+        }
+        return squaredDistance;
+    }
+}
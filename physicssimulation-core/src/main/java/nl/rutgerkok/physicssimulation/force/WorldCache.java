@@ -0,0 +1,109 @@
+package nl.rutgerkok.physicssimulation.force;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import nl.rutgerkok.physicssimulation.world.Force;
+import nl.rutgerkok.physicssimulation.world.WorldView;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Data that a force calculates from all objects of a world, like a tree of
+ * the objects. The data is kept separately for every world the force is used
+ * in, so that a force can be shared by multiple simulations, or restricted to
+ * multiple groups of materials. It is updated whenever the
+ * {@link WorldView#getVersion() version} of the world has changed, also if
+ * the force was never {@link Force#prepare(WorldView) prepared}. For worlds
+ * that don't know their version, the data is updated every time.
+ *
+ * <p>
+ * Looking up data that is still up to date doesn't lock, so that the forces on
+ * the objects can be calculated on multiple threads. The data itself is
+ * updated under a lock, but must not be read by another thread while the
+ * objects of its world are moving.
+ * </p>
+ *
+ * @param <T>
+ *            Type of the data.
+ */
+final class WorldCache<T> {
+
+    /**
+     * Creates or updates the data of a world.
+     *
+     * @param <T>
+     *            Type of the data.
+     */
+    @FunctionalInterface
+    interface Updater<T> {
+        /**
+         * Creates or updates the data of a world.
+         *
+         * @param data
+         *            The data of an earlier version of the world, or null if
+         *            there is none. May be updated in place.
+         * @param world
+         *            The world.
+         * @return The data for the current version of the world.
+         */
+        T update(@Nullable T data, WorldView world);
+    }
+
+    private static final class Entry<T> {
+        /**
+         * Weak, as the entries are also the values of a {@link WeakHashMap}.
+         */
+        private final WeakReference<WorldView> world;
+        private final T data;
+        private final long version;
+
+        Entry(WorldView world, T data, long version) {
+            this.world = new WeakReference<>(world);
+            this.data = data;
+            this.version = version;
+        }
+    }
+
+    private final Updater<T> updater;
+    private final Map<WorldView, Entry<T>> entries = new WeakHashMap<>();
+
+    /**
+     * The entry that was looked up last. Most of the time, the force is used
+     * in a single world, so this entry can be used without locking.
+     */
+    private volatile @Nullable Entry<T> lastEntry;
+
+    WorldCache(Updater<T> updater) {
+        this.updater = updater;
+    }
+
+    /**
+     * Gets the data of the world, creating or updating it if necessary.
+     *
+     * @param world
+     *            The world.
+     * @return The data.
+     */
+    T get(WorldView world) {
+        Entry<T> entry = lastEntry;
+        if (entry != null && entry.version >= 0 && entry.world.get() == world
+                && entry.version == world.getVersion()) {
+            return entry.data;
+        }
+        return lookUp(world);
+    }
+
+    private synchronized T lookUp(WorldView world) {
+        long version = world.getVersion();
+        Entry<T> entry = entries.get(world);
+        if (entry == null || version < 0 || entry.version != version) {
+            T data = updater.update(entry == null ? null : entry.data, world);
+            entry = new Entry<>(world, data, version);
+            entries.put(world, entry);
+        }
+        lastEntry = entry;
+        return entry.data;
+    }
+}
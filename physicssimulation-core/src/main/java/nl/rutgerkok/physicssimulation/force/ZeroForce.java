@@ -1,5 +1,6 @@
 package nl.rutgerkok.physicssimulation.force;
 
+import nl.rutgerkok.physicssimulation.vector.MutableVector;
 import nl.rutgerkok.physicssimulation.vector.Vector;
 import nl.rutgerkok.physicssimulation.world.Force;
 import nl.rutgerkok.physicssimulation.world.WorldView;
@@ -12,6 +13,11 @@ final class ZeroForce implements Force {
         return world.getZeroVector();
     }
 
+    @Override
+    public void calculate(PhysicalObject object, WorldView world, MutableVector result) {
+        // Nothing to add
+    }
+
     @Override
     public String toString() {
         return "Forces.ZERO";
@@ -61,6 +61,18 @@ public final class Rectangle implements Shape {
         return min.plus(max).divide(2);
     }
 
+    @Override
+    public double getExtent(int axis) {
+        switch (axis) {
+            case 0:
+                return getXSize() / 2;
+            case 1:
+                return getYSize() / 2;
+            default:
+                throw new IllegalArgumentException("Invalid axis for " + this + ": " + axis);
+        }
+    }
+
     /**
      * Gets the position with the highest x and y that is still contained within
      * the rectangle.
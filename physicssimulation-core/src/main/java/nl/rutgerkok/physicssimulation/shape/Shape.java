@@ -16,6 +16,19 @@ public interface Shape extends Drawable {
      */
     Vector getCenter();
 
+    /**
+     * Gets half of the size of the axis-aligned box around this shape, along
+     * the given axis. Together with the {@link #getCenter() center}, this
+     * describes the smallest axis-aligned box that contains the shape.
+     *
+     * @param axis
+     *            The axis: 0 for x, 1 for y and 2 for z.
+     * @return Half of the size along the axis.
+     * @throws IllegalArgumentException
+     *             If the axis doesn't exist for the dimension of this shape.
+     */
+    double getExtent(int axis);
+
     /**
      * Gets the volume of this shape. For 2-dimensional shapes, this is equal to
      * the area of the shape.
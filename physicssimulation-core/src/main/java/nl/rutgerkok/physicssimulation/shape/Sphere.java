@@ -63,6 +63,14 @@ public final class Sphere implements Spherical {
         return center;
     }
 
+    @Override
+    public double getExtent(int axis) {
+        if (axis < 0 || axis >= 3) {
+            throw new IllegalArgumentException("Invalid axis for " + this + ": " + axis);
+        }
+        return radius;
+    }
+
     @Override
     public double getRadius() {
         return radius;
@@ -0,0 +1,214 @@
+package nl.rutgerkok.physicssimulation.vector;
+
+import static nl.rutgerkok.physicssimulation.vector.Vector.vec2;
+import static nl.rutgerkok.physicssimulation.vector.Vector.vec3;
+
+/**
+ * A two- or three-dimensional vector that can be modified. Useful for summing
+ * up lots of vectors (like forces) without creating a new {@link Vector} for
+ * every step of the sum.
+ *
+ * <p>
+ * Unlike {@link Vector}, instances of this class must not be shared between
+ * threads.
+ * </p>
+ */
+public final class MutableVector {
+
+    /**
+     * Creates a new mutable vector with all coords set to 0.
+     *
+     * @param dimension
+     *            The dimension, 2 or 3.
+     * @return The vector.
+     * @throws IllegalArgumentException
+     *             When the dimension is not two or three.
+     */
+    public static MutableVector zero(int dimension) {
+        if (dimension != 2 && dimension != 3) {
+            throw new IllegalArgumentException("Dimension not supported: " + dimension);
+        }
+        return new MutableVector(dimension);
+    }
+
+    private final int dimension;
+    private double x;
+    private double y;
+    private double z;
+
+    private MutableVector(int dimension) {
+        this.dimension = dimension;
+    }
+
+    /**
+     * Adds another vector to this vector.
+     *
+     * @param that
+     *            The other vector.
+     * @return This vector, for chaining.
+     * @throws IllegalArgumentException
+     *             When the other vector has a different dimension.
+     */
+    public MutableVector add(Vector that) {
+        checkDimension(that.getDimension());
+        this.x += that.getCoord(0);
+        this.y += that.getCoord(1);
+        if (dimension == 3) {
+            this.z += that.getCoord(2);
+        }
+        return this;
+    }
+
+    /**
+     * Adds the given value to one coord of this vector.
+     *
+     * @param i
+     *            The coord position.
+     * @param value
+     *            The value to add.
+     * @return This vector, for chaining.
+     * @throws IllegalArgumentException
+     *             If i &gt;= dimension.
+     */
+    public MutableVector addToCoord(int i, double value) {
+        if (i == 0) {
+            this.x += value;
+            return this;
+        }
+        if (i == 1) {
+            this.y += value;
+            return this;
+        }
+        if (i == 2 && dimension == 3) {
+            this.z += value;
+            return this;
+        }
+        throw new IllegalArgumentException("Invalid coord position: " + i);
+    }
+
+    /**
+     * Adds another vector multiplied by a scalar to this vector, so
+     * {@code this = this + that * scalar}.
+     *
+     * @param that
+     *            The other vector.
+     * @param scalar
+     *            The scalar.
+     * @return This vector, for chaining.
+     * @throws IllegalArgumentException
+     *             When the other vector has a different dimension.
+     */
+    public MutableVector addScaled(Vector that, double scalar) {
+        checkDimension(that.getDimension());
+        this.x += that.getCoord(0) * scalar;
+        this.y += that.getCoord(1) * scalar;
+        if (dimension == 3) {
+            this.z += that.getCoord(2) * scalar;
+        }
+        return this;
+    }
+
+    private void checkDimension(int dimension) {
+        if (dimension != this.dimension) {
+            throw new IllegalArgumentException("dimension mismatch: " + this.dimension + " vs " + dimension);
+        }
+    }
+
+    /**
+     * Gets the ith coord.
+     *
+     * @param i
+     *            The coord position.
+     * @return The coord.
+     * @throws IllegalArgumentException
+     *             If i &gt;= dimension.
+     */
+    public double getCoord(int i) {
+        if (i == 0) {
+            return x;
+        }
+        if (i == 1) {
+            return y;
+        }
+        if (i == 2 && dimension == 3) {
+            return z;
+        }
+        throw new IllegalArgumentException("Invalid coord position: " + i);
+    }
+
+    /**
+     * Gets the dimension of this vector.
+     *
+     * @return The dimension, 2 or 3.
+     */
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * Multiplies this vector with a scalar.
+     *
+     * @param scalar
+     *            The scalar.
+     * @return This vector, for chaining.
+     */
+    public MutableVector scale(double scalar) {
+        this.x *= scalar;
+        this.y *= scalar;
+        this.z *= scalar;
+        return this;
+    }
+
+    /**
+     * Sets all coords of this vector to 0.
+     *
+     * @return This vector, for chaining.
+     */
+    public MutableVector setZero() {
+        this.x = 0;
+        this.y = 0;
+        this.z = 0;
+        return this;
+    }
+
+    /**
+     * Subtracts another vector from this vector.
+     *
+     * @param that
+     *            The other vector.
+     * @return This vector, for chaining.
+     * @throws IllegalArgumentException
+     *             When the other vector has a different dimension.
+     */
+    public MutableVector sub(Vector that) {
+        checkDimension(that.getDimension());
+        this.x -= that.getCoord(0);
+        this.y -= that.getCoord(1);
+        if (dimension == 3) {
+            this.z -= that.getCoord(2);
+        }
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        if (dimension == 2) {
+            return "MutableVector(" + x + ", " + y + ")";
+        }
+        return "MutableVector(" + x + ", " + y + ", " + z + ")";
+    }
+
+    /**
+     * Creates an immutable copy of this vector.
+     *
+     * @return The copy.
+     * @throws IllegalArgumentException
+     *             If one of the coords is infinite or NaN.
+     */
+    public Vector toVector() {
+        if (dimension == 2) {
+            return vec2(x, y);
+        }
+        return vec3(x, y, z);
+    }
+}
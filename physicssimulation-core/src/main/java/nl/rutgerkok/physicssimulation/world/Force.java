@@ -5,11 +5,18 @@ import java.util.Objects;
 import java.util.Set;
 
 import nl.rutgerkok.physicssimulation.shape.Material;
+import nl.rutgerkok.physicssimulation.vector.MutableVector;
 import nl.rutgerkok.physicssimulation.vector.Vector;
 
 /**
  * Represents some physical force (as in {@code F = m a}).
  *
+ * <p>
+ * At the start of every step, {@link #prepare(WorldView)} is called once.
+ * After that, {@link #calculate(PhysicalObject, WorldView)} is called for
+ * every object in the world. Some {@link Integrator integrators} repeat this
+ * for intermediate states during the step.
+ * </p>
  */
 public interface Force {
 
@@ -24,6 +31,39 @@ public interface Force {
      */
     Vector calculate(PhysicalObject object, WorldView otherObjects);
 
+    /**
+     * Calculates the force that should be applied to the given object, and
+     * adds it to the given vector. Forces can implement this method without
+     * creating any new vectors, which is faster when summing up many forces.
+     * The default implementation adds the result of
+     * {@link #calculate(PhysicalObject, WorldView)}.
+     *
+     * @param object
+     *            The object.
+     * @param otherObjects
+     *            The other objects in the world.
+     * @param result
+     *            The force is added to this vector.
+     */
+    default void calculate(PhysicalObject object, WorldView otherObjects, MutableVector result) {
+        result.add(calculate(object, otherObjects));
+    }
+
+    /**
+     * Called once at the start of every step, before the force is calculated
+     * for any object. Forces that can share work between all objects in a
+     * step (like building a tree of the objects) can do that work here. The
+     * default implementation does nothing.
+     *
+     * @param otherObjects
+     *            The objects in the world. Forces that are
+     *            {@link #restrictTo(Material, Material...) restricted} receive
+     *            only the objects they are restricted to.
+     */
+    default void prepare(WorldView otherObjects) {
+        // Empty
+    }
+
     /**
      * Creates a new force that applies only to the given materials.
      *
@@ -36,15 +76,11 @@ public interface Force {
     default Force restrictTo(Material first, Material... rest) {
         Objects.requireNonNull(first);
 
-        if (rest.length == 0) {
-            return (object, world) -> calculate(object, world.filterOnMaterial(first));
-        }
-
         Set<Material> materialSet = EnumSet.noneOf(Material.class);
         materialSet.add(first);
         for (Material material : rest) {
             materialSet.add(material);
         }
-        return (object, otherObjects) -> calculate(object, otherObjects.filterOnMaterials(materialSet));
+        return new RestrictedForce(this, materialSet);
     }
 }
@@ -0,0 +1,164 @@
+package nl.rutgerkok.physicssimulation.world;
+
+import static nl.rutgerkok.physicssimulation.vector.Vector.vec2;
+import static nl.rutgerkok.physicssimulation.vector.Vector.vec3;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import nl.rutgerkok.physicssimulation.vector.MutableVector;
+import nl.rutgerkok.physicssimulation.vector.Vector;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Calculates the forces on all objects, before any object is moved. The
+ * calculation can be spread over multiple threads.
+ *
+ * <p>
+ * The force on every object is calculated on its own, and always in the same
+ * way, no matter which thread does the calculation. So the results are
+ * exactly the same for every amount of threads.
+ * </p>
+ */
+final class ForceEvaluator {
+
+    /**
+     * Amount of objects that a single task calculates the forces for. Smaller
+     * tasks would spend more time on scheduling than on calculating.
+     */
+    private static final int OBJECTS_PER_TASK = 64;
+
+    private class ForceTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int start;
+        private final int end;
+
+        ForceTask(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= OBJECTS_PER_TASK) {
+                calculateRange(start, end, MutableVector.zero(dimension));
+                return;
+            }
+            int middle = (start + end) >>> 1;
+            invokeAll(new ForceTask(start, middle), new ForceTask(middle, end));
+        }
+    }
+
+    private final Force force;
+    private final WorldView world;
+    private PhysicalObject[] objects;
+    private int objectCount;
+    private final int dimension;
+
+    /**
+     * The force on object i along axis a is stored at index
+     * {@code i * dimension + a}.
+     */
+    private double[] forces;
+    private final MutableVector sequentialResult;
+    private final @Nullable ForkJoinPool pool;
+
+    /**
+     * Creates a new evaluator.
+     *
+     * @param force
+     *            The force to evaluate.
+     * @param world
+     *            The world, passed to the force.
+     * @param objects
+     *            The objects to calculate the forces for.
+     * @param pool
+     *            Threads to use, shared with the other evaluators of the
+     *            simulation. For null, all forces are calculated on the
+     *            calling thread.
+     */
+    ForceEvaluator(Force force, WorldView world, PhysicalObject[] objects, @Nullable ForkJoinPool pool) {
+        this.force = force;
+        this.world = world;
+        this.objects = objects;
+        this.objectCount = objects.length;
+        this.dimension = world.getZeroVector().getDimension();
+        this.forces = new double[objects.length * dimension];
+        this.sequentialResult = MutableVector.zero(dimension);
+        this.pool = pool;
+    }
+
+    /**
+     * Calculates the forces on all objects.
+     */
+    void calculateAll() {
+        ForkJoinPool pool = this.pool;
+        if (pool == null || objectCount <= OBJECTS_PER_TASK) {
+            calculateRange(0, objectCount, sequentialResult);
+        } else {
+            pool.invoke(new ForceTask(0, objectCount));
+        }
+    }
+
+    /**
+     * Replaces the objects to calculate the forces for, after objects were
+     * spawned or despawned.
+     *
+     * @param objects
+     *            The new objects.
+     * @param count
+     *            Amount of objects in the array to use.
+     */
+    void setObjects(PhysicalObject[] objects, int count) {
+        this.objects = objects;
+        this.objectCount = count;
+        if (forces.length < count * dimension) {
+            forces = new double[Math.max(count, forces.length / dimension * 2) * dimension];
+        }
+    }
+
+    private void calculateRange(int start, int end, MutableVector result) {
+        for (int i = start; i < end; i++) {
+            result.setZero();
+            if (!objects[i].isSleeping()) {
+                force.calculate(objects[i], world, result);
+            }
+            for (int axis = 0; axis < dimension; axis++) {
+                forces[i * dimension + axis] = result.getCoord(axis);
+            }
+        }
+    }
+
+    /**
+     * Gets the force on an object, as calculated by the last call to
+     * {@link #calculateAll()}.
+     *
+     * @param index
+     *            Index of the object.
+     * @param axis
+     *            The axis.
+     * @return The force along the axis.
+     */
+    double getForce(int index, int axis) {
+        return forces[index * dimension + axis];
+    }
+
+    /**
+     * Gets the force on an object, as calculated by the last call to
+     * {@link #calculateAll()}.
+     *
+     * @param index
+     *            Index of the object.
+     * @return The force.
+     */
+    Vector getForce(int index) {
+        int start = index * dimension;
+        if (dimension == 2) {
+            return vec2(forces[start], forces[start + 1]);
+        }
+        return vec3(forces[start], forces[start + 1], forces[start + 2]);
+    }
+}
@@ -0,0 +1,344 @@
+package nl.rutgerkok.physicssimulation.world;
+
+import java.util.Arrays;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Gives an {@link Integrator} access to the state of all objects during a
+ * step. The state is stored in flat arrays: the value of object i along axis
+ * a is stored at {@code i * dimension + a}.
+ *
+ * <p>
+ * Sleeping objects are part of the arrays, but are never moved.
+ * </p>
+ */
+final class IntegrationContext {
+
+    private final Force force;
+    private final MultipleMaterialWorldView world;
+    private final ForceEvaluator forceEvaluator;
+    private final int dimension;
+    private final @Nullable ObjectColumns columns;
+
+    private PhysicalObject[] objects = new PhysicalObject[0];
+    private int objectCount;
+    private double deltaTime;
+
+    private double[] positions = new double[0];
+    private double[] velocities = new double[0];
+    private double[] accelerations = new double[0];
+
+    /**
+     * Centers of the objects at the start of a step that is integrated in
+     * parts, see {@link #saveStepStart(PhysicalObject[], int)}.
+     */
+    private double[] stepStartPositions = new double[0];
+
+    /**
+     * Arrays handed out by {@link #getScratchArray(int)}, reused between
+     * steps.
+     */
+    private double[][] scratchArrays = new double[0][];
+
+    /**
+     * Whether the forces last calculated are those at the end of the last
+     * step, see {@link #keepForces()}.
+     */
+    private boolean hasEndForces;
+
+    /**
+     * Sum of the {@link PhysicalObject#getChangeCount() change counts} of all
+     * objects at the end of the last step.
+     */
+    private long endChangeCount;
+
+    IntegrationContext(Force force, MultipleMaterialWorldView world, ForceEvaluator forceEvaluator, int dimension,
+            @Nullable ObjectColumns columns) {
+        this.force = force;
+        this.world = world;
+        this.forceEvaluator = forceEvaluator;
+        this.dimension = dimension;
+        this.columns = columns;
+    }
+
+    /**
+     * Changes the velocities of all objects as if the given forces pushed
+     * them for the given time, without moving the objects. Used for forces
+     * that are {@link WorldBuilder#withSlowForce(Force) calculated less often}
+     * than the others.
+     *
+     * @param objects
+     *            The objects.
+     * @param objectCount
+     *            Amount of objects in the array to use.
+     * @param forces
+     *            The forces, already calculated.
+     * @param time
+     *            The time.
+     */
+    void applyImpulses(PhysicalObject[] objects, int objectCount, ForceEvaluator forces, double time) {
+        readStates(objects, objectCount);
+        for (int i = 0; i < objectCount; i++) {
+            double invertedMass = objects[i].getInvertedMass();
+            for (int axis = 0; axis < dimension; axis++) {
+                velocities[i * dimension + axis] += forces.getForce(i, axis) * invertedMass * time;
+            }
+        }
+        replaceStates(positions, positions, velocities, 0);
+        hasEndForces = false;
+    }
+
+    /**
+     * Prepares a new step. The forces must already have been calculated for
+     * the current state of the objects.
+     *
+     * @param objects
+     *            The objects.
+     * @param objectCount
+     *            Amount of objects in the array to use.
+     * @param deltaTime
+     *            Length of the step.
+     */
+    void begin(PhysicalObject[] objects, int objectCount, double deltaTime) {
+        readStates(objects, objectCount);
+        this.deltaTime = deltaTime;
+        readAccelerations(accelerations);
+    }
+
+    /**
+     * Calculates the accelerations of all objects as if they had the given
+     * positions and velocities. The objects are placed in that state while
+     * the forces are calculated; they stay there until the next call to this
+     * method or to {@link #finish(double[], double[])}.
+     *
+     * @param positions
+     *            The positions.
+     * @param velocities
+     *            The velocities.
+     * @param result
+     *            The accelerations are written here.
+     */
+    void calculateAccelerations(double[] positions, double[] velocities, double[] result) {
+        replaceStates(positions, positions, velocities, 0);
+        hasEndForces = false;
+        force.prepare(world);
+        forceEvaluator.calculateAll();
+        readAccelerations(result);
+    }
+
+    /**
+     * Moves all objects to the state at the end of the step. The objects
+     * remember the positions at the start of the step, see
+     * {@link #getPositions()}.
+     *
+     * @param positions
+     *            The positions.
+     * @param velocities
+     *            The velocities.
+     */
+    void finish(double[] positions, double[] velocities) {
+        replaceStates(this.positions, positions, velocities, deltaTime);
+    }
+
+    /**
+     * Forgets the forces kept by {@link #keepForces()}, because objects were
+     * added or removed.
+     */
+    void forgetForces() {
+        hasEndForces = false;
+    }
+
+    /**
+     * Gets the accelerations at the start of the step.
+     *
+     * @return The accelerations. Must not be modified.
+     */
+    double[] getAccelerations() {
+        return accelerations;
+    }
+
+    /**
+     * Gets the length of the step.
+     *
+     * @return The length.
+     */
+    double getDeltaTime() {
+        return deltaTime;
+    }
+
+    /**
+     * Gets the amount of values in the state arrays that are in use: the
+     * amount of objects times the dimension.
+     *
+     * @return The length.
+     */
+    int getLength() {
+        return objectCount * dimension;
+    }
+
+    /**
+     * Gets the positions at the start of the step.
+     *
+     * @return The positions. Must not be modified.
+     */
+    double[] getPositions() {
+        return positions;
+    }
+
+    /**
+     * Gets an array that the integrator can use to store intermediate
+     * results. The contents are undefined.
+     *
+     * @param number
+     *            Number of the array, starting at 0. Every number gives a
+     *            different array.
+     * @return The array, with at least {@link #getLength()} elements.
+     */
+    double[] getScratchArray(int number) {
+        if (scratchArrays.length <= number) {
+            scratchArrays = Arrays.copyOf(scratchArrays, number + 1);
+        }
+        double[] array = scratchArrays[number];
+        if (array == null || array.length < getLength()) {
+            array = new double[positions.length];
+            scratchArrays[number] = array;
+        }
+        return array;
+    }
+
+    /**
+     * Gets the velocities at the start of the step.
+     *
+     * @return The velocities. Must not be modified.
+     */
+    double[] getVelocities() {
+        return velocities;
+    }
+
+    /**
+     * Checks whether the forces kept by {@link #keepForces()} can be used for
+     * the next step, so that they don't need to be calculated again. This is
+     * the case if no object was added, removed, moved or given a new velocity
+     * since.
+     *
+     * @return True if the forces can be used.
+     */
+    boolean hasForces() {
+        return hasEndForces && getChangeCount() == endChangeCount;
+    }
+
+    /**
+     * Advances all objects using symplectic Euler. This is done directly on
+     * the objects, without copying their state into arrays.
+     *
+     * @param deltaTime
+     *            Length of the step.
+     */
+    void integrateSymplecticEuler(PhysicalObject[] objects, int objectCount, double deltaTime) {
+        ObjectColumns columns = this.columns;
+        if (columns == null) {
+            for (int i = 0; i < objectCount; i++) {
+                if (!objects[i].isSleeping()) {
+                    objects[i].integrate(deltaTime, forceEvaluator.getForce(i));
+                }
+            }
+            for (int i = 0; i < objectCount; i++) {
+                if (!objects[i].isSleeping()) {
+                    objects[i].commit();
+                }
+            }
+        } else {
+            columns.integrate(deltaTime, forceEvaluator);
+            columns.commit();
+        }
+    }
+
+    /**
+     * Keeps the forces calculated by the last call to
+     * {@link #calculateAccelerations(double[], double[], double[])} as the
+     * forces at the start of the next step. Must be called after
+     * {@link #finish(double[], double[])}, and only if the forces were
+     * calculated at the final positions.
+     */
+    void keepForces() {
+        hasEndForces = true;
+        endChangeCount = getChangeCount();
+    }
+
+    /**
+     * Makes all objects remember the positions saved by
+     * {@link #saveStepStart(PhysicalObject[], int)} as the start of the step,
+     * instead of the start of the last part of the step. Their positions and
+     * velocities don't change.
+     *
+     * @param deltaTime
+     *            Length of the whole step.
+     */
+    void restoreStepStart(double deltaTime) {
+        readStates(objects, objectCount);
+        replaceStates(stepStartPositions, positions, velocities, deltaTime);
+    }
+
+    /**
+     * Saves the positions of all objects at the start of a step that is
+     * integrated in parts: with {@link WorldBuilder#withSlowForce(Force) slow
+     * forces} or {@link WorldBuilder#withMultipleTimeSteps(int) multiple time
+     * steps}. Every part starts a new step for the objects, so afterwards
+     * {@link #restoreStepStart(double)} must be called to make the objects
+     * remember where the whole step started. Otherwise, fast objects would
+     * only be checked for collisions along the path of the last part.
+     *
+     * @param objects
+     *            The objects.
+     * @param objectCount
+     *            Amount of objects in the array to use.
+     */
+    void saveStepStart(PhysicalObject[] objects, int objectCount) {
+        readStates(objects, objectCount);
+        if (stepStartPositions.length < positions.length) {
+            stepStartPositions = new double[positions.length];
+        }
+        System.arraycopy(positions, 0, stepStartPositions, 0, getLength());
+    }
+
+    private long getChangeCount() {
+        long changeCount = 0;
+        for (int i = 0; i < objectCount; i++) {
+            changeCount += objects[i].getChangeCount();
+        }
+        return changeCount;
+    }
+
+    private void readAccelerations(double[] result) {
+        for (int i = 0; i < objectCount; i++) {
+            double invertedMass = objects[i].getInvertedMass();
+            for (int axis = 0; axis < dimension; axis++) {
+                result[i * dimension + axis] = forceEvaluator.getForce(i, axis) * invertedMass;
+            }
+        }
+    }
+
+    private void readStates(PhysicalObject[] objects, int objectCount) {
+        this.objects = objects;
+        this.objectCount = objectCount;
+        int length = getLength();
+        if (positions.length < length) {
+            positions = new double[length];
+            velocities = new double[length];
+            accelerations = new double[length];
+        }
+        for (int i = 0; i < objectCount; i++) {
+            objects[i].readState(positions, velocities, i * dimension);
+        }
+    }
+
+    private void replaceStates(double[] startPositions, double[] positions, double[] velocities, double deltaTime) {
+        for (int i = 0; i < objectCount; i++) {
+            if (!objects[i].isSleeping()) {
+                objects[i].replaceState(startPositions, positions, velocities, i * dimension, deltaTime);
+            }
+        }
+        world.increaseVersion();
+    }
+}
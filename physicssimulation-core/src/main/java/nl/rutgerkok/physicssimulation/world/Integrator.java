@@ -0,0 +1,142 @@
+package nl.rutgerkok.physicssimulation.world;
+
+/**
+ * Method used to calculate the new positions and velocities of the objects
+ * from the forces on them.
+ *
+ * <p>
+ * Methods that calculate the forces more than once per step are more
+ * accurate, so that larger time steps can be used for the same accuracy. They
+ * place all objects in an intermediate state, and then calculate the forces
+ * again, including {@link Force#prepare(WorldView) preparing} them. The
+ * world should therefore not be read from other threads during the
+ * {@link StepPhase#INTEGRATION integration}.
+ * </p>
+ *
+ * @see WorldBuilder#withIntegrator(Integrator)
+ */
+public enum Integrator {
+    /**
+     * First calculates the new velocity from the force at the start of the
+     * step, then the new position from the new velocity. Calculates the forces
+     * once per step. The energy in the world stays close to the real value
+     * over time, but positions and velocities are only first-order accurate.
+     * This is the default.
+     */
+    SYMPLECTIC_EULER {
+        @Override
+        void integrate(IntegrationContext context, PhysicalObject[] objects, int objectCount, double deltaTime) {
+            context.integrateSymplecticEuler(objects, objectCount, deltaTime);
+        }
+    },
+    /**
+     * Moves the objects using their velocity and acceleration at the start of
+     * the step, then calculates the velocity from the average of the
+     * accelerations at the start and at the end of the step. Second-order
+     * accurate, and just like {@link #SYMPLECTIC_EULER} the energy doesn't
+     * drift away over time.
+     *
+     * <p>
+     * The forces at the end of the step are reused at the start of the next
+     * step, so the forces are calculated once per step, just like for
+     * {@link #SYMPLECTIC_EULER}. Only when a {@link Supervisor} moved an object
+     * or changed its velocity, or when objects were spawned or despawned, the
+     * forces are calculated twice. Forces that depend on the velocity are
+     * calculated with an estimate of the velocity at the end of the step.
+     * </p>
+     */
+    VELOCITY_VERLET {
+        @Override
+        void integrate(IntegrationContext context, PhysicalObject[] objects, int objectCount, double deltaTime) {
+            context.begin(objects, objectCount, deltaTime);
+            double[] positions = context.getPositions();
+            double[] velocities = context.getVelocities();
+            double[] accelerations = context.getAccelerations();
+            double[] newPositions = context.getScratchArray(0);
+            double[] newVelocities = context.getScratchArray(1);
+            double[] newAccelerations = context.getScratchArray(2);
+            int length = context.getLength();
+
+            for (int i = 0; i < length; i++) {
+                newPositions[i] = positions[i] + velocities[i] * deltaTime
+                        + 0.5 * accelerations[i] * deltaTime * deltaTime;
+                // Estimate, for forces that depend on the velocity
+                newVelocities[i] = velocities[i] + accelerations[i] * deltaTime;
+            }
+            context.calculateAccelerations(newPositions, newVelocities, newAccelerations);
+            for (int i = 0; i < length; i++) {
+                newVelocities[i] = velocities[i] + 0.5 * (accelerations[i] + newAccelerations[i]) * deltaTime;
+            }
+            context.finish(newPositions, newVelocities);
+            context.keepForces();
+        }
+    },
+    /**
+     * The classic fourth-order Runge-Kutta method. Calculates the forces four
+     * times per step. Very accurate for small time steps, but the energy in
+     * the world slowly drifts away over long simulations.
+     */
+    RK4 {
+        @Override
+        void integrate(IntegrationContext context, PhysicalObject[] objects, int objectCount, double deltaTime) {
+            context.begin(objects, objectCount, deltaTime);
+            double[] positions = context.getPositions();
+            double[] velocities = context.getVelocities();
+            double[] accelerations = context.getAccelerations();
+            int length = context.getLength();
+
+            // Sums of the weighted slopes
+            double[] positionSum = context.getScratchArray(0);
+            double[] velocitySum = context.getScratchArray(1);
+            // State at which the next slope is calculated
+            double[] stagePositions = context.getScratchArray(2);
+            double[] stageVelocities = context.getScratchArray(3);
+            double[] stageAccelerations = context.getScratchArray(4);
+
+            for (int i = 0; i < length; i++) {
+                positionSum[i] = velocities[i];
+                velocitySum[i] = accelerations[i];
+                stagePositions[i] = positions[i] + 0.5 * deltaTime * velocities[i];
+                stageVelocities[i] = velocities[i] + 0.5 * deltaTime * accelerations[i];
+            }
+            context.calculateAccelerations(stagePositions, stageVelocities, stageAccelerations);
+            for (int i = 0; i < length; i++) {
+                positionSum[i] += 2 * stageVelocities[i];
+                velocitySum[i] += 2 * stageAccelerations[i];
+                stagePositions[i] = positions[i] + 0.5 * deltaTime * stageVelocities[i];
+                stageVelocities[i] = velocities[i] + 0.5 * deltaTime * stageAccelerations[i];
+            }
+            context.calculateAccelerations(stagePositions, stageVelocities, stageAccelerations);
+            for (int i = 0; i < length; i++) {
+                positionSum[i] += 2 * stageVelocities[i];
+                velocitySum[i] += 2 * stageAccelerations[i];
+                stagePositions[i] = positions[i] + deltaTime * stageVelocities[i];
+                stageVelocities[i] = velocities[i] + deltaTime * stageAccelerations[i];
+            }
+            context.calculateAccelerations(stagePositions, stageVelocities, stageAccelerations);
+            for (int i = 0; i < length; i++) {
+                positionSum[i] += stageVelocities[i];
+                velocitySum[i] += stageAccelerations[i];
+                stagePositions[i] = positions[i] + deltaTime / 6 * positionSum[i];
+                stageVelocities[i] = velocities[i] + deltaTime / 6 * velocitySum[i];
+            }
+            context.finish(stagePositions, stageVelocities);
+        }
+    };
+
+    /**
+     * Advances all objects by the given time. The forces on the objects have
+     * already been calculated for the state at the start of the step.
+     *
+     * @param context
+     *            Access to the objects and the forces.
+     * @param objects
+     *            The objects.
+     * @param objectCount
+     *            Amount of objects in the array to use.
+     * @param deltaTime
+     *            Length of the step.
+     */
+    abstract void integrate(IntegrationContext context, PhysicalObject[] objects, int objectCount,
+            double deltaTime);
+}
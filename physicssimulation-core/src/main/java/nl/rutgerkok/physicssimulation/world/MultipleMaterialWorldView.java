@@ -1,18 +1,15 @@
 package nl.rutgerkok.physicssimulation.world;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.EnumMap;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
 
-import nl.rutgerkok.physicssimulation.MultipleIterator;
 import nl.rutgerkok.physicssimulation.shape.Material;
 import nl.rutgerkok.physicssimulation.vector.Vector;
 
@@ -21,23 +18,62 @@ import org.eclipse.jdt.annotation.Nullable;
 /**
  * A view of all objects in the world.
  *
+ * <p>
+ * The objects are grouped by their material. For every combination of
+ * materials, the view filtered on those materials is a single array with the
+ * objects of all those materials. These views are created the first time they
+ * are requested, and after that they are reused. So filtering doesn't create
+ * any objects, and iterating over a filtered view is as fast as iterating over
+ * an array.
+ * </p>
+ *
+ * <p>
+ * When objects are spawned or despawned, only the groups of the affected
+ * materials are rebuilt, and only the views containing those materials are
+ * thrown away. Views that were handed out earlier are not changed.
+ * </p>
+ *
  */
 class MultipleMaterialWorldView implements WorldView {
 
-    private class SingleMaterialWorldView implements WorldView {
+    /**
+     * The objects of some materials, stored in a single array.
+     */
+    private class MaterialSetView implements WorldView {
 
         private final PhysicalObject[] objects;
-        private final Material material;
 
-        SingleMaterialWorldView(Material material, List<PhysicalObject> objects) {
-            this.material = Objects.requireNonNull(material);
-            this.objects = objects.toArray(new PhysicalObject[0]);
+        /**
+         * The objects grouped by material, at the moment this view was
+         * created.
+         */
+        private final PhysicalObject[][] objectsByMaterial;
+
+        /**
+         * Bit i is set if the objects of the material with ordinal i are
+         * included.
+         */
+        private final int materials;
+
+        MaterialSetView(int materials, PhysicalObject[] objects, PhysicalObject[][] objectsByMaterial) {
+            this.materials = materials;
+            this.objects = Objects.requireNonNull(objects);
+            this.objectsByMaterial = objectsByMaterial;
         }
 
         @Override
-        public boolean contains(@Nullable Object object) {
-            for (PhysicalObject compareWith : objects) {
-                if (compareWith.equals(object)) {
+        public boolean contains(@Nullable Object o) {
+            if (!(o instanceof PhysicalObject)) {
+                return false;
+            }
+            Material material = ((PhysicalObject) o).getMaterial();
+            if ((materials & (1 << material.ordinal())) == 0) {
+                return false;
+            }
+
+            // Only look in the relevant bucket
+            for (PhysicalObject compareWith : objectsByMaterial[material.ordinal()]) {
+                if (compareWith.equals(o)) {
                     return true;
                 }
             }
@@ -46,18 +82,36 @@ class MultipleMaterialWorldView implements WorldView {
 
         @Override
         public WorldView filterOnMaterial(Material material) {
-            if (material == this.material) {
-                return this;
-            }
-            return emptyWorldView;
+            return getView(materials & (1 << material.ordinal()));
         }
 
         @Override
         public WorldView filterOnMaterials(Set<Material> materials) {
-            if (materials.contains(this.material)) {
-                return this;
+            return getView(this.materials & toMask(materials));
+        }
+
+        @Override
+        public void forEach(Consumer<? super PhysicalObject> action) {
+            for (PhysicalObject object : objects) {
+                action.accept(object);
             }
-            return emptyWorldView;
+        }
+
+        @Override
+        public void forEachIndexed(ObjIntConsumer<PhysicalObject> action) {
+            for (int i = 0; i < objects.length; i++) {
+                action.accept(objects[i], i);
+            }
+        }
+
+        @Override
+        public PhysicalObject get(int index) {
+            return objects[index];
+        }
+
+        @Override
+        public long getVersion() {
+            return version;
         }
 
         @Override
@@ -95,43 +149,36 @@ class MultipleMaterialWorldView implements WorldView {
 
     }
 
-    private final WorldView emptyWorldView = new WorldView() {
+    private static final int ALL_MATERIALS = (1 << Material.values().length) - 1;
 
-        @Override
-        public boolean contains(@Nullable Object o) {
-            return false;
-        }
-
-        @Override
-        public WorldView filterOnMaterial(Material material) {
-            return this;
-        }
-
-        @Override
-        public WorldView filterOnMaterials(Set<Material> materials) {
-            return this;
+    private static int toMask(Set<Material> materials) {
+        int mask = 0;
+        for (Material material : materials) {
+            mask |= 1 << material.ordinal();
         }
+        return mask;
+    }
 
-        @Override
-        public Vector getZeroVector() {
-            return zero;
-        }
+    /**
+     * All objects, grouped by the ordinal of their material.
+     */
+    private final PhysicalObject[][] objectsByMaterial;
 
-        @Override
-        public Iterator<PhysicalObject> iterator() {
-            return Collections.emptyIterator();
-        }
+    /**
+     * Views of the objects of every combination of materials, indexed by a bit
+     * mask of the ordinals of the materials. Views are created when first
+     * requested. Multiple threads may create the same view at the same time,
+     * but that is harmless: the views are immutable.
+     */
+    private final @Nullable MaterialSetView[] views;
 
-        @Override
-        public int size() {
-            return 0;
-        }
-    };
+    private MaterialSetView allObjects;
 
     /**
-     * All objects, grouped by their material.
+     * Increased every time the objects move, or are added or removed. Shared
+     * with all views.
      */
-    private final Map<Material, WorldView> objects;
+    private volatile long version;
 
     /**
      * The zero vector in the correct dimension.
@@ -141,52 +188,79 @@ class MultipleMaterialWorldView implements WorldView {
     MultipleMaterialWorldView(Vector zero, Collection<PhysicalObject> objects) {
         this.zero = Objects.requireNonNull(zero);
 
-        Map<Material, List<PhysicalObject>> groupedObjects = objects.stream()
-                .collect(Collectors.groupingBy(
-                        PhysicalObject::getMaterial,
-                        () -> new EnumMap<>(Material.class),
-                        Collectors.toList()));
-        this.objects = new HashMap<>();
-        groupedObjects.forEach((material, objectsWithMaterial) -> {
-            this.objects.put(material, new SingleMaterialWorldView(material, objectsWithMaterial));
-        });
-    }
+        Material[] materials = Material.values();
+        List<List<PhysicalObject>> groupedObjects = new ArrayList<>(materials.length);
+        for (int i = 0; i < materials.length; i++) {
+            groupedObjects.add(new ArrayList<>());
+        }
+        for (PhysicalObject object : objects) {
+            groupedObjects.get(object.getMaterial().ordinal()).add(object);
+        }
+        this.objectsByMaterial = new PhysicalObject[materials.length][];
+        for (int i = 0; i < materials.length; i++) {
+            this.objectsByMaterial[i] = groupedObjects.get(i).toArray(new PhysicalObject[0]);
+        }
 
-    private MultipleMaterialWorldView(Vector zero, Map<Material, WorldView> objects) {
-        this.zero = Objects.requireNonNull(zero);
-        this.objects = Objects.requireNonNull(objects);
+        this.views = new MaterialSetView[ALL_MATERIALS + 1];
+        this.allObjects = getView(ALL_MATERIALS);
     }
 
     @Override
     public boolean contains(@Nullable Object o) {
-        if (!(o instanceof PhysicalObject)) {
-            return false;
-        }
-        PhysicalObject object = (PhysicalObject) o;
-        Material material = object.getMaterial();
-
-        // Only look in the relevant bucket
-        return filterOnMaterial(material).contains(object);
+        return allObjects.contains(o);
     }
 
     @Override
     public WorldView filterOnMaterial(Material material) {
-        return this.objects.getOrDefault(material, emptyWorldView);
+        return getView(1 << material.ordinal());
     }
 
     @Override
     public WorldView filterOnMaterials(Set<Material> materials) {
-        Map<Material, WorldView> result = new EnumMap<>(Material.class);
-        objects.forEach((material, objects) -> {
-            if (materials.contains(material)) {
-                // Include this subset
-                result.put(material, objects);
+        return getView(toMask(materials));
+    }
+
+    @Override
+    public void forEach(Consumer<? super PhysicalObject> action) {
+        allObjects.forEach(action);
+    }
+
+    @Override
+    public void forEachIndexed(ObjIntConsumer<PhysicalObject> action) {
+        allObjects.forEachIndexed(action);
+    }
+
+    @Override
+    public PhysicalObject get(int index) {
+        return allObjects.get(index);
+    }
+
+    private MaterialSetView getView(int materials) {
+        MaterialSetView view = views[materials];
+        if (view == null) {
+            int size = 0;
+            for (int i = 0; i < objectsByMaterial.length; i++) {
+                if ((materials & (1 << i)) != 0) {
+                    size += objectsByMaterial[i].length;
+                }
             }
-        });
-        if (result.isEmpty()) {
-            return emptyWorldView;
+            PhysicalObject[] objects = new PhysicalObject[size];
+            int position = 0;
+            for (int i = 0; i < objectsByMaterial.length; i++) {
+                if ((materials & (1 << i)) != 0) {
+                    System.arraycopy(objectsByMaterial[i], 0, objects, position, objectsByMaterial[i].length);
+                    position += objectsByMaterial[i].length;
+                }
+            }
+            view = new MaterialSetView(materials, objects, objectsByMaterial.clone());
+            views[materials] = view;
         }
-        return new MultipleMaterialWorldView(zero, result);
+        return view;
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
     }
 
     @Override
@@ -194,14 +268,70 @@ class MultipleMaterialWorldView implements WorldView {
         return zero;
     }
 
+    /**
+     * Called after the objects have moved, so that the
+     * {@link #getVersion() version} changes.
+     */
+    void increaseVersion() {
+        version++;
+    }
+
     @Override
     public Iterator<PhysicalObject> iterator() {
-        return new MultipleIterator<>(objects.values());
+        return allObjects.iterator();
     }
 
     @Override
     public int size() {
-        return objects.values().stream().mapToInt(WorldView::size).sum();
+        return allObjects.size();
+    }
+
+    /**
+     * Adds and removes objects.
+     *
+     * @param added
+     *            The objects to add, after all existing objects of the same
+     *            material.
+     * @param removed
+     *            The objects to remove.
+     */
+    void update(List<PhysicalObject> added, Set<PhysicalObject> removed) {
+        int changedMaterials = 0;
+        for (PhysicalObject object : added) {
+            changedMaterials |= 1 << object.getMaterial().ordinal();
+        }
+        for (PhysicalObject object : removed) {
+            changedMaterials |= 1 << object.getMaterial().ordinal();
+        }
+        if (changedMaterials == 0) {
+            return;
+        }
+
+        for (int i = 0; i < objectsByMaterial.length; i++) {
+            if ((changedMaterials & (1 << i)) == 0) {
+                continue;
+            }
+            List<PhysicalObject> objects = new ArrayList<>(objectsByMaterial[i].length);
+            for (PhysicalObject object : objectsByMaterial[i]) {
+                if (!removed.contains(object)) {
+                    objects.add(object);
+                }
+            }
+            for (PhysicalObject object : added) {
+                if (object.getMaterial().ordinal() == i) {
+                    objects.add(object);
+                }
+            }
+            objectsByMaterial[i] = objects.toArray(new PhysicalObject[objects.size()]);
+        }
+
+        for (int materials = 0; materials < views.length; materials++) {
+            if ((materials & changedMaterials) != 0) {
+                views[materials] = null;
+            }
+        }
+        allObjects = getView(ALL_MATERIALS);
+        increaseVersion();
     }
 
 }
@@ -0,0 +1,418 @@
+package nl.rutgerkok.physicssimulation.world;
+
+import static nl.rutgerkok.physicssimulation.vector.Vector.vec2;
+import static nl.rutgerkok.physicssimulation.vector.Vector.vec3;
+
+import java.util.Arrays;
+
+import nl.rutgerkok.physicssimulation.shape.Shape;
+import nl.rutgerkok.physicssimulation.vector.MutableVector;
+import nl.rutgerkok.physicssimulation.vector.Vector;
+
+/**
+ * Stores the state of all objects in a simulation in arrays of doubles, one
+ * array for every property. The values of object i along axis a are stored at
+ * index {@code i * dimension + a}.
+ *
+ * <p>
+ * Advancing the objects only writes to these arrays, so no objects are
+ * created, as long as the forces can
+ * {@link Force#calculate(PhysicalObject, WorldView, MutableVector) write into
+ * a mutable vector}. {@link PhysicalObject#getShape() Shapes} and
+ * {@link PhysicalObject#getVelocity() velocities} are only created when they
+ * are requested, and are then cached until the object changes again.
+ * </p>
+ *
+ * @see WorldBuilder#withColumnarStorage()
+ */
+final class ObjectColumns {
+
+    private final int dimension;
+    private PhysicalObject[] objects;
+    private int size;
+
+    /**
+     * Centers of the objects, as predicted at the start of the step.
+     */
+    private double[] positions;
+
+    /**
+     * Centers of the objects at the start of the step.
+     */
+    private double[] previousPositions;
+    private double[] velocities;
+
+    /**
+     * The next positions and velocities are written here during
+     * {@link #integrate(double, ForceEvaluator)}, so that the current state
+     * stays readable until {@link #commit()}.
+     */
+    private double[] nextPositions;
+    private double[] nextVelocities;
+
+    /**
+     * Half of the size of the bounding box of each object.
+     */
+    private double[] extents;
+    private double[] invertedMasses;
+
+    /**
+     * Set when the velocity of an object was replaced. The position is then
+     * recalculated at the start of the next step.
+     */
+    private boolean[] isPositionOutdated;
+
+    private double deltaTime;
+
+    /**
+     * Creates the columns, and moves the state of the objects into them.
+     *
+     * @param zero
+     *            The zero vector, for the dimension of the world.
+     * @param objects
+     *            The objects.
+     * @throws IllegalStateException
+     *             If one of the objects is already stored in other columns.
+     */
+    ObjectColumns(Vector zero, PhysicalObject[] objects) {
+        this.dimension = zero.getDimension();
+
+        int capacity = objects.length;
+        this.objects = new PhysicalObject[capacity];
+        this.positions = new double[capacity * dimension];
+        this.previousPositions = new double[capacity * dimension];
+        this.velocities = new double[capacity * dimension];
+        this.nextPositions = new double[capacity * dimension];
+        this.nextVelocities = new double[capacity * dimension];
+        this.extents = new double[capacity * dimension];
+        this.invertedMasses = new double[capacity];
+        this.isPositionOutdated = new boolean[capacity];
+
+        for (PhysicalObject object : objects) {
+            add(object);
+        }
+    }
+
+    /**
+     * Moves the state of the object into these columns, after all other
+     * objects.
+     *
+     * @param object
+     *            The object.
+     * @throws IllegalStateException
+     *             If the object is already stored in other columns.
+     */
+    void add(PhysicalObject object) {
+        if (size == objects.length) {
+            grow();
+        }
+        int i = size;
+        Shape shape = object.getShape();
+        Vector center = shape.getCenter();
+        Vector velocity = object.getVelocity();
+        for (int axis = 0; axis < dimension; axis++) {
+            positions[i * dimension + axis] = center.getCoord(axis);
+            previousPositions[i * dimension + axis] = center.getCoord(axis);
+            velocities[i * dimension + axis] = velocity.getCoord(axis);
+            extents[i * dimension + axis] = shape.getExtent(axis);
+        }
+        invertedMasses[i] = object.getInvertedMass();
+        isPositionOutdated[i] = false;
+        object.attachTo(this, i);
+        objects[i] = object;
+        size++;
+    }
+
+    /**
+     * Makes the state calculated by {@link #integrate(double, ForceEvaluator)}
+     * the current state, by swapping the buffers.
+     */
+    void commit() {
+        double[] positions = this.positions;
+        this.positions = nextPositions;
+        this.nextPositions = positions;
+
+        double[] velocities = this.velocities;
+        this.velocities = nextVelocities;
+        this.nextVelocities = velocities;
+
+        for (int i = 0; i < size; i++) {
+            objects[i].clearCache();
+        }
+    }
+
+    private void copy(int from, int to) {
+        objects[to] = objects[from];
+        System.arraycopy(positions, from * dimension, positions, to * dimension, dimension);
+        System.arraycopy(previousPositions, from * dimension, previousPositions, to * dimension, dimension);
+        System.arraycopy(velocities, from * dimension, velocities, to * dimension, dimension);
+        System.arraycopy(extents, from * dimension, extents, to * dimension, dimension);
+        invertedMasses[to] = invertedMasses[from];
+        isPositionOutdated[to] = isPositionOutdated[from];
+    }
+
+    /**
+     * Calculates the next state of all objects using symplectic Euler, just
+     * like {@link PhysicalObject#integrate(double, Vector)}. The current state
+     * is not changed until {@link #commit()} is called.
+     *
+     * @param deltaTime
+     *            The time step.
+     * @param forces
+     *            The forces on all objects, in the same order as the objects
+     *            in these columns.
+     */
+    void integrate(double deltaTime, ForceEvaluator forces) {
+        for (int i = 0; i < size; i++) {
+            double invertedMass = invertedMasses[i];
+            int start = i * dimension;
+            if (objects[i].isSleeping()) {
+                // Stays where it is
+                System.arraycopy(positions, start, nextPositions, start, dimension);
+                System.arraycopy(velocities, start, nextVelocities, start, dimension);
+                continue;
+            }
+            for (int axis = start; axis < start + dimension; axis++) {
+                if (isPositionOutdated[i]) {
+                    // Velocity was replaced, so recalculate the position
+                    previousPositions[axis] = previousPositions[axis] + velocities[axis] * this.deltaTime;
+                } else {
+                    previousPositions[axis] = positions[axis];
+                }
+                nextVelocities[axis] = velocities[axis] + forces.getForce(i, axis - start) * invertedMass * deltaTime;
+                nextPositions[axis] = previousPositions[axis] + nextVelocities[axis] * deltaTime;
+            }
+            isPositionOutdated[i] = false;
+        }
+        this.deltaTime = deltaTime;
+    }
+
+    /**
+     * Gets the center of an object along the given axis.
+     *
+     * @param index
+     *            Index of the object.
+     * @param axis
+     *            The axis.
+     * @return The center.
+     */
+    double getCenterCoord(int index, int axis) {
+        checkAxis(axis);
+        return positions[index * dimension + axis];
+    }
+
+    /**
+     * Gets the center of an object along the given axis at the start of the
+     * current step.
+     *
+     * @param index
+     *            Index of the object.
+     * @param axis
+     *            The axis.
+     * @return The center.
+     */
+    double getPreviousCenterCoord(int index, int axis) {
+        checkAxis(axis);
+        return previousPositions[index * dimension + axis];
+    }
+
+    /**
+     * Gets half the size of the bounding box of an object along the given
+     * axis.
+     *
+     * @param index
+     *            Index of the object.
+     * @param axis
+     *            The axis.
+     * @return Half of the size.
+     */
+    double getExtent(int index, int axis) {
+        checkAxis(axis);
+        return extents[index * dimension + axis];
+    }
+
+    private void grow() {
+        resize(Math.max(16, objects.length * 2));
+    }
+
+    private void resize(int capacity) {
+        objects = Arrays.copyOf(objects, capacity);
+        positions = Arrays.copyOf(positions, capacity * dimension);
+        previousPositions = Arrays.copyOf(previousPositions, capacity * dimension);
+        velocities = Arrays.copyOf(velocities, capacity * dimension);
+        nextPositions = Arrays.copyOf(nextPositions, capacity * dimension);
+        nextVelocities = Arrays.copyOf(nextVelocities, capacity * dimension);
+        extents = Arrays.copyOf(extents, capacity * dimension);
+        invertedMasses = Arrays.copyOf(invertedMasses, capacity);
+        isPositionOutdated = Arrays.copyOf(isPositionOutdated, capacity);
+    }
+
+    private void checkAxis(int axis) {
+        if (axis < 0 || axis >= dimension) {
+            throw new IllegalArgumentException("Invalid axis: " + axis);
+        }
+    }
+
+    /**
+     * Creates the current shape of an object.
+     *
+     * @param index
+     *            Index of the object.
+     * @param template
+     *            The shape of the object at any earlier moment.
+     * @return The current shape.
+     */
+    Shape createShape(int index, Shape template) {
+        Vector templateCenter = template.getCenter();
+        int start = index * dimension;
+        if (dimension == 2) {
+            return template.moved(vec2(positions[start] - templateCenter.getCoord(0),
+                    positions[start + 1] - templateCenter.getCoord(1)));
+        }
+        return template.moved(vec3(positions[start] - templateCenter.getCoord(0),
+                positions[start + 1] - templateCenter.getCoord(1),
+                positions[start + 2] - templateCenter.getCoord(2)));
+    }
+
+    /**
+     * Creates the current velocity of an object.
+     *
+     * @param index
+     *            Index of the object.
+     * @return The velocity.
+     */
+    Vector createVelocity(int index) {
+        int start = index * dimension;
+        if (dimension == 2) {
+            return vec2(velocities[start], velocities[start + 1]);
+        }
+        return vec3(velocities[start], velocities[start + 1], velocities[start + 2]);
+    }
+
+    /**
+     * Moves an object, without changing its velocity.
+     *
+     * @param index
+     *            Index of the object.
+     * @param offset
+     *            How much to move.
+     */
+    void move(int index, Vector offset) {
+        if (offset.getDimension() != dimension) {
+            throw new IllegalArgumentException("Dimension mismatch: " + offset + " for " + objects[index]);
+        }
+        for (int axis = 0; axis < dimension; axis++) {
+            positions[index * dimension + axis] += offset.getCoord(axis);
+            previousPositions[index * dimension + axis] += offset.getCoord(axis);
+        }
+    }
+
+    /**
+     * Writes the center and velocity of an object at the start of the next
+     * step into the given arrays.
+     *
+     * @param index
+     *            Index of the object.
+     * @param positions
+     *            The center is written here.
+     * @param velocities
+     *            The velocity is written here.
+     * @param offset
+     *            Index of the x coordinate in both arrays.
+     */
+    void readState(int index, double[] positions, double[] velocities, int offset) {
+        int start = index * dimension;
+        for (int axis = 0; axis < dimension; axis++) {
+            if (isPositionOutdated[index]) {
+                // Velocity was replaced, so calculate the real position
+                positions[offset + axis] = previousPositions[start + axis] + this.velocities[start + axis] * deltaTime;
+            } else {
+                positions[offset + axis] = this.positions[start + axis];
+            }
+            velocities[offset + axis] = this.velocities[start + axis];
+        }
+    }
+
+    /**
+     * Removes an object from these columns, and moves its state back into the
+     * object itself. The last object is moved into the place of the removed
+     * object, just like {@code PhysicsSimulation} does with its own list of
+     * objects.
+     *
+     * @param index
+     *            Index of the object.
+     */
+    void remove(int index) {
+        PhysicalObject object = objects[index];
+        if (isPositionOutdated[index]) {
+            // Velocity was replaced, so calculate the real position
+            int start = index * dimension;
+            for (int axis = start; axis < start + dimension; axis++) {
+                positions[axis] = previousPositions[axis] + velocities[axis] * this.deltaTime;
+            }
+        }
+        object.detach(createShape(index, object.getShape()), createVelocity(index));
+
+        int last = size - 1;
+        if (index != last) {
+            copy(last, index);
+            objects[index].moveInColumns(index);
+        }
+        objects[last] = null;
+        size--;
+
+        if (objects.length > 16 && size < objects.length / 4) {
+            // Most objects are gone, so free up the memory
+            resize(Math.max(16, size * 2));
+        }
+    }
+
+    /**
+     * Places an object at the given center with the given velocity, like
+     * {@link PhysicalObject#replaceState(double[], double[], double[], int, double)}.
+     *
+     * @param index
+     *            Index of the object.
+     * @param startPositions
+     *            Array containing the center at the start of the step.
+     * @param positions
+     *            Array containing the center.
+     * @param velocities
+     *            Array containing the velocity.
+     * @param offset
+     *            Index of the x coordinate in all arrays.
+     * @param deltaTime
+     *            Length of the step, 0 for intermediate states.
+     */
+    void replaceState(int index, double[] startPositions, double[] positions, double[] velocities, int offset,
+            double deltaTime) {
+        int start = index * dimension;
+        for (int axis = 0; axis < dimension; axis++) {
+            this.positions[start + axis] = positions[offset + axis];
+            this.velocities[start + axis] = velocities[offset + axis];
+            previousPositions[start + axis] = startPositions[offset + axis];
+        }
+        isPositionOutdated[index] = false;
+        this.deltaTime = deltaTime;
+    }
+
+    /**
+     * Replaces the velocity of an object. Like for
+     * {@link PhysicalObject#replaceVelocity(Vector)}, the position is only
+     * recalculated at the start of the next step.
+     *
+     * @param index
+     *            Index of the object.
+     * @param velocity
+     *            The new velocity.
+     */
+    void replaceVelocity(int index, Vector velocity) {
+        if (velocity.getDimension() != dimension) {
+            throw new IllegalArgumentException("Dimension mismatch: " + velocity + " for " + objects[index]);
+        }
+        for (int axis = 0; axis < dimension; axis++) {
+            velocities[index * dimension + axis] = velocity.getCoord(axis);
+        }
+        isPositionOutdated[index] = true;
+    }
+}
@@ -0,0 +1,119 @@
+package nl.rutgerkok.physicssimulation.world;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import nl.rutgerkok.physicssimulation.shape.Material;
+import nl.rutgerkok.physicssimulation.shape.Shape;
+import nl.rutgerkok.physicssimulation.vector.Vector;
+
+/**
+ * Keeps objects that were {@link PhysicsSimulation#despawn(PhysicalObject)
+ * despawned}, so that they can be reused for new objects. Simulations that
+ * spawn and despawn lots of short-lived objects, like particles, then no
+ * longer need to create new objects all the time.
+ *
+ * <p>
+ * A reused object has a new shape, velocity and material, and a higher
+ * {@link PhysicalObject#getGeneration() generation}. Code that still refers to
+ * the object from before it was reused can use the generation to find out
+ * that its reference has become stale.
+ * </p>
+ *
+ * <p>
+ * Pools are not thread-safe.
+ * </p>
+ */
+public final class ObjectPool {
+
+    private final int maxSize;
+    private PhysicalObject[] free = new PhysicalObject[0];
+    private int size;
+
+    /**
+     * Creates a new, empty pool.
+     *
+     * @param maxSize
+     *            Maximum amount of objects to keep. Objects released to a
+     *            full pool are not kept.
+     * @throws IllegalArgumentException
+     *             If the maximum size is negative.
+     */
+    public ObjectPool(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Invalid max size: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Gets an object with the given properties. If the pool has an object
+     * available, that object is reused. Otherwise, a new object is created.
+     *
+     * @param shape
+     *            The shape of the object.
+     * @param velocity
+     *            The velocity of the object.
+     * @param material
+     *            The material of the object.
+     * @return The object.
+     * @see PhysicalObject#obj(Shape, Vector, Material)
+     */
+    public PhysicalObject obtain(Shape shape, Vector velocity, Material material) {
+        if (size == 0) {
+            return PhysicalObject.obj(shape, velocity, material);
+        }
+        PhysicalObject object = free[--size];
+        free[size] = null;
+        object.recycle(shape, velocity, material);
+        return object;
+    }
+
+    /**
+     * Makes an object available for reuse. The object must no longer be used
+     * by the caller.
+     *
+     * @param object
+     *            The object.
+     * @throws IllegalArgumentException
+     *             If the object is already waiting in a pool.
+     * @throws IllegalStateException
+     *             If the object is still in a simulation, or waiting to be
+     *             spawned in one. Note that despawned objects are only removed
+     *             at the start of the next step.
+     */
+    public void release(PhysicalObject object) {
+        Objects.requireNonNull(object, "object");
+        if (object.isInPool()) {
+            throw new IllegalArgumentException(object + " was already released");
+        }
+        if (object.isInSimulation()) {
+            throw new IllegalStateException(object + " is still in a simulation");
+        }
+        if (object.isSpawnPending()) {
+            throw new IllegalStateException(object + " is waiting to be spawned");
+        }
+        if (size == maxSize) {
+            return;
+        }
+        if (size == free.length) {
+            free = Arrays.copyOf(free, Math.min(maxSize, Math.max(16, free.length * 2)));
+        }
+        object.setInPool(true);
+        free[size++] = object;
+    }
+
+    /**
+     * Gets the amount of objects available for reuse.
+     *
+     * @return The amount.
+     */
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "ObjectPool(size=" + size + ", maxSize=" + maxSize + ")";
+    }
+}
@@ -0,0 +1,89 @@
+package nl.rutgerkok.physicssimulation.world;
+
+/**
+ * Keeps track of how much time was spent in each {@link StepPhase phase} of
+ * the steps of a simulation. The time of a phase includes the time of the
+ * {@link StepStage stages} that run after it.
+ *
+ * <p>
+ * Instances are not thread-safe.
+ * </p>
+ *
+ * @see PhysicsSimulation#advance(double, PhaseTimings)
+ */
+public final class PhaseTimings {
+
+    private final long[] nanos = new long[StepPhase.values().length];
+    private long steps;
+
+    /**
+     * Adds time to a phase.
+     *
+     * @param phase
+     *            The phase.
+     * @param nanos
+     *            The time, in nanoseconds.
+     */
+    void add(StepPhase phase, long nanos) {
+        this.nanos[phase.ordinal()] += nanos;
+    }
+
+    /**
+     * Increments the amount of measured steps.
+     */
+    void addStep() {
+        steps++;
+    }
+
+    /**
+     * Gets the total time spent in the given phase.
+     *
+     * @param phase
+     *            The phase.
+     * @return The time, in nanoseconds.
+     */
+    public long getNanos(StepPhase phase) {
+        return nanos[phase.ordinal()];
+    }
+
+    /**
+     * Gets the amount of steps that were measured.
+     *
+     * @return The amount of steps.
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * Gets the total time spent in all phases.
+     *
+     * @return The time, in nanoseconds.
+     */
+    public long getTotalNanos() {
+        long total = 0;
+        for (long phaseNanos : nanos) {
+            total += phaseNanos;
+        }
+        return total;
+    }
+
+    /**
+     * Sets all times and the amount of steps back to zero.
+     */
+    public void reset() {
+        for (int i = 0; i < nanos.length; i++) {
+            nanos[i] = 0;
+        }
+        steps = 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("PhaseTimings[steps=").append(steps);
+        for (StepPhase phase : StepPhase.values()) {
+            builder.append(", ").append(phase).append('=').append(nanos[phase.ordinal()]).append("ns");
+        }
+        return builder.append(']').toString();
+    }
+}
@@ -1,11 +1,14 @@
 package nl.rutgerkok.physicssimulation.world;
 
+import java.util.Arrays;
 import java.util.Objects;
 
 import nl.rutgerkok.physicssimulation.shape.Material;
 import nl.rutgerkok.physicssimulation.shape.Shape;
 import nl.rutgerkok.physicssimulation.vector.Vector;
 
+import org.eclipse.jdt.annotation.Nullable;
+
 /**
  * An object in a physical world.
  *
@@ -25,25 +28,25 @@ public final class PhysicalObject {
      * to not disturb the collision mechanisms, it is not recalculated until the
      * step is over.
      *
+     * <p>
+     * Every object has two instances of this class, which are reused for
+     * every step.
+     * </p>
+     *
      */
     private static class CurrentStep {
-        private final Shape shapeAtBeginning;
+        private Shape shapeAtBeginning;
         /**
          * The shape at the end of the step, as predicted by the initial
          * velocity.
          */
         private Shape predictedEndShape;
         private boolean isPredictionAccurate;
-        private final double deltaTime;
+        private double deltaTime;
         private Vector velocity;
 
         public CurrentStep(Shape shapeAtBeginning, Vector velocity, double deltaTime) {
-            this.shapeAtBeginning = Objects.requireNonNull(shapeAtBeginning);
-            this.isPredictionAccurate = true;
-            this.velocity = Objects.requireNonNull(velocity);
-            this.deltaTime = deltaTime;
-
-            this.predictedEndShape = shapeAtBeginning.moved(velocity.multiply(deltaTime));
+            set(shapeAtBeginning, velocity, deltaTime);
         }
 
         /**
@@ -65,6 +68,65 @@ public final class PhysicalObject {
             this.velocity = Objects.requireNonNull(velocity);
             this.isPredictionAccurate = false;
         }
+
+        /**
+         * Moves the object, without changing its velocity.
+         *
+         * @param offset
+         *            How much to move.
+         */
+        void move(Vector offset) {
+            this.shapeAtBeginning = shapeAtBeginning.moved(offset);
+            this.predictedEndShape = predictedEndShape.moved(offset);
+        }
+
+        /**
+         * Starts a new step.
+         *
+         * @param shapeAtBeginning
+         *            The shape at the start of the step.
+         * @param velocity
+         *            The velocity during the step.
+         * @param deltaTime
+         *            The duration of the step.
+         */
+        void set(Shape shapeAtBeginning, Vector velocity, double deltaTime) {
+            this.shapeAtBeginning = Objects.requireNonNull(shapeAtBeginning);
+            this.isPredictionAccurate = true;
+            this.velocity = Objects.requireNonNull(velocity);
+            this.deltaTime = deltaTime;
+
+            this.predictedEndShape = shapeAtBeginning.moved(velocity.multiply(deltaTime));
+        }
+
+        /**
+         * Starts a new step of which the end was already calculated by an
+         * {@link Integrator}.
+         *
+         * @param shapeAtBeginning
+         *            The shape at the start of the step.
+         * @param endShape
+         *            The shape at the end of the step.
+         * @param velocity
+         *            The velocity at the end of the step.
+         * @param deltaTime
+         *            The duration of the step.
+         */
+        void set(Shape shapeAtBeginning, Shape endShape, Vector velocity, double deltaTime) {
+            this.shapeAtBeginning = Objects.requireNonNull(shapeAtBeginning);
+            this.isPredictionAccurate = true;
+            this.velocity = Objects.requireNonNull(velocity);
+            this.deltaTime = deltaTime;
+
+            this.predictedEndShape = Objects.requireNonNull(endShape);
+        }
+    }
+
+    private static double calculateInvertedMass(Shape shape, Material material) {
+        if (material.density == 0) {
+            return 0;
+        }
+        return 1 / (material.density * shape.getVolume());
     }
 
     /**
@@ -82,42 +144,340 @@ public final class PhysicalObject {
         return new PhysicalObject(shape, velocity, material);
     }
 
+    /**
+     * The current step. When the object is stored in {@link #columns}, this
+     * step is no longer updated, and its shape is only used as a template.
+     */
     private CurrentStep currentStep;
-    private final Material material;
+
+    /**
+     * The step calculated by {@link #integrate(double, Vector)}, waiting to
+     * be {@link #commit() committed}.
+     */
+    private @Nullable CurrentStep nextStep;
+
+    /**
+     * The step that was current before the last {@link #commit()}, reused
+     * by the next {@link #integrate(double, Vector)}.
+     */
+    private @Nullable CurrentStep spareStep;
+    private Material material;
+
+    /**
+     * Set when the object is part of a simulation with
+     * {@link WorldBuilder#withColumnarStorage() columnar storage}.
+     */
+    private @Nullable ObjectColumns columns;
+    private int columnIndex;
+    private @Nullable Shape cachedShape;
+    private @Nullable Vector cachedVelocity;
 
     /**
      * {@code 1 / mass}. 0 for objects with infinite mass.
      */
-    public final double invertedMass;
+    private double invertedMass;
+
+    /**
+     * Amount of times this object was {@link ObjectPool reused}.
+     */
+    private int generation;
+
+    /**
+     * Amount of simulations this object is in.
+     */
+    private int simulationCount;
+
+    /**
+     * Amount of simulations this object is waiting to be spawned in.
+     */
+    private int pendingSpawnCount;
+    private boolean isInPool;
+
+    /**
+     * Amount of times this object was moved or got a new velocity outside of
+     * the integration.
+     */
+    private int changeCount;
+
+    /**
+     * The objects that fell asleep together with this object, including this
+     * object itself. Null if this object is awake.
+     *
+     * @see WorldBuilder#withSleeping(double, int)
+     */
+    private PhysicalObject @Nullable [] sleepingIsland;
+
+    /**
+     * Amount of steps in a row that this object has been moving slowly.
+     */
+    int restingSteps;
 
     private PhysicalObject(Shape shape, Vector velocity, Material material) {
         this.material = Objects.requireNonNull(material);
-
         this.currentStep = new CurrentStep(shape, velocity, 0);
+        this.invertedMass = calculateInvertedMass(shape, material);
+    }
 
-        if (material.density == 0) {
-            this.invertedMass = 0;
-        } else {
-            double mass = material.density * shape.getVolume();
-            this.invertedMass = 1 / mass;
+    /**
+     * Called when this object was added to a simulation.
+     */
+    void addedToSimulation() {
+        this.simulationCount++;
+    }
+
+    /**
+     * Moves the state of this object to the given columns. From now on, the
+     * columns hold the state of this object.
+     *
+     * @param columns
+     *            The columns.
+     * @param index
+     *            Index of this object in the columns.
+     * @throws IllegalStateException
+     *             If the object is already stored in columns.
+     */
+    void attachTo(ObjectColumns columns, int index) {
+        if (this.columns != null) {
+            throw new IllegalStateException(this + " is already in a simulation with columnar storage");
         }
+        this.columns = columns;
+        this.columnIndex = index;
+    }
+
+    /**
+     * Moves the state of this object out of the columns, back into this
+     * object.
+     *
+     * @param shape
+     *            The current shape of the object.
+     * @param velocity
+     *            The current velocity of the object.
+     */
+    void detach(Shape shape, Vector velocity) {
+        this.columns = null;
+        this.currentStep.set(shape, velocity, 0);
+        this.nextStep = null;
+        clearCache();
+    }
+
+    /**
+     * Gets how many times this object was reused by an {@link ObjectPool}.
+     * An object that is reused is in fact a different object: it has a new
+     * shape, velocity and material. Code that keeps references to objects
+     * that may be reused can store the generation together with the
+     * reference, to detect that the reference has become stale.
+     *
+     * @return The generation, 0 for objects that were never reused.
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Gets {@code 1 / mass}. For objects with infinite mass, this is 0.
+     *
+     * @return The inverted mass.
+     */
+    public double getInvertedMass() {
+        return invertedMass;
+    }
+
+    /**
+     * Checks whether the state of this object is stored in
+     * {@link ObjectColumns}.
+     *
+     * @return True if stored in columns, false otherwise.
+     */
+    boolean isInColumns() {
+        return columns != null;
     }
 
     /**
-     * Advances this object the given amount of time.
+     * Checks whether this object is waiting in an {@link ObjectPool}.
+     *
+     * @return True if in a pool, false otherwise.
+     */
+    boolean isInPool() {
+        return isInPool;
+    }
+
+    /**
+     * Checks whether this object is sleeping. Sleeping objects don't move,
+     * and are skipped when calculating forces and collisions. They wake up
+     * when an awake object touches them, or when their velocity is changed.
+     *
+     * @return True if sleeping, false otherwise.
+     * @see WorldBuilder#withSleeping(double, int)
+     */
+    public boolean isSleeping() {
+        return sleepingIsland != null;
+    }
+
+    /**
+     * Checks whether this object is part of at least one simulation.
+     *
+     * @return True if in a simulation, false otherwise.
+     */
+    boolean isInSimulation() {
+        return simulationCount > 0;
+    }
+
+    /**
+     * Checks whether this object was
+     * {@link PhysicsSimulation#spawn(PhysicalObject) spawned}, but not yet
+     * added to the world.
+     *
+     * @return True if waiting to be spawned in at least one simulation, false
+     *         otherwise.
+     */
+    boolean isSpawnPending() {
+        return pendingSpawnCount > 0;
+    }
+
+    /**
+     * Called when this object was moved to another index in its columns.
+     *
+     * @param index
+     *            The new index.
+     */
+    void moveInColumns(int index) {
+        this.columnIndex = index;
+        clearCache();
+    }
+
+    /**
+     * Forgets the cached shape and velocity, after the columns have changed.
+     */
+    void clearCache() {
+        this.cachedShape = null;
+        this.cachedVelocity = null;
+    }
+
+    /**
+     * Makes the step calculated by {@link #integrate(double, Vector)} the
+     * current step.
+     *
+     * @throws IllegalStateException
+     *             If there is no calculated step.
+     */
+    void commit() {
+        CurrentStep nextStep = this.nextStep;
+        if (nextStep == null) {
+            throw new IllegalStateException("No next step calculated for " + this);
+        }
+        this.spareStep = this.currentStep;
+        this.currentStep = nextStep;
+        this.nextStep = null;
+    }
+
+    /**
+     * Calculates the state of this object after the given amount of time. The
+     * object doesn't change until {@link #commit()} is called, so that other
+     * objects can still see the current state.
      * 
      * @param deltaTime
      *            The amount of time.
-     * @param world
-     *            The world we are in. Only used for calculating forces.
+     * @param force
+     *            The force on this object, calculated before any object was
+     *            moved.
      */
-    void advance(double deltaTime, PhysicsSimulation world) {
+    void integrate(double deltaTime, Vector force) {
         // Symplectic Euler - assumes constant force over deltaTime
-        Vector force = world.calculateForce(this);
         Vector acceleration = force.multiply(invertedMass);
         Vector velocity = currentStep.velocity.plus(acceleration.multiply(deltaTime));
+        Shape shape = currentStep.getResultingShape();
+
+        CurrentStep nextStep = this.spareStep;
+        if (nextStep == null) {
+            nextStep = new CurrentStep(shape, velocity, deltaTime);
+        } else {
+            nextStep.set(shape, velocity, deltaTime);
+            this.spareStep = null;
+        }
+        this.nextStep = nextStep;
+    }
+
+    /**
+     * Gets how many times this object was moved or got a new velocity outside
+     * of the integration, for example by a {@link Supervisor}. Forces that
+     * were calculated earlier are no longer valid once this changes.
+     *
+     * @return The amount of changes.
+     */
+    int getChangeCount() {
+        return changeCount;
+    }
+
+    /**
+     * Gets the center of this object along the given axis. This is the same as
+     * {@code getShape().getCenter().getCoord(axis)}, but faster for
+     * simulations with {@link WorldBuilder#withColumnarStorage() columnar
+     * storage}.
+     *
+     * @param axis
+     *            The axis: 0 for x, 1 for y and 2 for z.
+     * @return The center.
+     * @throws IllegalArgumentException
+     *             If the axis doesn't exist for the dimension of this object.
+     */
+    public double getCenterCoord(int axis) {
+        ObjectColumns columns = this.columns;
+        if (columns != null) {
+            return columns.getCenterCoord(columnIndex, axis);
+        }
+        Vector center = getShape().getCenter();
+        if (axis < 0 || axis >= center.getDimension()) {
+            throw new IllegalArgumentException("Invalid axis for " + this + ": " + axis);
+        }
+        return center.getCoord(axis);
+    }
+
+    /**
+     * Gets the center of this object along the given axis at the start of the
+     * current step. Together with {@link #getCenterCoord(int)}, this tells how
+     * far the object moved during the step.
+     *
+     * @param axis
+     *            The axis: 0 for x, 1 for y and 2 for z.
+     * @return The center.
+     * @throws IllegalArgumentException
+     *             If the axis doesn't exist for the dimension of this object.
+     */
+    public double getPreviousCenterCoord(int axis) {
+        if (isSleeping()) {
+            // Didn't move
+            return getCenterCoord(axis);
+        }
+        ObjectColumns columns = this.columns;
+        if (columns != null) {
+            return columns.getPreviousCenterCoord(columnIndex, axis);
+        }
+        Vector center = currentStep.shapeAtBeginning.getCenter();
+        if (axis < 0 || axis >= center.getDimension()) {
+            throw new IllegalArgumentException("Invalid axis for " + this + ": " + axis);
+        }
+        return center.getCoord(axis);
+    }
 
-        currentStep = new CurrentStep(currentStep.getResultingShape(), velocity, deltaTime);
+    /**
+     * Gets half of the size of the axis-aligned box around this object. This
+     * is the same as {@code getShape().getExtent(axis)}, but faster for
+     * simulations with {@link WorldBuilder#withColumnarStorage() columnar
+     * storage}.
+     *
+     * @param axis
+     *            The axis: 0 for x, 1 for y and 2 for z.
+     * @return Half of the size along the axis.
+     * @throws IllegalArgumentException
+     *             If the axis doesn't exist for the dimension of this object.
+     * @see Shape#getExtent(int)
+     */
+    public double getExtent(int axis) {
+        ObjectColumns columns = this.columns;
+        if (columns != null) {
+            return columns.getExtent(columnIndex, axis);
+        }
+        return getShape().getExtent(axis);
     }
 
     /**
@@ -148,7 +508,16 @@ public final class PhysicalObject {
      * @return The shape.
      */
     public Shape getShape() {
-        return currentStep.predictedEndShape;
+        ObjectColumns columns = this.columns;
+        if (columns == null) {
+            return currentStep.predictedEndShape;
+        }
+        Shape shape = this.cachedShape;
+        if (shape == null) {
+            shape = columns.createShape(columnIndex, currentStep.predictedEndShape);
+            this.cachedShape = shape;
+        }
+        return shape;
     }
 
     /**
@@ -157,7 +526,151 @@ public final class PhysicalObject {
      * @return The velocity.
      */
     public Vector getVelocity() {
-        return currentStep.velocity;
+        ObjectColumns columns = this.columns;
+        if (columns == null) {
+            return currentStep.velocity;
+        }
+        Vector velocity = this.cachedVelocity;
+        if (velocity == null) {
+            velocity = columns.createVelocity(columnIndex);
+            this.cachedVelocity = velocity;
+        }
+        return velocity;
+    }
+
+    /**
+     * Moves this object, without changing its velocity. This method should
+     * only be called by the collision handling code, to push apart objects
+     * that ended up inside each other.
+     *
+     * @param offset
+     *            How much to move the object.
+     */
+    void move(Vector offset) {
+        wakeUp();
+        changeCount++;
+        ObjectColumns columns = this.columns;
+        if (columns == null) {
+            currentStep.move(offset);
+            return;
+        }
+        columns.move(columnIndex, offset);
+        this.cachedShape = null;
+    }
+
+    /**
+     * Writes the center and velocity of this object at the start of the next
+     * step into the given arrays, for integrators that work on the state of
+     * all objects at once.
+     *
+     * @param positions
+     *            The center is written here.
+     * @param velocities
+     *            The velocity is written here.
+     * @param offset
+     *            Index of the x coordinate in both arrays.
+     */
+    void readState(double[] positions, double[] velocities, int offset) {
+        ObjectColumns columns = this.columns;
+        if (columns != null) {
+            columns.readState(columnIndex, positions, velocities, offset);
+            return;
+        }
+        Vector center = currentStep.getResultingShape().getCenter();
+        Vector velocity = currentStep.velocity;
+        for (int axis = 0; axis < center.getDimension(); axis++) {
+            positions[offset + axis] = center.getCoord(axis);
+            velocities[offset + axis] = velocity.getCoord(axis);
+        }
+    }
+
+    /**
+     * Gives this object a new identity, for reuse by an {@link ObjectPool}.
+     *
+     * @param shape
+     *            The new shape.
+     * @param velocity
+     *            The new velocity.
+     * @param material
+     *            The new material.
+     */
+    void recycle(Shape shape, Vector velocity, Material material) {
+        this.material = Objects.requireNonNull(material);
+        this.currentStep.set(shape, velocity, 0);
+        this.nextStep = null;
+        this.invertedMass = calculateInvertedMass(shape, material);
+        this.generation++;
+        this.restingSteps = 0;
+        this.isInPool = false;
+        clearCache();
+    }
+
+    /**
+     * Wakes up this object, together with all objects that fell asleep
+     * together with it. Does nothing if this object is awake.
+     */
+    void wakeUp() {
+        PhysicalObject[] island = this.sleepingIsland;
+        if (island == null) {
+            return;
+        }
+        for (PhysicalObject object : island) {
+            object.sleepingIsland = null;
+            object.restingSteps = 0;
+        }
+    }
+
+    /**
+     * Called when this object was removed from a simulation.
+     */
+    void removedFromSimulation() {
+        this.simulationCount--;
+    }
+
+    /**
+     * Places this object at the given center with the given velocity,
+     * immediately. Used by integrators that need the forces at intermediate
+     * states, and to store their result.
+     *
+     * <p>
+     * The step is recorded as having started at the given start position, so
+     * that {@link #getPreviousCenterCoord(int)} returns where the object
+     * really was. {@link #replaceVelocity(Vector) Replacing the velocity}
+     * afterwards moves the object from there, just like after a normal step.
+     * </p>
+     *
+     * @param startPositions
+     *            Array containing the center at the start of the step. For
+     *            intermediate states, this is the same array as the
+     *            positions.
+     * @param positions
+     *            Array containing the center.
+     * @param velocities
+     *            Array containing the velocity.
+     * @param offset
+     *            Index of the x coordinate in all arrays.
+     * @param deltaTime
+     *            Length of the step, 0 for intermediate states.
+     */
+    void replaceState(double[] startPositions, double[] positions, double[] velocities, int offset,
+            double deltaTime) {
+        ObjectColumns columns = this.columns;
+        if (columns != null) {
+            columns.replaceState(columnIndex, startPositions, positions, velocities, offset, deltaTime);
+            clearCache();
+            return;
+        }
+        Shape shape = currentStep.predictedEndShape;
+        Vector center = shape.getCenter();
+        double[] velocityCoords = Arrays.copyOfRange(velocities, offset, offset + center.getDimension());
+        double[] startOffset = new double[center.getDimension()];
+        double[] endOffset = new double[center.getDimension()];
+        for (int axis = 0; axis < startOffset.length; axis++) {
+            startOffset[axis] = startPositions[offset + axis] - center.getCoord(axis);
+            endOffset[axis] = positions[offset + axis] - center.getCoord(axis);
+        }
+        currentStep.set(shape.moved(Vector.vec(startOffset)), shape.moved(Vector.vec(endOffset)),
+                Vector.vec(velocityCoords), deltaTime);
     }
 
     /**
@@ -169,11 +682,53 @@ public final class PhysicalObject {
      *            The new velocity.
      */
     void replaceVelocity(Vector velocity) {
-        currentStep.replaceVelocity(velocity);
+        wakeUp();
+        changeCount++;
+        ObjectColumns columns = this.columns;
+        if (columns == null) {
+            currentStep.replaceVelocity(velocity);
+            return;
+        }
+        columns.replaceVelocity(columnIndex, Objects.requireNonNull(velocity));
+        this.cachedVelocity = velocity;
+    }
+
+    /**
+     * Marks whether this object is waiting to be spawned in a simulation.
+     *
+     * @param pending
+     *            True when the spawn is queued, false when it is carried out
+     *            or cancelled.
+     */
+    void setSpawnPending(boolean pending) {
+        this.pendingSpawnCount += pending ? 1 : -1;
+    }
+
+    /**
+     * Marks whether this object is waiting in an {@link ObjectPool}.
+     *
+     * @param isInPool
+     *            True if in a pool, false otherwise.
+     */
+    void setInPool(boolean isInPool) {
+        this.isInPool = isInPool;
+    }
+
+    /**
+     * Puts this object to sleep, together with the other objects it is
+     * touching. The velocities of the objects are set to zero.
+     *
+     * @param island
+     *            All objects that fall asleep together, including this
+     *            object. Must be awake.
+     */
+    void sleep(PhysicalObject[] island) {
+        replaceVelocity(getVelocity().multiply(0));
+        this.sleepingIsland = island;
     }
 
     @Override
     public String toString() {
-        return "obj(" + currentStep.predictedEndShape + ", " + currentStep.velocity + ", " + material + ")";
+        return "obj(" + getShape() + ", " + getVelocity() + ", " + material + ")";
     }
 }
@@ -1,14 +1,24 @@
 package nl.rutgerkok.physicssimulation.world;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import nl.rutgerkok.physicssimulation.force.Forces;
 import nl.rutgerkok.physicssimulation.paint.Canvas;
 import nl.rutgerkok.physicssimulation.paint.Drawable;
+import nl.rutgerkok.physicssimulation.shape.Material;
 import nl.rutgerkok.physicssimulation.vector.Vector;
 
+import org.eclipse.jdt.annotation.Nullable;
+
 /**
  * Represents a physics simulation.
  *
@@ -19,18 +29,162 @@ import nl.rutgerkok.physicssimulation.vector.Vector;
  */
 public final class PhysicsSimulation implements Drawable, Iterable<PhysicalObject> {
 
-    private final WorldView world;
+    private final MultipleMaterialWorldView world;
     private final List<Supervisor> supervisors;
     final Force force;
 
+    /**
+     * Holds the state of all objects, or null if the objects hold their own
+     * state.
+     */
+    private final @Nullable ObjectColumns columns;
+
+    /**
+     * All objects, in the order in which their state is stored. When an
+     * object is despawned, the last object takes its place. Spawned objects
+     * are added at the end. Only the first {@link #objectCount} elements are
+     * used.
+     */
+    private PhysicalObject[] objects;
+    private int objectCount;
+
+    /**
+     * Index of every object in {@link #objects}.
+     */
+    private final Map<PhysicalObject, Integer> objectIndices = new IdentityHashMap<>();
+    private final ForceEvaluator forceEvaluator;
+
+    /**
+     * Forces that are calculated only once per step, or null if there are
+     * none.
+     *
+     * @see WorldBuilder#withSlowForce(Force)
+     */
+    private final @Nullable Force slowForce;
+    private final @Nullable ForceEvaluator slowForceEvaluator;
+
+    /**
+     * The slow forces are calculated at the end of every step, and then also
+     * used at the start of the next step. This is set when they need to be
+     * calculated again at the start of the step, because there are no forces
+     * yet for the current objects.
+     */
+    private boolean slowForcesOutdated = true;
+
+    /**
+     * Sum of the {@link PhysicalObject#getChangeCount() change counts} of all
+     * objects when the slow forces were calculated. When a supervisor moves
+     * an object after that, the sum changes and the slow forces are
+     * calculated again.
+     */
+    private long slowForcesChangeCount;
+
+    /**
+     * Amount of times the normal forces are calculated and integrated per
+     * step.
+     */
+    private final int fastSteps;
+
+    /**
+     * Puts resting objects to sleep, or null if objects never sleep.
+     */
+    private final @Nullable SleepTracker sleepTracker;
+
+    /**
+     * Objects waiting to be spawned or despawned at the start of the next
+     * step. The lists keep the order in which the objects were submitted, the
+     * sets are used to quickly look up whether an object is waiting.
+     */
+    private final List<PhysicalObject> spawnQueue = new ArrayList<>();
+    private final Set<PhysicalObject> spawnSet = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final List<PhysicalObject> despawnQueue = new ArrayList<>();
+    private final Set<PhysicalObject> despawnSet = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * The stages to run after each phase, indexed by
+     * {@link StepPhase#ordinal()}.
+     */
+    private final StepStage[][] stages;
+
+    private final StepListener[] listeners;
+
+    /**
+     * Metrics of the current step, or null if there are no listeners.
+     */
+    private final @Nullable StepMetrics metrics;
+
+    /**
+     * Time step of the current step, 0 before the first step.
+     */
+    private double deltaTime;
+
+    /**
+     * Picks the amount of substeps, or null to always take a single step.
+     */
+    private final @Nullable SubstepScheduler substepScheduler;
+    private int substepCount = 1;
+
+    private final Integrator integrator;
+    private final IntegrationContext integrationContext;
+
+    /**
+     * Threads used by all force evaluators, or null to calculate all forces
+     * on the calling thread.
+     */
+    private final @Nullable ForkJoinPool pool;
+
     PhysicsSimulation(WorldBuilder worldBuilder) {
         Vector zero = worldBuilder.zero;
         if (zero == null) {
             throw new IllegalArgumentException("WorldBuilder " + worldBuilder + " has no objects");
         }
+        for (PhysicalObject object : worldBuilder.objects) {
+            checkStorage(object, worldBuilder.columnarStorage);
+        }
         this.world = new MultipleMaterialWorldView(zero, worldBuilder.objects);
         this.supervisors = Collections.unmodifiableList(worldBuilder.supervisors);
         this.force = Forces.combine(worldBuilder.forces);
+        this.objects = world.toArray(new PhysicalObject[0]);
+        this.objectCount = objects.length;
+        for (int i = 0; i < objects.length; i++) {
+            objectIndices.put(objects[i], i);
+            objects[i].addedToSimulation();
+        }
+        this.stages = new StepStage[StepPhase.values().length][];
+        for (StepPhase phase : StepPhase.values()) {
+            this.stages[phase.ordinal()] = worldBuilder.stages.get(phase).toArray(new StepStage[0]);
+        }
+        this.listeners = worldBuilder.listeners.toArray(new StepListener[0]);
+        this.metrics = listeners.length == 0 ? null : new StepMetrics(supervisors);
+        this.pool = createPool(worldBuilder.parallelism);
+        this.forceEvaluator = new ForceEvaluator(force, world, objects, pool);
+        if (worldBuilder.slowForces.isEmpty()) {
+            this.slowForce = null;
+            this.slowForceEvaluator = null;
+        } else {
+            Force slowForce = Forces.combine(worldBuilder.slowForces);
+            this.slowForce = slowForce;
+            this.slowForceEvaluator = new ForceEvaluator(slowForce, world, objects, pool);
+        }
+        this.fastSteps = worldBuilder.fastSteps;
+        if (worldBuilder.sleepVelocityThreshold >= 0) {
+            this.sleepTracker = new SleepTracker(worldBuilder.sleepVelocityThreshold, worldBuilder.sleepSteps);
+        } else {
+            this.sleepTracker = null;
+        }
+        if (worldBuilder.columnarStorage) {
+            this.columns = new ObjectColumns(zero, objects);
+        } else {
+            this.columns = null;
+        }
+        this.integrator = worldBuilder.integrator;
+        this.integrationContext = new IntegrationContext(force, world, forceEvaluator, zero.getDimension(), columns);
+        if (worldBuilder.maxSubstepMovement > 0) {
+            this.substepScheduler = new SubstepScheduler(worldBuilder.minSubsteps, worldBuilder.maxSubsteps,
+                    worldBuilder.maxSubstepMovement);
+        } else {
+            this.substepScheduler = null;
+        }
     }
 
     /**
@@ -50,27 +204,385 @@ public final class PhysicsSimulation implements Drawable, Iterable<PhysicalObjec
      * Sample 2 will run faster, but the results will be less accurate.
      * </p>
      *
+     * <p>
+     * With {@link WorldBuilder#withAdaptiveStepping(int, int, double) adaptive
+     * stepping}, the step is split into substeps of equal length. The amount
+     * of substeps depends on how fast the objects moved in the previous step.
+     * Everything below then happens for every substep.
+     * </p>
+     *
+     * <p>
+     * Objects {@link #spawn(PhysicalObject) spawned} or
+     * {@link #despawn(PhysicalObject) despawned} since the last step are first
+     * added to or removed from the world. Then the step runs the following
+     * {@link StepPhase phases}:
+     * </p>
+     *
+     * <ol>
+     * <li>{@link StepPhase#FORCES}: all forces are
+     * {@link Force#prepare(WorldView) prepared}, and then the forces on all
+     * objects are calculated. No object has moved yet, so the order of the
+     * objects doesn't matter, and the forces can be calculated on
+     * {@link WorldBuilder#withParallelism(int) multiple threads}.</li>
+     * <li>{@link StepPhase#INTEGRATION}: the new state of every object is
+     * calculated into a second buffer. Once all objects are done, the buffers
+     * are swapped, so that the new state becomes visible all at once. Some
+     * {@link WorldBuilder#withIntegrator(Integrator) integrators} calculate
+     * the forces again for intermediate states during this phase. With
+     * {@link WorldBuilder#withMultipleTimeSteps(int) multiple time steps},
+     * the objects first get half of the push of the
+     * {@link WorldBuilder#withSlowForce(Force) slow forces}, are then
+     * integrated several times with shorter time steps, calculating the
+     * normal forces again before each of them, and finally get the other half
+     * of the push.</li>
+     * <li>{@link StepPhase#SUPERVISION}: all supervisors check the world.</li>
+     * </ol>
+     *
+     * <p>
+     * After every phase, the {@link StepStage stages} that were
+     * {@link WorldBuilder#withStage(StepPhase, StepStage) added} for that phase
+     * are run.
+     * </p>
+     *
+     * <p>
+     * If there are {@link WorldBuilder#withListener(StepListener) listeners},
+     * the step is measured and the listeners are called at the end of the step.
+     * </p>
+     *
      * @param deltaTime
      *            The time step.
      */
     public void advance(double deltaTime) {
-        world.forEach(object -> object.advance(deltaTime, this));
-        supervisors.forEach(supervisor -> supervisor.check(this));
+        int substeps = startSubsteps(deltaTime);
+        double substepTime = deltaTime / substeps;
+        for (int i = 0; i < substeps; i++) {
+            applyQueuedChanges();
+            if (metrics != null) {
+                advanceMeasured(substepTime, null);
+            } else {
+                advanceUnmeasured(substepTime);
+            }
+        }
+        finishSubsteps();
     }
 
     /**
-     * Calculates the force that currently work on the object.
-     * 
+     * Advances the world by the given time step, like
+     * {@link #advance(double)}, while measuring how long each phase takes.
+     *
+     * @param deltaTime
+     *            The time step.
+     * @param timings
+     *            The time spent in each phase is added to this. With
+     *            {@link WorldBuilder#withAdaptiveStepping(int, int, double)
+     *            adaptive stepping}, every substep counts as a step.
+     */
+    public void advance(double deltaTime, PhaseTimings timings) {
+        Objects.requireNonNull(timings, "timings");
+        int substeps = startSubsteps(deltaTime);
+        double substepTime = deltaTime / substeps;
+        for (int i = 0; i < substeps; i++) {
+            applyQueuedChanges();
+            advanceMeasured(substepTime, timings);
+        }
+        finishSubsteps();
+    }
+
+    private void advanceUnmeasured(double deltaTime) {
+
+        calculateForces();
+        calculateSlowForces();
+        runStages(StepPhase.FORCES, deltaTime);
+
+        integrate(deltaTime);
+        runStages(StepPhase.INTEGRATION, deltaTime);
+
+        supervise();
+        updateSleeping();
+        // Supervisors may have moved objects
+        world.increaseVersion();
+        runStages(StepPhase.SUPERVISION, deltaTime);
+    }
+
+    private void advanceMeasured(double deltaTime, @Nullable PhaseTimings timings) {
+        StepMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.startStep();
+        }
+
+        long start = System.nanoTime();
+        calculateForces();
+        calculateSlowForces();
+        runStages(StepPhase.FORCES, deltaTime);
+        long forcesEnd = System.nanoTime();
+
+        integrate(deltaTime);
+        runStages(StepPhase.INTEGRATION, deltaTime);
+        long integrationEnd = System.nanoTime();
+
+        if (metrics == null) {
+            supervise();
+        } else {
+            long supervisorStart = integrationEnd;
+            for (int i = 0; i < supervisors.size(); i++) {
+                supervisors.get(i).check(this);
+                long supervisorEnd = System.nanoTime();
+                metrics.setSupervisorNanos(i, supervisorEnd - supervisorStart);
+                supervisorStart = supervisorEnd;
+            }
+        }
+        updateSleeping();
+        // Supervisors may have moved objects
+        world.increaseVersion();
+        runStages(StepPhase.SUPERVISION, deltaTime);
+        long end = System.nanoTime();
+
+        if (timings != null) {
+            timings.add(StepPhase.FORCES, forcesEnd - start);
+            timings.add(StepPhase.INTEGRATION, integrationEnd - forcesEnd);
+            timings.add(StepPhase.SUPERVISION, end - integrationEnd);
+            timings.addStep();
+        }
+        if (metrics != null) {
+            metrics.setNanos(StepPhase.FORCES, forcesEnd - start);
+            metrics.setNanos(StepPhase.INTEGRATION, integrationEnd - forcesEnd);
+            metrics.setNanos(StepPhase.SUPERVISION, end - integrationEnd);
+            metrics.finishStep();
+            for (StepListener listener : listeners) {
+                listener.stepFinished(this, metrics);
+            }
+        }
+    }
+
+    /**
+     * Adds and removes the objects that were spawned and despawned since the
+     * last step.
+     */
+    private void applyQueuedChanges() {
+        if (spawnQueue.isEmpty() && despawnQueue.isEmpty()) {
+            return;
+        }
+
+        ObjectColumns columns = this.columns;
+        SleepTracker sleepTracker = this.sleepTracker;
+        for (PhysicalObject object : despawnQueue) {
+            if (sleepTracker != null && object.getInvertedMass() == 0) {
+                // Sleeping objects might have been resting on this object
+                for (int i = 0; i < objectCount; i++) {
+                    objects[i].wakeUp();
+                }
+            }
+            object.wakeUp();
+            object.restingSteps = 0;
+            int index = objectIndices.remove(object);
+            int last = --objectCount;
+            if (index != last) {
+                objects[index] = objects[last];
+                objectIndices.put(objects[index], index);
+            }
+            objects[last] = null;
+            if (columns != null) {
+                columns.remove(index);
+            }
+            object.removedFromSimulation();
+        }
+        for (PhysicalObject object : spawnQueue) {
+            if (objectCount == objects.length) {
+                objects = Arrays.copyOf(objects, Math.max(16, objects.length * 2));
+            }
+            objectIndices.put(object, objectCount);
+            objects[objectCount++] = object;
+            if (columns != null) {
+                columns.add(object);
+            }
+            object.setSpawnPending(false);
+            object.addedToSimulation();
+        }
+        if (objects.length > 16 && objectCount < objects.length / 4) {
+            // Most objects are gone, so free up the memory
+            objects = Arrays.copyOf(objects, Math.max(objectCount * 2, 16));
+        }
+
+        world.update(spawnQueue, despawnSet);
+        forceEvaluator.setObjects(objects, objectCount);
+        integrationContext.forgetForces();
+        ForceEvaluator slowForceEvaluator = this.slowForceEvaluator;
+        if (slowForceEvaluator != null) {
+            slowForceEvaluator.setObjects(objects, objectCount);
+            slowForcesOutdated = true;
+        }
+
+        spawnQueue.clear();
+        spawnSet.clear();
+        despawnQueue.clear();
+        despawnSet.clear();
+    }
+
+    /**
+     * Checks whether the object can be added to a simulation. The state of an
+     * object in a simulation with columnar storage is stored in that
+     * simulation, so such an object cannot be in any other simulation.
+     *
+     * @param object
+     *            The object.
+     * @param columnarStorage
+     *            Whether the simulation uses columnar storage.
+     * @throws IllegalStateException
+     *             If the object cannot be added.
+     */
+    static void checkStorage(PhysicalObject object, boolean columnarStorage) {
+        if (object.isInColumns()) {
+            throw new IllegalStateException(object + " is already in a simulation with columnar storage");
+        }
+        if (columnarStorage && object.isInSimulation()) {
+            throw new IllegalStateException(object + " is already in another simulation");
+        }
+    }
+
+    private void calculateForces() {
+        if (integrationContext.hasForces()) {
+            // Already calculated by the integrator at the end of the last step
+            return;
+        }
+        force.prepare(world);
+        forceEvaluator.calculateAll();
+    }
+
+    private void calculateSlowForces() {
+        Force slowForce = this.slowForce;
+        ForceEvaluator slowForceEvaluator = this.slowForceEvaluator;
+        if (slowForce == null || slowForceEvaluator == null) {
+            return;
+        }
+        long changeCount = getChangeCount();
+        if (slowForcesOutdated || changeCount != slowForcesChangeCount) {
+            slowForce.prepare(world);
+            slowForceEvaluator.calculateAll();
+            slowForcesOutdated = false;
+            slowForcesChangeCount = changeCount;
+        }
+    }
+
+    private long getChangeCount() {
+        long changeCount = 0;
+        for (int i = 0; i < objectCount; i++) {
+            changeCount += objects[i].getChangeCount();
+        }
+        return changeCount;
+    }
+
+    /**
+     * Stops the threads used to calculate the forces, see
+     * {@link WorldBuilder#withParallelism(int)}. Call this once the
+     * simulation is no longer needed; it must not be advanced afterwards.
+     * Does nothing if the simulation uses a single thread, or uses the
+     * {@link ForkJoinPool#commonPool() common pool}.
+     */
+    public void close() {
+        ForkJoinPool pool = this.pool;
+        if (pool != null && pool != ForkJoinPool.commonPool()) {
+            pool.shutdown();
+        }
+    }
+
+    private static @Nullable ForkJoinPool createPool(int parallelism) {
+        if (parallelism == 1) {
+            return null;
+        }
+        if (parallelism == ForkJoinPool.getCommonPoolParallelism()) {
+            // No need to start threads of our own
+            return ForkJoinPool.commonPool();
+        }
+        return new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Removes an object from the world. The object stays in the world until
+     * the start of the next {@link #advance(double) step}, so that the world
+     * never changes during a step. Despawning an object that is waiting to be
+     * spawned cancels the spawn.
+     *
+     * <p>
+     * After the object is removed, it can be spawned again, in this or in any
+     * other simulation.
+     * </p>
+     *
      * @param object
      *            The object.
-     * @return The force.
+     * @throws IllegalArgumentException
+     *             If the object is not in the world, or already waiting to be
+     *             despawned.
+     */
+    public void despawn(PhysicalObject object) {
+        Objects.requireNonNull(object, "object");
+        if (spawnSet.remove(object)) {
+            spawnQueue.remove(object);
+            object.setSpawnPending(false);
+            return;
+        }
+        if (!objectIndices.containsKey(object)) {
+            throw new IllegalArgumentException(object + " is not in the world");
+        }
+        if (!despawnSet.add(object)) {
+            throw new IllegalArgumentException(object + " is already being despawned");
+        }
+        despawnQueue.add(object);
+    }
+
+    /**
+     * Measures the last substep, so that the amount of substeps for the next
+     * step can be chosen.
+     */
+    private void finishSubsteps() {
+        SubstepScheduler substepScheduler = this.substepScheduler;
+        if (substepScheduler != null) {
+            substepScheduler.observe(objects, objectCount, forceEvaluator, deltaTime);
+        }
+    }
+
+    /**
+     * Gets the time step of the step that is currently running, or of the
+     * last step if no step is running. With
+     * {@link WorldBuilder#withAdaptiveStepping(int, int, double) adaptive
+     * stepping}, this is the time step of a single substep.
+     *
+     * @return The time step, or 0 if the world never advanced.
      */
-    Vector calculateForce(PhysicalObject object) {
-        return this.force.calculate(object, world);
+    public double getDeltaTime() {
+        return deltaTime;
     }
 
     /**
-     * Gets the world of this simulation.
+     * Gets the amount of substeps the current or last call to
+     * {@link #advance(double)} was split into. Without
+     * {@link WorldBuilder#withAdaptiveStepping(int, int, double) adaptive
+     * stepping}, this is always 1.
+     *
+     * @return The amount of substeps.
+     */
+    public int getSubstepCount() {
+        return substepCount;
+    }
+
+    /**
+     * Gets the metrics of the step that is currently running. Supervisors can
+     * use this to {@link StepMetrics#add(StepMetrics.Counter, long) report}
+     * what they did.
+     *
+     * @return The metrics, or null if there are no
+     *         {@link WorldBuilder#withListener(StepListener) listeners}.
+     */
+    public @Nullable StepMetrics getStepMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gets the world of this simulation. The returned view always shows the
+     * objects currently in the world: it changes at the start of a step when
+     * objects were {@link #spawn(PhysicalObject) spawned} or
+     * {@link #despawn(PhysicalObject) despawned}. Views obtained by
+     * {@link WorldView#filterOnMaterial(Material) filtering} don't change;
+     * filter again after the objects have changed.
      * 
      * @return The world.
      */
@@ -78,11 +590,136 @@ public final class PhysicsSimulation implements Drawable, Iterable<PhysicalObjec
         return world;
     }
 
+    private void integrate(double deltaTime) {
+        ForceEvaluator slowForceEvaluator = this.slowForceEvaluator;
+        boolean inParts = slowForceEvaluator != null || fastSteps > 1;
+        if (inParts) {
+            integrationContext.saveStepStart(objects, objectCount);
+        }
+        if (slowForceEvaluator != null) {
+            // Half of the push of the slow forces at the start of the step
+            integrationContext.applyImpulses(objects, objectCount, slowForceEvaluator, deltaTime / 2);
+        }
+        double fastTime = deltaTime / fastSteps;
+        this.deltaTime = fastTime;
+        for (int i = 0; i < fastSteps; i++) {
+            if (i > 0) {
+                calculateForces();
+            }
+            integrator.integrate(integrationContext, objects, objectCount, fastTime);
+            world.increaseVersion();
+        }
+        if (slowForceEvaluator != null) {
+            // Other half at the end, with the forces at the new positions
+            slowForcesOutdated = true;
+            calculateSlowForces();
+            integrationContext.applyImpulses(objects, objectCount, slowForceEvaluator, deltaTime / 2);
+        }
+        if (inParts) {
+            // So that supervisors see the path and the length of the whole
+            // step
+            integrationContext.restoreStepStart(deltaTime);
+            this.deltaTime = deltaTime;
+        }
+    }
+
+    /**
+     * Adds an object to the world. The object is added at the start of the
+     * next {@link #advance(double) step}, so that the world never changes
+     * during a step. Objects are added in the order in which they are spawned.
+     * Spawning an object that is waiting to be despawned cancels the despawn.
+     *
+     * @param object
+     *            The object.
+     * @throws IllegalArgumentException
+     *             If the object has another dimension than the world, if it
+     *             is already in the world or waiting to be spawned, or if it
+     *             was {@link ObjectPool#release(PhysicalObject) released} to a
+     *             pool.
+     * @throws IllegalStateException
+     *             If the object is already in a simulation with
+     *             {@link WorldBuilder#withColumnarStorage() columnar storage},
+     *             or if this simulation uses columnar storage and the object
+     *             is already in another simulation.
+     */
+    public void spawn(PhysicalObject object) {
+        Objects.requireNonNull(object, "object");
+        if (object.getVelocity().getDimension() != world.getZeroVector().getDimension()) {
+            throw new IllegalArgumentException("Cannot add " + object + " to a world of dimension "
+                    + world.getZeroVector().getDimension());
+        }
+        if (despawnSet.remove(object)) {
+            despawnQueue.remove(object);
+            return;
+        }
+        if (objectIndices.containsKey(object) || spawnSet.contains(object)) {
+            throw new IllegalArgumentException(object + " is already in the world");
+        }
+        if (object.isInPool()) {
+            throw new IllegalArgumentException(object + " was released to a pool");
+        }
+        checkStorage(object, columns != null);
+        spawnSet.add(object);
+        spawnQueue.add(object);
+        object.setSpawnPending(true);
+    }
+
+    /**
+     * Reports that two objects are touching. If one of the objects is
+     * sleeping and the other one is awake, the sleeping object wakes up.
+     * Objects that touch each other fall asleep together. Does nothing if
+     * the simulation was not created with
+     * {@link WorldBuilder#withSleeping(double, int) sleeping} enabled.
+     *
+     * @param a
+     *            One object.
+     * @param b
+     *            The other object.
+     */
+    public void reportContact(PhysicalObject a, PhysicalObject b) {
+        SleepTracker sleepTracker = this.sleepTracker;
+        if (sleepTracker != null) {
+            sleepTracker.reportContact(a, b);
+        }
+    }
+
     @Override
     public Iterator<PhysicalObject> iterator() {
         return world.iterator();
     }
 
+    private void runStages(StepPhase phase, double deltaTime) {
+        for (StepStage stage : stages[phase.ordinal()]) {
+            stage.run(this, deltaTime);
+        }
+    }
+
+    /**
+     * Picks the amount of substeps for a step.
+     *
+     * @param deltaTime
+     *            Length of the step.
+     * @return The amount of substeps.
+     */
+    private int startSubsteps(double deltaTime) {
+        SubstepScheduler substepScheduler = this.substepScheduler;
+        substepCount = substepScheduler == null ? 1 : substepScheduler.getSubsteps(deltaTime);
+        return substepCount;
+    }
+
+    private void supervise() {
+        for (Supervisor supervisor : supervisors) {
+            supervisor.check(this);
+        }
+    }
+
+    private void updateSleeping() {
+        SleepTracker sleepTracker = this.sleepTracker;
+        if (sleepTracker != null) {
+            sleepTracker.update(objects, objectCount, objectIndices);
+        }
+    }
+
     @Override
     public void toDrawing(Canvas canvas) {
         world.forEach(object -> object.getShape().toDrawing(canvas));
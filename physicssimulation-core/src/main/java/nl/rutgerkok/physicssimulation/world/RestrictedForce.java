@@ -0,0 +1,84 @@
+package nl.rutgerkok.physicssimulation.world;
+
+import java.util.Objects;
+import java.util.Set;
+
+import nl.rutgerkok.physicssimulation.shape.Material;
+import nl.rutgerkok.physicssimulation.vector.MutableVector;
+import nl.rutgerkok.physicssimulation.vector.Vector;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * A force that only sees the objects of some materials.
+ *
+ * <p>
+ * The filtered view of the world is looked up once per step, in
+ * {@link #prepare(WorldView)}, and then reused for every object.
+ * </p>
+ *
+ * @see Force#restrictTo(Material, Material...)
+ */
+final class RestrictedForce implements Force {
+
+    private final Force force;
+    private final Set<Material> materials;
+
+    /**
+     * Only used if there is exactly one material, as filtering on a single
+     * material is faster.
+     */
+    private final Material singleMaterial;
+
+    /**
+     * The world passed to {@link #prepare(WorldView)}, and the filtered view
+     * of it.
+     */
+    private @Nullable WorldView preparedWorld;
+    private @Nullable WorldView preparedView;
+
+    RestrictedForce(Force force, Set<Material> materials) {
+        if (materials.isEmpty()) {
+            throw new IllegalArgumentException("No materials given");
+        }
+        this.force = Objects.requireNonNull(force);
+        this.materials = materials;
+        this.singleMaterial = materials.iterator().next();
+    }
+
+    @Override
+    public Vector calculate(PhysicalObject object, WorldView otherObjects) {
+        return force.calculate(object, filter(otherObjects));
+    }
+
+    @Override
+    public void calculate(PhysicalObject object, WorldView otherObjects, MutableVector result) {
+        force.calculate(object, filter(otherObjects), result);
+    }
+
+    private WorldView filter(WorldView otherObjects) {
+        WorldView preparedView = this.preparedView;
+        if (otherObjects == preparedWorld && preparedView != null) {
+            return preparedView;
+        }
+        if (materials.size() == 1) {
+            return otherObjects.filterOnMaterial(singleMaterial);
+        }
+        return otherObjects.filterOnMaterials(materials);
+    }
+
+    @Override
+    public void prepare(WorldView otherObjects) {
+        // Don't use the view of the previous step, objects may have changed
+        this.preparedView = null;
+        WorldView view = filter(otherObjects);
+        this.preparedWorld = otherObjects;
+        this.preparedView = view;
+        force.prepare(view);
+    }
+
+    @Override
+    public String toString() {
+        return force + ".restrictTo(" + materials + ")";
+    }
+}
@@ -0,0 +1,185 @@
+package nl.rutgerkok.physicssimulation.world;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Puts objects to sleep when they have been resting for a while.
+ *
+ * <p>
+ * Objects are grouped into islands: objects that touch each other, directly
+ * or through other objects, form an island. Objects with an infinite mass
+ * never sleep, and don't connect islands: a pile of objects on the floor is
+ * a different island than a pile of objects elsewhere on the same floor. An
+ * island only falls asleep if all of its objects have been moving slowly for
+ * long enough. Otherwise, a pile would fall asleep from the bottom up, and
+ * the objects on top would sink into the sleeping objects.
+ * </p>
+ *
+ * @see WorldBuilder#withSleeping(double, int)
+ */
+final class SleepTracker {
+
+    private final double squaredVelocityThreshold;
+    private final int steps;
+
+    /**
+     * Objects reported to be touching in this step, at index 2i and 2i + 1.
+     */
+    private PhysicalObject[] contacts = new PhysicalObject[32];
+    private int contactCount;
+
+    /**
+     * Union-find forest of the islands, indexed like the objects of the
+     * simulation.
+     */
+    private int[] parents = new int[0];
+    private int[] islandSizes = new int[0];
+    private boolean[] isIslandResting = new boolean[0];
+    private PhysicalObject[][] islandMembers = new PhysicalObject[0][];
+
+    /**
+     * Creates a new tracker.
+     *
+     * @param velocityThreshold
+     *            Objects moving slower than this are resting.
+     * @param steps
+     *            Amount of steps that all objects of an island must be resting
+     *            before the island falls asleep.
+     */
+    SleepTracker(double velocityThreshold, int steps) {
+        this.squaredVelocityThreshold = velocityThreshold * velocityThreshold;
+        this.steps = steps;
+    }
+
+    private int findIsland(int object) {
+        int root = object;
+        while (parents[root] != root) {
+            root = parents[root];
+        }
+        // Path compression
+        while (parents[object] != root) {
+            int next = parents[object];
+            parents[object] = root;
+            object = next;
+        }
+        return root;
+    }
+
+    private boolean isDynamic(PhysicalObject object) {
+        return object.getInvertedMass() != 0;
+    }
+
+    /**
+     * Called when two objects touch. If one of them is awake and the other is
+     * sleeping, the sleeping object (and its island) is woken up.
+     *
+     * @param a
+     *            One object.
+     * @param b
+     *            The other object.
+     */
+    void reportContact(PhysicalObject a, PhysicalObject b) {
+        if (!isDynamic(a) || !isDynamic(b)) {
+            // Objects with infinite mass never wake up other objects
+            return;
+        }
+        if (a.isSleeping() && b.isSleeping()) {
+            return;
+        }
+        a.wakeUp();
+        b.wakeUp();
+
+        if (contactCount * 2 + 2 > contacts.length) {
+            contacts = Arrays.copyOf(contacts, contacts.length * 2);
+        }
+        contacts[contactCount * 2] = a;
+        contacts[contactCount * 2 + 1] = b;
+        contactCount++;
+    }
+
+    /**
+     * Puts the islands to sleep that have been resting long enough. Must be
+     * called at the end of every step.
+     *
+     * @param objects
+     *            All objects of the simulation.
+     * @param count
+     *            Amount of objects in the array to use.
+     * @param indices
+     *            Index of every object in the array.
+     */
+    void update(PhysicalObject[] objects, int count, Map<PhysicalObject, Integer> indices) {
+        if (parents.length < count) {
+            parents = new int[count];
+            islandSizes = new int[count];
+            isIslandResting = new boolean[count];
+            islandMembers = new PhysicalObject[count][];
+        }
+        for (int i = 0; i < count; i++) {
+            parents[i] = i;
+        }
+
+        // Build islands from the contacts
+        for (int i = 0; i < contactCount; i++) {
+            Integer first = indices.get(contacts[i * 2]);
+            Integer second = indices.get(contacts[i * 2 + 1]);
+            if (first != null && second != null) {
+                parents[findIsland(first)] = findIsland(second);
+            }
+        }
+        Arrays.fill(contacts, 0, contactCount * 2, null);
+        contactCount = 0;
+
+        // Count resting steps, and check whether islands are resting
+        Arrays.fill(islandSizes, 0, count, 0);
+        Arrays.fill(isIslandResting, 0, count, true);
+        for (int i = 0; i < count; i++) {
+            PhysicalObject object = objects[i];
+            if (object.isSleeping() || !isDynamic(object)) {
+                continue;
+            }
+            if (object.getVelocity().getSquaredLength() <= squaredVelocityThreshold) {
+                object.restingSteps++;
+            } else {
+                object.restingSteps = 0;
+            }
+            int island = findIsland(i);
+            islandSizes[island]++;
+            if (object.restingSteps < steps) {
+                isIslandResting[island] = false;
+            }
+        }
+
+        // Collect the objects of the resting islands
+        for (int i = 0; i < count; i++) {
+            PhysicalObject object = objects[i];
+            if (object.isSleeping() || !isDynamic(object)) {
+                continue;
+            }
+            int island = findIsland(i);
+            if (!isIslandResting[island]) {
+                continue;
+            }
+            PhysicalObject[] members = islandMembers[island];
+            if (members == null) {
+                members = new PhysicalObject[islandSizes[island]];
+                islandMembers[island] = members;
+            }
+            members[--islandSizes[island]] = object;
+        }
+
+        // Put them to sleep
+        for (int i = 0; i < count; i++) {
+            int island = findIsland(i);
+            PhysicalObject[] members = islandMembers[island];
+            if (members == null) {
+                continue;
+            }
+            islandMembers[island] = null;
+            for (PhysicalObject member : members) {
+                member.sleep(members);
+            }
+        }
+    }
+}
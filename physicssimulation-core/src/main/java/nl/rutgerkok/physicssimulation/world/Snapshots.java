@@ -0,0 +1,206 @@
+package nl.rutgerkok.physicssimulation.world;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+import nl.rutgerkok.physicssimulation.shape.Circle;
+import nl.rutgerkok.physicssimulation.shape.Material;
+import nl.rutgerkok.physicssimulation.shape.Rectangle;
+import nl.rutgerkok.physicssimulation.shape.Shape;
+import nl.rutgerkok.physicssimulation.shape.Sphere;
+import nl.rutgerkok.physicssimulation.vector.Vector;
+
+/**
+ * Saves the objects of a simulation to a file, and loads them again. This can
+ * be used to continue a long simulation later, or to try out multiple
+ * scenarios starting from the same state.
+ *
+ * <p>
+ * Only the objects are saved: their shapes, velocities and materials. Forces,
+ * supervisors and the other settings of the {@link WorldBuilder} are code, not
+ * state, so they must be added again after loading:
+ * </p>
+ *
+ * <pre>
+ * Snapshots.write(simulation, file);
+ * PhysicsSimulation copy = Snapshots.read(file)
+ *         .withForce(Forces.GRAVITY)
+ *         .withSupervisor(new CollisionSupervisor())
+ *         .create();
+ * </pre>
+ *
+ * <p>
+ * The file is stored in columns, just like
+ * {@link WorldBuilder#withColumnarStorage() columnar storage}: first all
+ * centers, then all velocities, and so on. All numbers are little-endian. The
+ * layout is:
+ * </p>
+ *
+ * <ol>
+ * <li>A header of four ints: the magic number {@code "PSIM"}, the version of
+ * the format, the dimension d and the amount of objects n. For an empty
+ * world, the dimension is 0.</li>
+ * <li>n * d doubles: the centers of the objects.</li>
+ * <li>n * d doubles: the velocities of the objects.</li>
+ * <li>n * d doubles: the extents of the objects, see
+ * {@link Shape#getExtent(int)}. For circles and spheres, these are all equal
+ * to the radius.</li>
+ * <li>n bytes: the types of the shapes, 0 for circles, 1 for spheres and 2
+ * for rectangles.</li>
+ * <li>n bytes: the {@link Material#ordinal() ordinals} of the materials.</li>
+ * </ol>
+ */
+public final class Snapshots {
+
+    private static final int MAGIC = 'P' | 'S' << 8 | 'I' << 16 | 'M' << 24;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 * Integer.BYTES;
+
+    private static final byte CIRCLE = 0;
+    private static final byte SPHERE = 1;
+    private static final byte RECTANGLE = 2;
+
+    private static Shape createShape(byte type, double[] centers, double[] extents, int start, Path file)
+            throws IOException {
+        switch (type) {
+            case CIRCLE:
+                return Circle.circle(Vector.vec2(centers[start], centers[start + 1]), extents[start]);
+            case SPHERE:
+                return Sphere.sphere(Vector.vec3(centers[start], centers[start + 1], centers[start + 2]),
+                        extents[start]);
+            case RECTANGLE:
+                return Rectangle.rectangle(
+                        Vector.vec2(centers[start] - extents[start], centers[start + 1] - extents[start + 1]),
+                        Vector.vec2(centers[start] + extents[start], centers[start + 1] + extents[start + 1]));
+            default:
+                throw new IOException("Unknown shape type " + type + " in " + file);
+        }
+    }
+
+    private static byte getShapeType(Shape shape, int dimension) {
+        if (shape instanceof Circle && dimension == 2) {
+            return CIRCLE;
+        }
+        if (shape instanceof Sphere && dimension == 3) {
+            return SPHERE;
+        }
+        if (shape instanceof Rectangle && dimension == 2) {
+            return RECTANGLE;
+        }
+        throw new IllegalArgumentException("Cannot save shape " + shape);
+    }
+
+    /**
+     * Loads the objects saved by {@link #write(PhysicsSimulation, Path)}. The
+     * file is mapped into memory, and every column is read at once.
+     *
+     * @param file
+     *            The file.
+     * @return A new world builder containing the objects, in the order in
+     *         which they were saved. All objects are awake.
+     * @throws IOException
+     *             If the file cannot be read, or is not a valid snapshot.
+     */
+    public static WorldBuilder read(Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Not a snapshot: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a snapshot: " + file);
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version + " in " + file);
+        }
+        int dimension = buffer.getInt();
+        int count = buffer.getInt();
+        if ((dimension != 2 && dimension != 3 && (dimension != 0 || count != 0)) || count < 0
+                || buffer.remaining() != (long) count * (3 * dimension * Double.BYTES + 2)) {
+            throw new IOException("Corrupt snapshot: " + file);
+        }
+
+        double[] centers = new double[count * dimension];
+        double[] velocities = new double[count * dimension];
+        double[] extents = new double[count * dimension];
+        buffer.asDoubleBuffer().get(centers).get(velocities).get(extents);
+        byte[] shapeTypes = new byte[count];
+        byte[] materials = new byte[count];
+        buffer.position(buffer.position() + 3 * count * dimension * Double.BYTES);
+        buffer.get(shapeTypes).get(materials);
+
+        Material[] allMaterials = Material.values();
+        WorldBuilder builder = WorldBuilder.newWorld();
+        for (int i = 0; i < count; i++) {
+            int start = i * dimension;
+            if (materials[i] < 0 || materials[i] >= allMaterials.length) {
+                throw new IOException("Unknown material " + materials[i] + " in " + file);
+            }
+            Shape shape = createShape(shapeTypes[i], centers, extents, start, file);
+            if (shape.getCenter().getDimension() != dimension) {
+                throw new IOException("Shape type " + shapeTypes[i] + " doesn't match dimension " + dimension
+                        + " in " + file);
+            }
+            double[] velocity = new double[dimension];
+            System.arraycopy(velocities, start, velocity, 0, dimension);
+            builder.withObject(PhysicalObject.obj(shape, Vector.vec(velocity), allMaterials[materials[i]]));
+        }
+        return builder;
+    }
+
+    /**
+     * Saves the objects of the simulation to a file. Must be called between
+     * steps. Objects that are waiting to be spawned or despawned are saved as
+     * they are in the world now: not yet spawned, or not yet despawned.
+     *
+     * @param simulation
+     *            The simulation.
+     * @param file
+     *            The file. If it exists, it is overwritten.
+     * @throws IOException
+     *             If writing fails.
+     * @throws IllegalArgumentException
+     *             If an object has a shape that cannot be saved. Circles,
+     *             spheres and rectangles can be saved.
+     */
+    public static void write(PhysicsSimulation simulation, Path file) throws IOException {
+        Objects.requireNonNull(file, "file");
+        WorldView world = simulation.getWorld();
+        int count = world.size();
+        int dimension = count == 0 ? 0 : world.getZeroVector().getDimension();
+
+        double[] centers = new double[count * dimension];
+        double[] velocities = new double[count * dimension];
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + count * (3 * dimension * Double.BYTES + 2))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(dimension).putInt(count);
+        int extentsStart = HEADER_SIZE + 2 * count * dimension * Double.BYTES;
+        int typesStart = extentsStart + count * dimension * Double.BYTES;
+        world.forEachIndexed((object, i) -> {
+            // Where the object really is, also if its velocity was replaced
+            object.readState(centers, velocities, i * dimension);
+            for (int axis = 0; axis < dimension; axis++) {
+                buffer.putDouble(extentsStart + (i * dimension + axis) * Double.BYTES, object.getExtent(axis));
+            }
+            buffer.put(typesStart + i, getShapeType(object.getShape(), dimension));
+            buffer.put(typesStart + count + i, (byte) object.getMaterial().ordinal());
+        });
+        buffer.asDoubleBuffer().put(centers).put(velocities);
+        buffer.rewind();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+}
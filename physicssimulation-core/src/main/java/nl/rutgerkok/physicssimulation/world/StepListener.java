@@ -0,0 +1,20 @@
+package nl.rutgerkok.physicssimulation.world;
+
+/**
+ * Receives the {@link StepMetrics metrics} of every step of a simulation.
+ *
+ * @see WorldBuilder#withListener(StepListener)
+ */
+public interface StepListener {
+
+    /**
+     * Called after every step.
+     *
+     * @param simulation
+     *            The simulation that was advanced.
+     * @param metrics
+     *            The metrics of the step. The same instance is reused for the
+     *            next step, so copy any values that must be kept.
+     */
+    void stepFinished(PhysicsSimulation simulation, StepMetrics metrics);
+}
@@ -0,0 +1,228 @@
+package nl.rutgerkok.physicssimulation.world;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Measurements of a single step of a simulation. Only collected when at
+ * least one {@link StepListener} is registered, so that simulations without
+ * listeners don't spend any time on measuring.
+ *
+ * <p>
+ * Supervisors can report what they did during the step using
+ * {@link #add(Counter, long)}. They can get the metrics of the current step
+ * using {@link PhysicsSimulation#getStepMetrics()}.
+ * </p>
+ *
+ * <p>
+ * Instances are not thread-safe, and are reused for every step.
+ * </p>
+ */
+public final class StepMetrics {
+
+    /**
+     * Things that can be counted during a step.
+     */
+    public enum Counter {
+        /**
+         * Pairs of objects that need to be checked for a collision, as found
+         * by the broad phase.
+         */
+        CANDIDATE_PAIRS,
+        /**
+         * Pairs of objects that actually overlap.
+         */
+        COLLISIONS,
+        /**
+         * Fast objects that would have passed through another object during
+         * the step, found by continuous collision detection.
+         */
+        CONTINUOUS_COLLISIONS,
+        /**
+         * Impulses applied to make colliding objects bounce off each other.
+         */
+        IMPULSES
+    }
+
+    /**
+     * Used to measure allocated memory, or null if the JVM doesn't support
+     * that.
+     */
+    private static final com.sun.management.@Nullable ThreadMXBean THREADS = findThreadBean();
+
+    private static com.sun.management.@Nullable ThreadMXBean findThreadBean() {
+        try {
+            java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            if (threads instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+                if (sunThreads.isThreadAllocatedMemorySupported() && sunThreads.isThreadAllocatedMemoryEnabled()) {
+                    return sunThreads;
+                }
+            }
+        } catch (LinkageError | SecurityException e) {
+            // Not available on this JVM
+        }
+        return null;
+    }
+
+    private static long getAllocatedBytesOfThread() {
+        com.sun.management.ThreadMXBean threads = THREADS;
+        if (threads == null) {
+            return -1;
+        }
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private final List<Supervisor> supervisors;
+    private long step;
+    private final long[] phaseNanos = new long[StepPhase.values().length];
+    private final long[] supervisorNanos;
+    private final long[] counters = new long[Counter.values().length];
+    private long allocatedBytes;
+
+    StepMetrics(List<Supervisor> supervisors) {
+        this.supervisors = supervisors;
+        this.supervisorNanos = new long[supervisors.size()];
+    }
+
+    /**
+     * Adds to one of the counters of the current step.
+     *
+     * @param counter
+     *            The counter.
+     * @param amount
+     *            The amount to add.
+     */
+    public void add(Counter counter, long amount) {
+        counters[counter.ordinal()] += amount;
+    }
+
+    /**
+     * Called at the end of the step.
+     */
+    void finishStep() {
+        if (allocatedBytes != -1) {
+            allocatedBytes = getAllocatedBytesOfThread() - allocatedBytes;
+        }
+    }
+
+    /**
+     * Gets the amount of memory that was allocated during the step by the
+     * thread calling {@link PhysicsSimulation#advance(double)}. Memory
+     * allocated by other threads, like those used for
+     * {@link WorldBuilder#withParallelism(int) calculating forces in
+     * parallel}, is not included.
+     *
+     * @return The amount of bytes, or -1 if the JVM cannot measure this.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Gets one of the counters of the step.
+     *
+     * @param counter
+     *            The counter.
+     * @return The value of the counter.
+     */
+    public long getCount(Counter counter) {
+        return counters[counter.ordinal()];
+    }
+
+    /**
+     * Gets the time spent in the given phase of the step. This includes the
+     * time of the {@link StepStage stages} of that phase.
+     *
+     * @param phase
+     *            The phase.
+     * @return The time, in nanoseconds.
+     */
+    public long getNanos(StepPhase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * Gets the number of the step, starting at 1 for the first step with
+     * listeners.
+     *
+     * @return The number.
+     */
+    public long getStep() {
+        return step;
+    }
+
+    /**
+     * Gets the time spent in {@link Supervisor#check(PhysicsSimulation)} of a
+     * supervisor.
+     *
+     * @param index
+     *            Index of the supervisor in {@link #getSupervisors()}.
+     * @return The time, in nanoseconds.
+     * @throws IndexOutOfBoundsException
+     *             If there is no supervisor at the given index.
+     */
+    public long getSupervisorNanos(int index) {
+        return supervisorNanos[index];
+    }
+
+    /**
+     * Gets all supervisors of the simulation, in the order in which they run.
+     *
+     * @return The supervisors.
+     */
+    public List<Supervisor> getSupervisors() {
+        return supervisors;
+    }
+
+    /**
+     * Sets the time spent in a phase.
+     *
+     * @param phase
+     *            The phase.
+     * @param nanos
+     *            The time, in nanoseconds.
+     */
+    void setNanos(StepPhase phase, long nanos) {
+        phaseNanos[phase.ordinal()] = nanos;
+    }
+
+    /**
+     * Sets the time spent in a supervisor.
+     *
+     * @param index
+     *            Index of the supervisor.
+     * @param nanos
+     *            The time, in nanoseconds.
+     */
+    void setSupervisorNanos(int index, long nanos) {
+        supervisorNanos[index] = nanos;
+    }
+
+    /**
+     * Called at the start of the step. Clears all values of the previous
+     * step.
+     */
+    void startStep() {
+        step++;
+        Arrays.fill(phaseNanos, 0);
+        Arrays.fill(supervisorNanos, 0);
+        Arrays.fill(counters, 0);
+        allocatedBytes = getAllocatedBytesOfThread();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("StepMetrics[step=").append(step);
+        for (StepPhase phase : StepPhase.values()) {
+            builder.append(", ").append(phase).append('=').append(phaseNanos[phase.ordinal()]).append("ns");
+        }
+        for (Counter counter : Counter.values()) {
+            builder.append(", ").append(counter).append('=').append(counters[counter.ordinal()]);
+        }
+        return builder.append(", allocatedBytes=").append(allocatedBytes).append(']').toString();
+    }
+}
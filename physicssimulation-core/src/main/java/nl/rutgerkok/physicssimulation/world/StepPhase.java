@@ -0,0 +1,28 @@
+package nl.rutgerkok.physicssimulation.world;
+
+/**
+ * The phases of a single step of a simulation, in the order in which they
+ * run. After each phase, the {@link StepStage stages} added for that phase
+ * are run.
+ *
+ * @see PhysicsSimulation#advance(double)
+ * @see WorldBuilder#withStage(StepPhase, StepStage)
+ */
+public enum StepPhase {
+    /**
+     * The forces on all objects are calculated. No object is moved yet, so
+     * every force sees the world as it was at the start of the step.
+     */
+    FORCES,
+    /**
+     * The new velocities and positions of all objects are calculated from the
+     * forces. They are first written to a separate buffer, and only become
+     * visible once all objects have been integrated.
+     */
+    INTEGRATION,
+    /**
+     * The {@link Supervisor}s check the world, for example to make colliding
+     * objects bounce off each other.
+     */
+    SUPERVISION
+}
@@ -0,0 +1,21 @@
+package nl.rutgerkok.physicssimulation.world;
+
+/**
+ * Extra work that runs after one of the {@link StepPhase phases} of every
+ * step.
+ *
+ * @see WorldBuilder#withStage(StepPhase, StepStage)
+ */
+public interface StepStage {
+
+    /**
+     * Runs the stage.
+     *
+     * @param simulation
+     *            The simulation that is being advanced.
+     * @param deltaTime
+     *            The time step passed to
+     *            {@link PhysicsSimulation#advance(double)}.
+     */
+    void run(PhysicsSimulation simulation, double deltaTime);
+}
@@ -0,0 +1,116 @@
+package nl.rutgerkok.physicssimulation.world;
+
+/**
+ * Decides in how many substeps a step is split, based on how violent the
+ * previous step was.
+ *
+ * <p>
+ * During a substep, no object should move more than a fraction of its
+ * extent. For an object with speed v and acceleration a, a substep of length
+ * h moves the object about {@code v * h + a * h * h}. The scheduler remembers
+ * the highest speed and acceleration relative to the extent of the objects,
+ * and picks the amount of substeps so that both terms stay within the
+ * fraction.
+ * </p>
+ */
+final class SubstepScheduler {
+
+    private final int minSubsteps;
+    private final int maxSubsteps;
+    private final double maxMovement;
+
+    /**
+     * Highest speed divided by extent seen in the previous step, in 1/s.
+     */
+    private double maxSpeedRatio;
+
+    /**
+     * Highest acceleration divided by extent seen in the previous step, in
+     * 1/s^2.
+     */
+    private double maxAccelerationRatio;
+
+    /**
+     * Creates a new scheduler.
+     *
+     * @param minSubsteps
+     *            Minimum amount of substeps, at least 1.
+     * @param maxSubsteps
+     *            Maximum amount of substeps, at least the minimum.
+     * @param maxMovement
+     *            Maximum movement during a substep, as a fraction of the
+     *            extent of an object.
+     */
+    SubstepScheduler(int minSubsteps, int maxSubsteps, double maxMovement) {
+        this.minSubsteps = minSubsteps;
+        this.maxSubsteps = maxSubsteps;
+        this.maxMovement = maxMovement;
+    }
+
+    /**
+     * Gets the amount of substeps for the next step.
+     *
+     * @param deltaTime
+     *            Length of the next step.
+     * @return The amount of substeps.
+     */
+    int getSubsteps(double deltaTime) {
+        double forSpeed = deltaTime * maxSpeedRatio / maxMovement;
+        double forAcceleration = deltaTime * Math.sqrt(maxAccelerationRatio / maxMovement);
+        double substeps = Math.ceil(Math.max(forSpeed, forAcceleration));
+        if (!(substeps <= maxSubsteps)) {
+            // Also catches NaN
+            return maxSubsteps;
+        }
+        return Math.max(minSubsteps, (int) substeps);
+    }
+
+    /**
+     * Measures how fast the objects moved during the last substep. Sleeping
+     * objects and objects of infinite mass are ignored.
+     *
+     * @param objects
+     *            The objects.
+     * @param count
+     *            Amount of objects in the array.
+     * @param forces
+     *            The forces of the last substep.
+     * @param deltaTime
+     *            Length of the last substep.
+     */
+    void observe(PhysicalObject[] objects, int count, ForceEvaluator forces, double deltaTime) {
+        double speedRatio = 0;
+        double accelerationRatio = 0;
+        for (int i = 0; i < count; i++) {
+            PhysicalObject object = objects[i];
+            double invertedMass = object.getInvertedMass();
+            if (invertedMass == 0 || object.isSleeping()) {
+                continue;
+            }
+            int dimension = object.getVelocity().getDimension();
+            double distanceSquared = 0;
+            double forceSquared = 0;
+            double smallestExtent = Double.POSITIVE_INFINITY;
+            for (int axis = 0; axis < dimension; axis++) {
+                double distance = object.getCenterCoord(axis) - object.getPreviousCenterCoord(axis);
+                double force = forces.getForce(i, axis);
+                distanceSquared += distance * distance;
+                forceSquared += force * force;
+                smallestExtent = Math.min(smallestExtent, object.getExtent(axis));
+            }
+            if (smallestExtent <= 0) {
+                continue;
+            }
+            speedRatio = Math.max(speedRatio, Math.sqrt(distanceSquared) / deltaTime / smallestExtent);
+            accelerationRatio = Math.max(accelerationRatio, Math.sqrt(forceSquared) * invertedMass / smallestExtent);
+        }
+        this.maxSpeedRatio = speedRatio;
+        this.maxAccelerationRatio = accelerationRatio;
+    }
+
+    @Override
+    public String toString() {
+        return "SubstepScheduler(minSubsteps=" + minSubsteps + ", maxSubsteps=" + maxSubsteps
+                + ", maxMovement=" + maxMovement + ")";
+    }
+}
@@ -22,4 +22,13 @@ public interface Supervisor
     default void changeVelocity(PhysicalObject object, Vector velocity) {
         object.replaceVelocity(velocity);
     }
+
+    /**
+     * Moves the given object, without changing its velocity.
+     * @param object The object.
+     * @param offset How much to move the object.
+     */
+    default void move(PhysicalObject object, Vector offset) {
+        object.move(offset);
+    }
 }
@@ -1,7 +1,9 @@
 package nl.rutgerkok.physicssimulation.world;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import nl.rutgerkok.physicssimulation.shape.Sphere;
@@ -43,12 +45,26 @@ public final class WorldBuilder {
 
     final List<PhysicalObject> objects = new ArrayList<>();
     final List<Force> forces = new ArrayList<>();
+    final List<Force> slowForces = new ArrayList<>();
+    int fastSteps = 1;
     final List<Supervisor> supervisors = new ArrayList<>();
     @Nullable
     Vector zero;
+    boolean columnarStorage = false;
+    int parallelism = 1;
+    final Map<StepPhase, List<StepStage>> stages = new EnumMap<>(StepPhase.class);
+    final List<StepListener> listeners = new ArrayList<>();
+    double sleepVelocityThreshold = -1;
+    int sleepSteps;
+    double maxSubstepMovement = -1;
+    int minSubsteps = 1;
+    int maxSubsteps = 1;
+    Integrator integrator = Integrator.SYMPLECTIC_EULER;
 
     private WorldBuilder() {
-
+        for (StepPhase phase : StepPhase.values()) {
+            stages.put(phase, new ArrayList<>());
+        }
     }
 
     private void checkDimension(PhysicalObject object) {
@@ -69,6 +85,11 @@ public final class WorldBuilder {
      * Creates the world.
      *
      * @return The world.
+     * @throws IllegalStateException
+     *             If one of the objects is already in a simulation with
+     *             {@link #withColumnarStorage() columnar storage}, or if this
+     *             world uses columnar storage and one of the objects is
+     *             already in another simulation.
      */
     public PhysicsSimulation create() {
         return new PhysicsSimulation(this);
@@ -76,11 +97,82 @@ public final class WorldBuilder {
 
     @Override
     public String toString() {
-        return "WorldBuilder [objects=" + objects + ", forces=" + forces + ", supervisors=" + supervisors + "]";
+        return "WorldBuilder [objects=" + objects + ", forces=" + forces + ", supervisors=" + supervisors
+                + ", columnarStorage=" + columnarStorage + ", parallelism=" + parallelism
+                + ", sleepVelocityThreshold=" + sleepVelocityThreshold + ", sleepSteps=" + sleepSteps
+                + ", maxSubstepMovement=" + maxSubstepMovement + ", minSubsteps=" + minSubsteps
+                + ", maxSubsteps=" + maxSubsteps + ", integrator=" + integrator + ", slowForces=" + slowForces
+                + ", fastSteps=" + fastSteps + "]";
+    }
+
+    /**
+     * Splits every {@link PhysicsSimulation#advance(double) step} into
+     * substeps when objects move fast or are pushed hard, so that quiet steps
+     * stay cheap while violent steps are still calculated accurately. This
+     * way, callers no longer need to pick a small time step for the worst
+     * case.
+     *
+     * <p>
+     * The amount of substeps is chosen from the previous step: the substeps
+     * are made short enough that no object moves more than the given fraction
+     * of its extent (half of its size) during a substep, either from its
+     * velocity or from the acceleration caused by the forces on it. The first
+     * step uses the minimum amount of substeps.
+     * </p>
+     *
+     * @param minSubsteps
+     *            Minimum amount of substeps per step.
+     * @param maxSubsteps
+     *            Maximum amount of substeps per step.
+     * @param maxMovement
+     *            Maximum movement of an object during a substep, as a
+     *            fraction of its extent. Values from 0.1 to 1 work well.
+     * @return The world builder, for chaining.
+     * @throws IllegalArgumentException
+     *             If the minimum is less than 1, if the maximum is less than
+     *             the minimum, or if the movement is not positive.
+     */
+    public WorldBuilder withAdaptiveStepping(int minSubsteps, int maxSubsteps, double maxMovement) {
+        if (minSubsteps < 1) {
+            throw new IllegalArgumentException("Invalid minimum amount of substeps: " + minSubsteps);
+        }
+        if (maxSubsteps < minSubsteps) {
+            throw new IllegalArgumentException("Maximum amount of substeps (" + maxSubsteps
+                    + ") is less than the minimum (" + minSubsteps + ")");
+        }
+        if (!(maxMovement > 0) || Double.isInfinite(maxMovement)) {
+            throw new IllegalArgumentException("Invalid max movement: " + maxMovement);
+        }
+        this.minSubsteps = minSubsteps;
+        this.maxSubsteps = maxSubsteps;
+        this.maxSubstepMovement = maxMovement;
+        return this;
+    }
+
+    /**
+     * Stores the positions and velocities of all objects in large arrays,
+     * instead of in the objects themselves. This makes
+     * {@link PhysicsSimulation#advance(double)} a lot faster for worlds with
+     * many objects, as it no longer needs to create new shapes and vectors for
+     * every object. Instead, shapes and vectors are only created when they
+     * are requested.
+     *
+     * <p>
+     * An object in a simulation with columnar storage cannot be part of any
+     * other simulation.
+     * </p>
+     *
+     * @return The world builder, for chaining.
+     */
+    public WorldBuilder withColumnarStorage() {
+        this.columnarStorage = true;
+        return this;
     }
 
     /**
      * Add a force to the world. The force will be applied to all instances.
+     * Forces that change slowly can instead be added using
+     * {@link #withSlowForce(Force)}.
      *
      * @param force
      *            The force.
@@ -91,21 +183,179 @@ public final class WorldBuilder {
         return this;
     }
 
+    /**
+     * Sets the method used to calculate the new positions and velocities of
+     * the objects from the forces on them. The default is
+     * {@link Integrator#SYMPLECTIC_EULER}.
+     *
+     * @param integrator
+     *            The integrator.
+     * @return The world builder, for chaining.
+     */
+    public WorldBuilder withIntegrator(Integrator integrator) {
+        this.integrator = Objects.requireNonNull(integrator);
+        return this;
+    }
+
+    /**
+     * Adds a listener that receives the {@link StepMetrics metrics} of every
+     * step. Measuring takes a bit of time, so only add listeners when needed.
+     *
+     * @param listener
+     *            The listener.
+     * @return The world builder, for chaining.
+     */
+    public WorldBuilder withListener(StepListener listener) {
+        this.listeners.add(Objects.requireNonNull(listener));
+        return this;
+    }
+
+    /**
+     * Calculates the forces added using {@link #withForce(Force)} multiple
+     * times per step, using shorter time steps, while the
+     * {@link #withSlowForce(Force) slow forces} and the {@link Supervisor}s
+     * are still run once per step (multiple time stepping, as in r-RESPA).
+     * This is useful when some forces change quickly, like the repulsion
+     * between particles that get very close, while others change slowly,
+     * like gravity. The quickly changing forces need a short time step to
+     * stay accurate, but there's no need to calculate all the other forces
+     * at that rate too.
+     *
+     * @param fastSteps
+     *            Amount of times the normal forces are calculated per step.
+     *            The default is 1.
+     * @return The world builder, for chaining.
+     * @throws IllegalArgumentException
+     *             If the amount is less than 1.
+     */
+    public WorldBuilder withMultipleTimeSteps(int fastSteps) {
+        if (fastSteps < 1) {
+            throw new IllegalArgumentException("Invalid amount of fast steps: " + fastSteps);
+        }
+        this.fastSteps = fastSteps;
+        return this;
+    }
+
     /**
      * Adds an object to the world.
      *
      * @param object
      *            The object to add.
      * @return The world builder, for chaining.
+     * @throws IllegalStateException
+     *             If the object is already in a simulation with
+     *             {@link #withColumnarStorage() columnar storage}.
      */
     public WorldBuilder withObject(PhysicalObject object) {
         Objects.requireNonNull(object, "object");
         checkDimension(object);
+        PhysicsSimulation.checkStorage(object, false);
 
         this.objects.add(object);
         return this;
     }
 
+    /**
+     * Sets the amount of threads used to calculate the forces on the objects.
+     * The default is 1, so all forces are calculated on the thread calling
+     * {@link PhysicsSimulation#advance(double)}. The results are exactly the
+     * same for every amount of threads.
+     *
+     * <p>
+     * When using more than one thread, all {@link Force forces} must be safe
+     * to call from multiple threads at the same time. All built-in forces
+     * are. The threads are stopped by {@link PhysicsSimulation#close()}. If the
+     * amount is the same as for the
+     * {@link java.util.concurrent.ForkJoinPool#commonPool() common pool}, that
+     * pool is used instead of new threads.
+     * </p>
+     *
+     * @param parallelism
+     *            The amount of threads, at least 1.
+     * @return The world builder, for chaining.
+     * @throws IllegalArgumentException
+     *             If the amount of threads is less than 1.
+     */
+    public WorldBuilder withParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Invalid parallelism: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Lets objects fall asleep when they have come to rest. Sleeping objects
+     * are skipped when calculating forces, moving objects and checking
+     * collisions, which saves a lot of time in worlds where most objects are
+     * lying still, like piles of rocks.
+     *
+     * <p>
+     * Objects that touch each other fall asleep together, once all of them
+     * have been moving slower than the threshold for the given amount of
+     * steps. Objects with an infinite mass never sleep. A sleeping object wakes
+     * up when an awake object touches it, or when a {@link Supervisor}
+     * {@link Supervisor#changeVelocity(PhysicalObject, Vector) changes its
+     * velocity}. Supervisors must report touching objects using
+     * {@link PhysicsSimulation#reportContact(PhysicalObject, PhysicalObject)}.
+     * </p>
+     *
+     * @param velocityThreshold
+     *            Objects moving slower than this are considered to be resting.
+     * @param steps
+     *            Amount of steps objects must be resting before they fall
+     *            asleep.
+     * @return The world builder, for chaining.
+     * @throws IllegalArgumentException
+     *             If the threshold is negative or not a number, or if the
+     *             amount of steps is less than 1.
+     */
+    public WorldBuilder withSleeping(double velocityThreshold, int steps) {
+        if (!(velocityThreshold >= 0)) {
+            throw new IllegalArgumentException("Invalid velocity threshold: " + velocityThreshold);
+        }
+        if (steps < 1) {
+            throw new IllegalArgumentException("Invalid amount of steps: " + steps);
+        }
+        this.sleepVelocityThreshold = velocityThreshold;
+        this.sleepSteps = steps;
+        return this;
+    }
+
+    /**
+     * Adds a force that is calculated only once per step, even when the other
+     * forces are calculated {@link #withMultipleTimeSteps(int) multiple
+     * times}. The force is calculated at the end of every step, and changes
+     * the velocity of the objects as if it was applied during the whole step:
+     * half of the change at the end of the step, the other half at the start
+     * of the next step. Use this for forces that change slowly, like
+     * gravity.
+     *
+     * @param force
+     *            The force.
+     * @return The world builder, for chaining.
+     */
+    public WorldBuilder withSlowForce(Force force) {
+        this.slowForces.add(Objects.requireNonNull(force));
+        return this;
+    }
+
+    /**
+     * Adds a stage that runs after the given phase of every step. Stages of
+     * the same phase run in the order in which they were added.
+     *
+     * @param phase
+     *            The phase to run after.
+     * @param stage
+     *            The stage.
+     * @return The world builder, for chaining.
+     * @see PhysicsSimulation#advance(double) Overview of all phases
+     */
+    public WorldBuilder withStage(StepPhase phase, StepStage stage) {
+        this.stages.get(Objects.requireNonNull(phase)).add(Objects.requireNonNull(stage));
+        return this;
+    }
+
     /**
      * Adds a supervisor to the world.
      *
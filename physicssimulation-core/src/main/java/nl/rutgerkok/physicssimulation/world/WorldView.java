@@ -2,7 +2,9 @@ package nl.rutgerkok.physicssimulation.world;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.Set;
+import java.util.function.ObjIntConsumer;
 
 import nl.rutgerkok.physicssimulation.shape.Material;
 import nl.rutgerkok.physicssimulation.vector.Vector;
@@ -14,7 +16,10 @@ import org.eclipse.jdt.annotation.Nullable;
  * certain objects from interacting, for example.
  *
  * <p>
- * The world behaves as an immutable collection of {@link PhysicalObject}s.
+ * The world behaves as a collection of {@link PhysicalObject}s that cannot be
+ * modified through this interface. Objects are added and removed using
+ * {@link PhysicsSimulation#spawn(PhysicalObject)} and
+ * {@link PhysicsSimulation#despawn(PhysicalObject)}.
  */
 public interface WorldView extends Collection<PhysicalObject> {
 
@@ -62,6 +67,47 @@ public interface WorldView extends Collection<PhysicalObject> {
      */
     WorldView filterOnMaterials(Set<Material> materials);
 
+    /**
+     * Performs the given action for every object, together with its index.
+     * The index is the same as for {@link #get(int)}. For the views of the
+     * built-in worlds, this walks over an array without creating an iterator.
+     *
+     * @param action
+     *            The action.
+     */
+    default void forEachIndexed(ObjIntConsumer<PhysicalObject> action) {
+        int i = 0;
+        for (PhysicalObject object : this) {
+            action.accept(object, i);
+            i++;
+        }
+    }
+
+    /**
+     * Gets the object at the given index. Objects are indexed in the order in
+     * which they are iterated over. For the views of the built-in worlds, this
+     * is as fast as reading from an array, so it is the fastest way to loop
+     * over all objects. The default implementation walks over the iterator.
+     *
+     * @param index
+     *            The index, from 0 (inclusive) to {@link #size()} (exclusive).
+     * @return The object.
+     * @throws IndexOutOfBoundsException
+     *             If the index is out of range.
+     */
+    default PhysicalObject get(int index) {
+        if (index >= 0) {
+            Iterator<PhysicalObject> iterator = iterator();
+            for (int i = 0; iterator.hasNext(); i++) {
+                PhysicalObject object = iterator.next();
+                if (i == index) {
+                    return object;
+                }
+            }
+        }
+        throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+    }
+
     /**
      * Gets the 0-vector in the correct dimension for this world.
      * 
@@ -69,6 +115,23 @@ public interface WorldView extends Collection<PhysicalObject> {
      */
     Vector getZeroVector();
 
+    /**
+     * Gets a number that changes whenever objects in the world move, or are
+     * added or removed. Forces can compare it with the number at the time
+     * they last {@link Force#prepare(WorldView) prepared}, to find out
+     * whether their prepared data is still valid.
+     *
+     * <p>
+     * Only the views of a {@link PhysicsSimulation} keep track of this. Other
+     * views return -1, so that data prepared for them is never reused.
+     * </p>
+     *
+     * @return The number, or -1 if unknown.
+     */
+    default long getVersion() {
+        return -1;
+    }
+
     @Override
     default boolean isEmpty() {
         return size() == 0;
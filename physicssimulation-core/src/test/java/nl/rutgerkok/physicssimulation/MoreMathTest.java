@@ -18,8 +18,22 @@ public class MoreMathTest {
         MoreMath.clamp(5, 4, 4.5);
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativePower() {
+        MoreMath.pow(2, -1);
+    }
+
     @Test(expected = RuntimeException.class)
     public void testNoInstances() {
         new MoreMath();
     }
+
+    @Test
+    public void testPow() {
+        assertEquals(1, MoreMath.pow(3, 0), 0);
+        assertEquals(3, MoreMath.pow(3, 1), 0);
+        assertEquals(2187, MoreMath.pow(3, 7), 0);
+        assertEquals(4096, MoreMath.pow(-2, 12), 0);
+        assertEquals(Math.pow(1.1, 13), MoreMath.pow(1.1, 13), 1e-12);
+    }
 }
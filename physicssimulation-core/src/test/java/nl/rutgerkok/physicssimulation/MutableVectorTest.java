@@ -0,0 +1,68 @@
+package nl.rutgerkok.physicssimulation;
+
+import static nl.rutgerkok.physicssimulation.vector.Vector.vec2;
+import static nl.rutgerkok.physicssimulation.vector.Vector.vec3;
+import static org.junit.Assert.assertEquals;
+
+import nl.rutgerkok.physicssimulation.vector.MutableVector;
+
+import org.junit.Test;
+
+/**
+ * Tests for mutable vectors.
+ *
+ */
+public class MutableVectorTest {
+
+    @Test
+    public void testAdd() {
+        MutableVector vector = MutableVector.zero(2).add(vec2(1, 2)).add(vec2(3, -4));
+        assertEquals(vec2(4, -2), vector.toVector());
+    }
+
+    @Test
+    public void testAddScaled() {
+        MutableVector vector = MutableVector.zero(3).add(vec3(1, 1, 1)).addScaled(vec3(1, 2, 3), 2);
+        assertEquals(vec3(3, 5, 7), vector.toVector());
+    }
+
+    @Test
+    public void testAddToCoord() {
+        MutableVector vector = MutableVector.zero(3).addToCoord(2, 5).addToCoord(0, 1);
+        assertEquals(vec3(1, 0, 5), vector.toVector());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDimensionMismatch() {
+        MutableVector.zero(2).add(vec3(1, 2, 3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCoord() {
+        MutableVector.zero(2).addToCoord(2, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidDimension() {
+        MutableVector.zero(4);
+    }
+
+    @Test
+    public void testScaleAndSub() {
+        MutableVector vector = MutableVector.zero(2).add(vec2(2, 3)).scale(3).sub(vec2(1, 1));
+        assertEquals(vec2(5, 8), vector.toVector());
+        assertEquals(8, vector.getCoord(1), 0);
+    }
+
+    @Test
+    public void testSetZero() {
+        MutableVector vector = MutableVector.zero(3).add(vec3(2, 3, 4)).setZero();
+        assertEquals(vec3(0, 0, 0), vector.toVector());
+    }
+
+    @Test
+    public void testToString() {
+        assertEquals("MutableVector(1.0, 2.0)", MutableVector.zero(2).add(vec2(1, 2)).toString());
+        assertEquals("MutableVector(1.0, 2.0, 3.0)", MutableVector.zero(3).add(vec3(1, 2, 3)).toString());
+    }
+}
@@ -0,0 +1,96 @@
+package nl.rutgerkok.physicssimulation.collision;
+
+import static nl.rutgerkok.physicssimulation.collision.CollisionScenes.assertSameCollisions;
+import static nl.rutgerkok.physicssimulation.collision.CollisionScenes.assertUniquePairs;
+import static nl.rutgerkok.physicssimulation.collision.CollisionScenes.setupObjects2D;
+import static nl.rutgerkok.physicssimulation.collision.CollisionScenes.setupObjects3D;
+import static nl.rutgerkok.physicssimulation.collision.CollisionScenes.setupObjectsInBox;
+import static org.junit.Assert.assertFalse;
+
+import java.util.List;
+
+import nl.rutgerkok.physicssimulation.world.PhysicalObject;
+import nl.rutgerkok.physicssimulation.world.PhysicsSimulation;
+import nl.rutgerkok.physicssimulation.world.WorldBuilder;
+
+import org.junit.Test;
+
+public class BoundingVolumeHierarchyTest {
+
+    @Test
+    public void testChangedObjects() {
+        // Same broad phase, used for different sets of objects
+        BroadPhase broadPhase = new BoundingVolumeHierarchy();
+
+        assertSameCollisions(setupObjectsInBox(), broadPhase);
+        assertSameCollisions(setupObjects3D(), broadPhase);
+        assertSameCollisions(setupObjects3D().subList(0, 200), broadPhase);
+    }
+
+    @Test
+    public void testMovingObjects() {
+        // The trees are refitted in later steps
+        WorldBuilder builder = WorldBuilder.newWorld();
+        setupObjectsInBox().forEach(builder::withObject);
+        PhysicsSimulation simulation = builder.create();
+        BroadPhase broadPhase = new BoundingVolumeHierarchy();
+
+        for (int i = 0; i < 10; i++) {
+            assertSameCollisions(simulation, broadPhase);
+            simulation.advance(0.01);
+        }
+    }
+
+    @Test
+    public void testNoStaticPairs() {
+        List<PhysicalObject> objects = setupObjectsInBox();
+
+        new BoundingVolumeHierarchy().findPairs(objects, (first, second) -> {
+            assertFalse(objects.get(first).getInvertedMass() == 0 && objects.get(second).getInvertedMass() == 0);
+        });
+    }
+
+    @Test
+    public void testSameCollisions2D() {
+        assertSameCollisions(setupObjects2D(), new BoundingVolumeHierarchy());
+        assertSameCollisions(setupObjectsInBox(), new BoundingVolumeHierarchy());
+    }
+
+    @Test
+    public void testSameCollisions3D() {
+        assertSameCollisions(setupObjects3D(), new BoundingVolumeHierarchy());
+    }
+
+    @Test
+    public void testSpawnedAndDespawnedObjects() {
+        // The static tree is kept when other objects are added or removed
+        WorldBuilder builder = WorldBuilder.newWorld();
+        List<PhysicalObject> objects = setupObjectsInBox();
+        objects.forEach(builder::withObject);
+        PhysicsSimulation simulation = builder.create();
+        BroadPhase broadPhase = new BoundingVolumeHierarchy();
+        assertSameCollisions(simulation, broadPhase);
+
+        for (int i = 0; i < 300; i += 7) {
+            simulation.despawn(objects.get(i));
+        }
+        setupObjects2D().subList(0, 40).forEach(simulation::spawn);
+        simulation.advance(0.01);
+        assertSameCollisions(simulation, broadPhase);
+
+        // Removing a wall changes the static tree
+        simulation.despawn(objects.get(objects.size() - 1));
+        simulation.advance(0.01);
+        assertSameCollisions(simulation, broadPhase);
+    }
+
+    @Test
+    public void testUniquePairs() {
+        List<PhysicalObject> objects = setupObjectsInBox();
+        BroadPhase broadPhase = new BoundingVolumeHierarchy();
+
+        assertUniquePairs(objects, broadPhase);
+        assertUniquePairs(objects, broadPhase);
+        assertUniquePairs(setupObjects3D(), new BoundingVolumeHierarchy());
+    }
+}
@@ -0,0 +1,31 @@
+package nl.rutgerkok.physicssimulation.collision;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import org.junit.Test;
+
+public class BroadPhasesTest {
+
+    @Test(expected = RuntimeException.class)
+    public void testInstance() {
+        new BroadPhases();
+    }
+
+    @Test
+    public void testNewInstances() {
+        // Broad phases keep state, so they must not be shared
+        assertNotSame(BroadPhases.boundingVolumeHierarchy(), BroadPhases.boundingVolumeHierarchy());
+        assertNotSame(BroadPhases.sweepAndPrune(), BroadPhases.sweepAndPrune());
+        assertNotSame(BroadPhases.uniformGrid(), BroadPhases.uniformGrid());
+    }
+
+    @Test
+    public void testToString() {
+        assertEquals("BroadPhases.boundingVolumeHierarchy()", BroadPhases.boundingVolumeHierarchy().toString());
+        assertEquals("BroadPhases.bruteForce()", BroadPhases.bruteForce().toString());
+        assertEquals("BroadPhases.sweepAndPrune()", BroadPhases.sweepAndPrune().toString());
+        assertEquals("BroadPhases.uniformGrid()", BroadPhases.uniformGrid().toString());
+        assertEquals("BroadPhases.uniformGrid(2.5)", BroadPhases.uniformGrid(2.5).toString());
+    }
+}
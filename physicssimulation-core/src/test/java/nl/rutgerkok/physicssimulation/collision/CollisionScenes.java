@@ -0,0 +1,130 @@
+package nl.rutgerkok.physicssimulation.collision;
+
+import static nl.rutgerkok.physicssimulation.shape.Circle.circle;
+import static nl.rutgerkok.physicssimulation.shape.Rectangle.rectangle;
+import static nl.rutgerkok.physicssimulation.shape.Sphere.sphere;
+import static nl.rutgerkok.physicssimulation.vector.Vector.vec2;
+import static nl.rutgerkok.physicssimulation.vector.Vector.vec3;
+import static nl.rutgerkok.physicssimulation.world.PhysicalObject.obj;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import nl.rutgerkok.physicssimulation.shape.Material;
+import nl.rutgerkok.physicssimulation.world.PhysicalObject;
+
+/**
+ * Scenes and assertions shared by the tests of the different broad phases.
+ *
+ */
+final class CollisionScenes {
+
+    /**
+     * Asserts that the broad phase finds exactly the same collisions as
+     * checking every pair of objects.
+     *
+     * @param objects
+     *            The objects.
+     * @param broadPhase
+     *            The broad phase.
+     */
+    static void assertSameCollisions(Iterable<PhysicalObject> objects, BroadPhase broadPhase) {
+        Set<Collision> expected = CollisionChecker.getCollisions(objects);
+        Set<Collision> actual = CollisionChecker.getCollisions(objects, broadPhase);
+
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, actual);
+        for (Collision collision : actual) {
+            for (Collision compareWith : expected) {
+                if (compareWith.equals(collision)) {
+                    assertEquals(compareWith.getPenetration(), collision.getPenetration(), 0.0000001);
+                }
+            }
+        }
+    }
+
+    /**
+     * Asserts that the broad phase reports every pair at most once.
+     *
+     * @param objects
+     *            The objects.
+     * @param broadPhase
+     *            The broad phase.
+     */
+    static void assertUniquePairs(List<PhysicalObject> objects, BroadPhase broadPhase) {
+        Set<Long> pairs = new HashSet<>();
+        broadPhase.findPairs(objects, (first, second) -> {
+            assertTrue(first < second);
+            assertTrue("Pair reported twice", pairs.add(((long) first << 32) | second));
+        });
+    }
+
+    /**
+     * Creates a lot of randomly placed circles and squares, on top of a long
+     * floor.
+     *
+     * @return The objects.
+     */
+    static List<PhysicalObject> setupObjects2D() {
+        Random random = new Random(0xDEF);
+        List<PhysicalObject> objects = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            double x = random.nextDouble() * 100;
+            double y = random.nextDouble() * 100 + 0.1;
+            if (i % 5 == 0) {
+                objects.add(obj(rectangle(vec2(x, y), vec2(x + 1, y + 1)),
+                        vec2(random.nextDouble() * 10 - 5, random.nextDouble() * 10 - 5), Material.ROCK));
+            } else {
+                objects.add(obj(circle(vec2(x, y), 0.5 + random.nextDouble() * 3),
+                        vec2(random.nextDouble() * 10 - 5, random.nextDouble() * 10 - 5), Material.ROCK));
+            }
+        }
+
+        // A long floor, too large to be placed in a grid with small cells
+        objects.add(obj(rectangle(vec2(-10, -1), vec2(110, 0)), vec2(0, 0), Material.ROCK));
+        return objects;
+    }
+
+    /**
+     * Creates a lot of randomly placed circles inside a box of static walls.
+     * The walls overlap each other at the corners. Objects won't reach the
+     * inside of the walls if the scene is simulated for less than 0.2 seconds.
+     *
+     * @return The objects.
+     */
+    static List<PhysicalObject> setupObjectsInBox() {
+        List<PhysicalObject> objects = new ArrayList<>(setupObjects2D().subList(0, 300));
+        objects.add(obj(rectangle(vec2(-10, -3), vec2(110, -2)), vec2(0, 0), Material.STATIC));
+        objects.add(obj(rectangle(vec2(-10, 102), vec2(110, 103)), vec2(0, 0), Material.STATIC));
+        objects.add(obj(rectangle(vec2(-3, -10), vec2(-2, 110)), vec2(0, 0), Material.STATIC));
+        objects.add(obj(rectangle(vec2(102, -10), vec2(103, 110)), vec2(0, 0), Material.STATIC));
+        return objects;
+    }
+
+    /**
+     * Creates a lot of randomly placed spheres.
+     *
+     * @return The objects.
+     */
+    static List<PhysicalObject> setupObjects3D() {
+        Random random = new Random(0x123);
+        List<PhysicalObject> objects = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            objects.add(obj(sphere(vec3(random.nextDouble() * 40 - 20, random.nextDouble() * 40 - 20,
+                    random.nextDouble() * 40 - 20), 0.5 + random.nextDouble() * 3),
+                    vec3(random.nextDouble() * 10 - 5, random.nextDouble() * 10 - 5, random.nextDouble() * 10 - 5),
+                    Material.METAL));
+        }
+        return objects;
+    }
+
+    private CollisionScenes() {
+
+    }
+}
@@ -0,0 +1,308 @@
+package nl.rutgerkok.physicssimulation.collision;
+
+import static nl.rutgerkok.physicssimulation.shape.Circle.circle;
+import static nl.rutgerkok.physicssimulation.shape.Rectangle.rectangle;
+import static nl.rutgerkok.physicssimulation.shape.Sphere.sphere;
+import static nl.rutgerkok.physicssimulation.vector.Vector.vec2;
+import static nl.rutgerkok.physicssimulation.vector.Vector.vec3;
+import static nl.rutgerkok.physicssimulation.world.PhysicalObject.obj;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import nl.rutgerkok.physicssimulation.force.Forces;
+import nl.rutgerkok.physicssimulation.shape.Material;
+import nl.rutgerkok.physicssimulation.world.Integrator;
+import nl.rutgerkok.physicssimulation.world.PhysicalObject;
+import nl.rutgerkok.physicssimulation.world.PhysicsSimulation;
+import nl.rutgerkok.physicssimulation.world.StepMetrics;
+import nl.rutgerkok.physicssimulation.world.WorldBuilder;
+
+import org.junit.Test;
+
+public class CollisionSupervisorTest {
+
+    private static void assertSameOrder(List<PhysicalObject> objects) {
+        // Make sure that the pairs are really divided over multiple tasks
+        int[] pairCount = { 0 };
+        BroadPhases.bruteForce().findPairs(objects, (first, second) -> pairCount[0]++);
+        assertTrue("Only " + pairCount[0] + " pairs", pairCount[0] > 512);
+
+        List<Collision> expected = CollisionChecker.getCollisions(objects, BroadPhases.bruteForce(), null, null);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<Collision> actual = CollisionChecker.getCollisions(objects, BroadPhases.bruteForce(), pool, null);
+
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertSame(expected.get(i).getOneObject(), actual.get(i).getOneObject());
+                assertSame(expected.get(i).getOtherObject(), actual.get(i).getOtherObject());
+                assertEquals(expected.get(i).getPenetration(), actual.get(i).getPenetration(), 0);
+                assertEquals(expected.get(i).getNormal(), actual.get(i).getNormal());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void testContinuousCollisions(WorldBuilder builder) {
+        // Moves 6 units per step, so it would jump over the wall
+        PhysicalObject wall = obj(rectangle(vec2(10, -5), vec2(11, 5)), vec2(0, 0), Material.STATIC);
+        PhysicalObject ball = obj(circle(vec2(0, 0), 0.5), vec2(60, 0), Material.BOUNCYBALL);
+        PhysicsSimulation simulation = builder.withObject(wall)
+                .withObject(ball)
+                .withSupervisor(new CollisionSupervisor().withContinuousCollisions(true))
+                .create();
+
+        for (int i = 0; i < 3; i++) {
+            simulation.advance(0.1);
+        }
+
+        // Hit the wall at x = 9.5, then moved back for the rest of the time
+        // at 40% of the speed
+        double impactTime = 9.5 / 60;
+        assertEquals(vec2(-24, 0), ball.getVelocity());
+        assertEquals(9.5 - 24 * (0.3 - impactTime), ball.getCenterCoord(0), 1e-9);
+    }
+
+    private static void testContinuousCollisionsInParts(WorldBuilder builder) {
+        // Moves 20 units per step, the floor is 1 unit thick
+        PhysicalObject floor = obj(rectangle(vec2(-10, -1), vec2(10, 0)), vec2(0, 0), Material.STATIC);
+        PhysicalObject ball = obj(circle(vec2(0, 5), 0.5), vec2(0, -200), Material.BOUNCYBALL);
+        PhysicsSimulation simulation = builder.withObject(floor)
+                .withObject(ball)
+                .withSupervisor(new CollisionSupervisor().withContinuousCollisions(true))
+                .create();
+
+        for (int i = 0; i < 3; i++) {
+            simulation.advance(0.1);
+        }
+
+        assertTrue(ball + " passed through the floor", ball.getCenterCoord(1) > 0.5);
+    }
+
+    private static void testPositionCorrection(WorldBuilder builder) {
+        // Three boxes on top of each other, on a floor, with a large time step
+        builder.withObject(obj(rectangle(vec2(-10, -1), vec2(10, 0)), vec2(0, 0), Material.STATIC));
+        List<PhysicalObject> boxes = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            PhysicalObject box = obj(rectangle(vec2(0, i), vec2(1, i + 1)), vec2(0, 0), Material.ROCK);
+            boxes.add(box);
+            builder.withObject(box);
+        }
+        PhysicsSimulation simulation = builder.withForce(Forces.GRAVITY)
+                .withSupervisor(new CollisionSupervisor().withIterations(10).withPositionCorrection(0.4, 0.01))
+                .create();
+
+        for (int i = 0; i < 200; i++) {
+            simulation.advance(0.05);
+        }
+
+        for (int i = 0; i < boxes.size(); i++) {
+            assertEquals(i + 0.5, boxes.get(i).getCenterCoord(1), 0.05);
+        }
+    }
+
+    @Test
+    public void testContinuousCollisionsBetweenSpheres() {
+        // Would pass through each other in the first step
+        PhysicalObject a = obj(sphere(vec3(0, 0, 0), 0.5), vec3(50, 0, 0), Material.SUPERBALL);
+        PhysicalObject b = obj(sphere(vec3(10, 0, 0), 0.5), vec3(-50, 0, 0), Material.SUPERBALL);
+        PhysicsSimulation simulation = WorldBuilder.newWorld()
+                .withObject(a)
+                .withObject(b)
+                .withSupervisor(new CollisionSupervisor().withContinuousCollisions(true))
+                .create();
+
+        simulation.advance(0.15);
+        simulation.advance(0.15);
+
+        assertTrue(a.getVelocity().getCoord(0) < 0);
+        assertTrue(b.getVelocity().getCoord(0) > 0);
+        assertTrue(a.getCenterCoord(0) < b.getCenterCoord(0));
+    }
+
+    @Test
+    public void testContinuousCollisionsColumnar() {
+        testContinuousCollisions(WorldBuilder.newWorld().withColumnarStorage());
+    }
+
+    @Test
+    public void testContinuousCollisionsDisabled() {
+        PhysicalObject wall = obj(rectangle(vec2(10, -5), vec2(11, 5)), vec2(0, 0), Material.STATIC);
+        PhysicalObject ball = obj(circle(vec2(0, 0), 0.5), vec2(60, 0), Material.BOUNCYBALL);
+        PhysicsSimulation simulation = WorldBuilder.newWorld()
+                .withObject(wall)
+                .withObject(ball)
+                .withSupervisor(new CollisionSupervisor().withContinuousCollisions(false))
+                .create();
+
+        for (int i = 0; i < 2; i++) {
+            simulation.advance(0.1);
+        }
+
+        // Went right through the wall
+        assertEquals(vec2(60, 0), ball.getVelocity());
+        assertEquals(12, ball.getCenterCoord(0), 1e-9);
+    }
+
+    @Test
+    public void testContinuousCollisionsMultipleTimeSteps() {
+        testContinuousCollisionsInParts(WorldBuilder.newWorld().withMultipleTimeSteps(4));
+        testContinuousCollisionsInParts(WorldBuilder.newWorld().withMultipleTimeSteps(4).withColumnarStorage());
+    }
+
+    @Test
+    public void testContinuousCollisionsObjects() {
+        testContinuousCollisions(WorldBuilder.newWorld());
+    }
+
+    @Test
+    public void testContinuousCollisionsSharedFloor() {
+        // Both balls would jump over the floor
+        PhysicalObject floor = obj(rectangle(vec2(-10, -1), vec2(10, 0)), vec2(0, 0), Material.STATIC);
+        PhysicalObject a = obj(circle(vec2(-5, 5), 0.5), vec2(0, -100), Material.BOUNCYBALL);
+        PhysicalObject b = obj(circle(vec2(5, 5), 0.5), vec2(0, -100), Material.BOUNCYBALL);
+        PhysicsSimulation simulation = WorldBuilder.newWorld()
+                .withObject(floor)
+                .withObject(a)
+                .withObject(b)
+                .withSupervisor(new CollisionSupervisor().withContinuousCollisions(true))
+                .create();
+
+        // The new positions are calculated in the next step
+        simulation.advance(0.1);
+        simulation.advance(0.01);
+
+        for (PhysicalObject ball : new PhysicalObject[] { a, b }) {
+            assertTrue(ball + " passed through the floor", ball.getCenterCoord(1) > 0.5);
+            assertTrue(ball + " didn't bounce", ball.getVelocity().getCoord(1) > 0);
+        }
+    }
+
+    @Test
+    public void testContinuousCollisionsSlowForce() {
+        testContinuousCollisionsInParts(WorldBuilder.newWorld().withSlowForce(Forces.GRAVITY));
+        testContinuousCollisionsInParts(WorldBuilder.newWorld().withSlowForce(Forces.GRAVITY).withColumnarStorage());
+        testContinuousCollisionsInParts(WorldBuilder.newWorld()
+                .withSlowForce(Forces.GRAVITY)
+                .withIntegrator(Integrator.VELOCITY_VERLET));
+    }
+
+    @Test
+    public void testContinuousCollisionsSlowObjectOnFloor() {
+        // The slow ball overlaps the floor, the fast ball hits it in the
+        // same step
+        PhysicalObject floor = obj(rectangle(vec2(-10, -1), vec2(10, 0)), vec2(0, 0), Material.STATIC);
+        PhysicalObject slow = obj(circle(vec2(-5, 0.45), 0.5), vec2(0, -1), Material.BOUNCYBALL);
+        PhysicalObject fast = obj(circle(vec2(5, 5), 0.5), vec2(0, -100), Material.BOUNCYBALL);
+        PhysicsSimulation simulation = WorldBuilder.newWorld()
+                .withObject(floor)
+                .withObject(slow)
+                .withObject(fast)
+                .withSupervisor(new CollisionSupervisor().withContinuousCollisions(true))
+                .create();
+
+        simulation.advance(0.1);
+
+        assertTrue(slow.getVelocity().getCoord(1) > 0);
+        assertTrue(fast.getVelocity().getCoord(1) > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidIterations() {
+        new CollisionSupervisor().withIterations(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidParallelism() {
+        new CollisionSupervisor().withParallelism(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPositionCorrection() {
+        new CollisionSupervisor().withPositionCorrection(1.5, 0.01);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSlop() {
+        new CollisionSupervisor().withPositionCorrection(0.5, -1);
+    }
+
+    @Test
+    public void testIterationsKeepStackStanding() {
+        // Five boxes on top of each other, on a floor
+        WorldBuilder builder = WorldBuilder.newWorld()
+                .withObject(obj(rectangle(vec2(-10, -1), vec2(10, 0)), vec2(0, 0), Material.STATIC));
+        List<PhysicalObject> boxes = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            PhysicalObject box = obj(rectangle(vec2(0, i * 0.999), vec2(1, i * 0.999 + 1)), vec2(0, 0),
+                    Material.ROCK);
+            boxes.add(box);
+            builder.withObject(box);
+        }
+        PhysicsSimulation simulation = builder.withForce(Forces.GRAVITY)
+                .withSupervisor(new CollisionSupervisor().withIterations(10))
+                .create();
+
+        for (int i = 0; i < 300; i++) {
+            simulation.advance(0.01);
+        }
+
+        // Boxes barely sink into each other, and are (almost) at rest
+        for (int i = 0; i < boxes.size(); i++) {
+            PhysicalObject box = boxes.get(i);
+            assertTrue(box + " sank", box.getCenterCoord(1) > i + 0.45);
+            assertTrue(box + " is moving", box.getVelocity().getLength() < 0.2);
+        }
+    }
+
+    @Test
+    public void testMetrics() {
+        List<StepMetrics> steps = new ArrayList<>();
+        PhysicsSimulation simulation = WorldBuilder.newWorld()
+                .withObject(obj(circle(vec2(0, 0), 1), vec2(1, 0), Material.BOUNCYBALL))
+                .withObject(obj(circle(vec2(1.5, 0), 1), vec2(-1, 0), Material.BOUNCYBALL))
+                .withObject(obj(circle(vec2(10, 0), 1), vec2(0, 0), Material.BOUNCYBALL))
+                .withSupervisor(new CollisionSupervisor(BroadPhases.bruteForce()))
+                .withListener((sim, metrics) -> steps.add(metrics))
+                .create();
+
+        simulation.advance(0.01);
+
+        assertEquals(1, steps.size());
+        assertEquals(3, steps.get(0).getCount(StepMetrics.Counter.CANDIDATE_PAIRS));
+        assertEquals(1, steps.get(0).getCount(StepMetrics.Counter.COLLISIONS));
+        assertEquals(1, steps.get(0).getCount(StepMetrics.Counter.IMPULSES));
+
+        // Objects now move away from each other, so no impulse is needed
+        simulation.advance(0.01);
+
+        assertEquals(1, steps.get(1).getCount(StepMetrics.Counter.COLLISIONS));
+        assertEquals(0, steps.get(1).getCount(StepMetrics.Counter.IMPULSES));
+    }
+
+    @Test
+    public void testParallelNarrowPhase2D() {
+        assertSameOrder(CollisionScenes.setupObjects2D());
+    }
+
+    @Test
+    public void testParallelNarrowPhase3D() {
+        assertSameOrder(CollisionScenes.setupObjects3D());
+    }
+
+    @Test
+    public void testPositionCorrectionColumnar() {
+        testPositionCorrection(WorldBuilder.newWorld().withColumnarStorage());
+    }
+
+    @Test
+    public void testPositionCorrectionObjects() {
+        testPositionCorrection(WorldBuilder.newWorld());
+    }
+}
@@ -84,6 +84,19 @@ public class CollisionTest {
         assertTrue(collisions.contains(new Collision(right, boxOnTop, 1, zero)));
     }
 
+    @Test
+    public void testStaticObjectsOverlap() {
+        // Two overlapping walls cannot be moved, so there is nothing to resolve
+        Vector2 zero = vec2(0, 0);
+
+        List<PhysicalObject> objects = asList(
+                obj(rectangle(vec2(0, 0), vec2(10, 1)), zero, Material.STATIC),
+                obj(rectangle(vec2(0, 0), vec2(1, 10)), zero, Material.STATIC));
+        Set<Collision> collisions = CollisionChecker.getCollisions(objects);
+
+        assertEquals(0, collisions.size());
+    }
+
     @Test
     public void testTwoCirclesAtSamePosition() {
         Vector2 zero = vec2(0, 0);
@@ -0,0 +1,86 @@
+package nl.rutgerkok.physicssimulation.collision;
+
+import static nl.rutgerkok.physicssimulation.collision.CollisionScenes.assertSameCollisions;
+import static nl.rutgerkok.physicssimulation.collision.CollisionScenes.assertUniquePairs;
+import static nl.rutgerkok.physicssimulation.collision.CollisionScenes.setupObjects2D;
+import static nl.rutgerkok.physicssimulation.collision.CollisionScenes.setupObjects3D;
+
+import java.util.List;
+
+import nl.rutgerkok.physicssimulation.world.PhysicalObject;
+import nl.rutgerkok.physicssimulation.world.PhysicsSimulation;
+import nl.rutgerkok.physicssimulation.world.WorldBuilder;
+
+import org.junit.Test;
+
+public class SweepAndPruneTest {
+
+    @Test
+    public void testChangedObjects() {
+        // Same broad phase, used for two different sets of objects
+        BroadPhase broadPhase = new SweepAndPrune();
+
+        assertSameCollisions(setupObjects2D(), broadPhase);
+        assertSameCollisions(setupObjects3D(), broadPhase);
+        assertSameCollisions(setupObjects3D().subList(0, 200), broadPhase);
+    }
+
+    @Test
+    public void testMovingObjects() {
+        // The sorted order is reused in later steps (floor is left out, so
+        // that no circle ends up inside of it)
+        WorldBuilder builder = WorldBuilder.newWorld();
+        setupObjects2D().subList(0, 300).forEach(builder::withObject);
+        PhysicsSimulation simulation = builder.create();
+        BroadPhase broadPhase = new SweepAndPrune();
+
+        for (int i = 0; i < 10; i++) {
+            assertSameCollisions(simulation, broadPhase);
+            simulation.advance(0.2);
+        }
+    }
+
+    @Test
+    public void testSameCollisions2D() {
+        assertSameCollisions(setupObjects2D(), new SweepAndPrune());
+    }
+
+    @Test
+    public void testSameCollisions3D() {
+        assertSameCollisions(setupObjects3D(), new SweepAndPrune());
+    }
+
+    @Test
+    public void testSpawnedAndDespawnedObjects() {
+        // The sorted order is kept when objects are added or removed
+        WorldBuilder builder = WorldBuilder.newWorld();
+        List<PhysicalObject> objects = setupObjects2D().subList(0, 300);
+        objects.forEach(builder::withObject);
+        PhysicsSimulation simulation = builder.create();
+        BroadPhase broadPhase = new SweepAndPrune();
+        assertSameCollisions(simulation, broadPhase);
+
+        for (int i = 0; i < 300; i += 7) {
+            simulation.despawn(objects.get(i));
+        }
+        setupObjects2D().subList(0, 40).forEach(simulation::spawn);
+        simulation.advance(0.01);
+        assertSameCollisions(simulation, broadPhase);
+
+        for (int i = 1; i < 300; i += 7) {
+            simulation.despawn(objects.get(i));
+        }
+        simulation.advance(0.01);
+        assertSameCollisions(simulation, broadPhase);
+    }
+
+    @Test
+    public void testUniquePairs() {
+        List<PhysicalObject> objects = setupObjects2D();
+        BroadPhase broadPhase = new SweepAndPrune();
+
+        assertUniquePairs(objects, broadPhase);
+        assertUniquePairs(objects, broadPhase);
+        assertUniquePairs(setupObjects3D(), new SweepAndPrune());
+    }
+}
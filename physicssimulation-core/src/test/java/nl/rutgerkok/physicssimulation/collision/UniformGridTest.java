@@ -0,0 +1,45 @@
+package nl.rutgerkok.physicssimulation.collision;
+
+import static nl.rutgerkok.physicssimulation.collision.CollisionScenes.assertSameCollisions;
+import static nl.rutgerkok.physicssimulation.collision.CollisionScenes.assertUniquePairs;
+import static nl.rutgerkok.physicssimulation.collision.CollisionScenes.setupObjects2D;
+import static nl.rutgerkok.physicssimulation.collision.CollisionScenes.setupObjects3D;
+
+import java.util.List;
+
+import nl.rutgerkok.physicssimulation.world.PhysicalObject;
+
+import org.junit.Test;
+
+public class UniformGridTest {
+
+    @Test
+    public void testFixedCellSize() {
+        List<PhysicalObject> objects = setupObjects2D();
+
+        assertSameCollisions(objects, new UniformGrid(0.5));
+        assertSameCollisions(objects, new UniformGrid(20));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCellSize() {
+        new UniformGrid(-1);
+    }
+
+    @Test
+    public void testSameCollisions2D() {
+        assertSameCollisions(setupObjects2D(), new UniformGrid());
+    }
+
+    @Test
+    public void testSameCollisions3D() {
+        assertSameCollisions(setupObjects3D(), new UniformGrid());
+    }
+
+    @Test
+    public void testUniquePairs() {
+        assertUniquePairs(setupObjects2D(), new UniformGrid());
+        assertUniquePairs(setupObjects2D(), new UniformGrid(0.5));
+        assertUniquePairs(setupObjects3D(), new UniformGrid());
+    }
+}
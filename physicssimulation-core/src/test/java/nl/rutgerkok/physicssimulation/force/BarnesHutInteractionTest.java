@@ -0,0 +1,159 @@
+package nl.rutgerkok.physicssimulation.force;
+
+import static nl.rutgerkok.physicssimulation.shape.Circle.circle;
+import static nl.rutgerkok.physicssimulation.shape.Sphere.sphere;
+import static nl.rutgerkok.physicssimulation.vector.Vector.vec2;
+import static nl.rutgerkok.physicssimulation.vector.Vector.vec3;
+import static nl.rutgerkok.physicssimulation.world.PhysicalObject.obj;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import nl.rutgerkok.physicssimulation.shape.Material;
+import nl.rutgerkok.physicssimulation.vector.Vector;
+import nl.rutgerkok.physicssimulation.world.Force;
+import nl.rutgerkok.physicssimulation.world.PhysicalObject;
+import nl.rutgerkok.physicssimulation.world.PhysicsSimulation;
+import nl.rutgerkok.physicssimulation.world.WorldBuilder;
+import nl.rutgerkok.physicssimulation.world.WorldView;
+
+import org.junit.Test;
+
+public class BarnesHutInteractionTest {
+
+    private static void assertSameForce(Force exact, Force approximated, PhysicalObject object, WorldView world) {
+        Vector expected = exact.calculate(object, world);
+        Vector actual = approximated.calculate(object, world);
+        assertEquals(0, expected.minus(actual).getLength(), 1e-9 * expected.getLength());
+    }
+
+    private static PhysicsSimulation setupSimulation2D(int count) {
+        Random random = new Random(3);
+        WorldBuilder builder = WorldBuilder.newWorld();
+        for (int i = 0; i < count; i++) {
+            builder.withObject(obj(circle(vec2(random.nextDouble() * 100, random.nextDouble() * 100), 0.5),
+                    vec2(random.nextDouble() * 10 - 5, random.nextDouble() * 10 - 5), Material.BOUNCYBALL));
+        }
+        return builder.create();
+    }
+
+    private static WorldView setupWorld2D(int count) {
+        Random random = new Random(8);
+        WorldBuilder builder = WorldBuilder.newWorld();
+        for (int i = 0; i < count; i++) {
+            builder.withObject(obj(circle(vec2(random.nextDouble() * 100, random.nextDouble() * 100), 0.5),
+                    vec2(0, 0), Material.BOUNCYBALL));
+        }
+        return builder.create().getWorld();
+    }
+
+    private static WorldView setupWorld3D(int count) {
+        Random random = new Random(8);
+        WorldBuilder builder = WorldBuilder.newWorld();
+        for (int i = 0; i < count; i++) {
+            builder.withObject(obj(sphere(vec3(random.nextDouble() * 100, random.nextDouble() * 100,
+                    random.nextDouble() * 100), 0.5), vec3(0, 0, 0), Material.BOUNCYBALL));
+        }
+        return builder.create().getWorld();
+    }
+
+    /**
+     * Checks that the root mean square of the errors is small compared to the
+     * root mean square of the forces. Forces on single objects can have a
+     * larger relative error, as many contributions can cancel each other out.
+     */
+    private static void assertClose(Force exact, Force approximated, WorldView world, double relativeError) {
+        approximated.prepare(world);
+        double squaredErrorSum = 0;
+        double squaredForceSum = 0;
+        for (PhysicalObject object : world) {
+            Vector expected = exact.calculate(object, world);
+            Vector actual = approximated.calculate(object, world);
+            squaredErrorSum += expected.minus(actual).getSquaredLength();
+            squaredForceSum += expected.getSquaredLength();
+        }
+        double error = Math.sqrt(squaredErrorSum / squaredForceSum);
+        assertTrue("Relative error " + error + " too large", error <= relativeError);
+    }
+
+    @Test
+    public void testApproximation2D() {
+        WorldView world = setupWorld2D(400);
+        assertClose(Forces.attraction(200, 2), Forces.attraction(200, 2, 0.5), world, 0.01);
+    }
+
+    @Test
+    public void testApproximation3D() {
+        WorldView world = setupWorld3D(400);
+        assertClose(Forces.repulsion(200, 2), Forces.repulsion(200, 2, 0.5), world, 0.01);
+    }
+
+    @Test
+    public void testExact2D() {
+        WorldView world = setupWorld2D(200);
+        assertClose(Forces.repulsion(50, 1), Forces.repulsion(50, 1, 0), world, 1e-9);
+    }
+
+    @Test
+    public void testExact3D() {
+        WorldView world = setupWorld3D(200);
+        assertClose(Forces.attraction(50, 3), Forces.attraction(50, 3, 0), world, 1e-9);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidOpeningAngle() {
+        Forces.attraction(10, 2, Double.NaN);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeOpeningAngle() {
+        Forces.repulsion(10, 2, -0.5);
+    }
+
+    @Test
+    public void testMovingObjectsWithoutPrepare() {
+        PhysicsSimulation simulation = setupSimulation2D(50);
+        Force exact = Forces.repulsion(50, 2);
+        Force approximated = Forces.repulsion(50, 2, 0);
+
+        for (int step = 0; step < 5; step++) {
+            for (PhysicalObject object : simulation.getWorld()) {
+                assertSameForce(exact, approximated, object, simulation.getWorld());
+            }
+            simulation.advance(1);
+        }
+    }
+
+    @Test
+    public void testNoForceWhenAtSamePosition() {
+        PhysicalObject obj1 = obj(circle(vec2(0, 0), 1), vec2(0, 0), Material.BOUNCYBALL);
+        PhysicalObject obj2 = obj(circle(vec2(0, 0), 1), vec2(0, 0), Material.BOUNCYBALL);
+        WorldView world = WorldBuilder.newWorld().withObject(obj1).withObject(obj2).create().getWorld();
+
+        Vector force = Forces.attraction(200, 2, 0.5).calculate(obj1, world);
+
+        assertEquals(vec2(0, 0), force);
+    }
+
+    @Test
+    public void testSharedBetweenWorlds() {
+        WorldView first = setupWorld2D(50);
+        WorldView second = setupSimulation2D(50).getWorld();
+        Force exact = Forces.attraction(50, 2);
+        Force approximated = Forces.attraction(50, 2, 0);
+
+        approximated.prepare(first);
+        approximated.prepare(second);
+        for (int i = 0; i < 50; i++) {
+            assertSameForce(exact, approximated, first.get(i), first);
+            assertSameForce(exact, approximated, second.get(i), second);
+        }
+    }
+
+    @Test
+    public void testToString() {
+        assertEquals("Forces.repulsion(100.0, 2, 0.5)", Forces.repulsion(100.0, 2, 0.5).toString());
+        assertEquals("Forces.attraction(80.0, 2, 0.7)", Forces.attraction(80.0, 2, 0.7).toString());
+    }
+}
@@ -0,0 +1,136 @@
+package nl.rutgerkok.physicssimulation.force;
+
+import static nl.rutgerkok.physicssimulation.shape.Circle.circle;
+import static nl.rutgerkok.physicssimulation.shape.Sphere.sphere;
+import static nl.rutgerkok.physicssimulation.vector.Vector.vec2;
+import static nl.rutgerkok.physicssimulation.vector.Vector.vec3;
+import static nl.rutgerkok.physicssimulation.world.PhysicalObject.obj;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import nl.rutgerkok.physicssimulation.shape.Material;
+import nl.rutgerkok.physicssimulation.vector.Vector;
+import nl.rutgerkok.physicssimulation.world.Force;
+import nl.rutgerkok.physicssimulation.world.PhysicalObject;
+import nl.rutgerkok.physicssimulation.world.PhysicsSimulation;
+import nl.rutgerkok.physicssimulation.world.WorldBuilder;
+import nl.rutgerkok.physicssimulation.world.WorldView;
+
+import org.junit.Test;
+
+public class CutoffLennardJonesTest {
+
+    private static void assertSameForce(Force expected, Force actual, PhysicalObject object, WorldView world) {
+        Vector expectedForce = expected.calculate(object, world);
+        Vector actualForce = actual.calculate(object, world);
+        assertEquals(0, expectedForce.minus(actualForce).getLength(), 1e-9 * (1 + expectedForce.getLength()));
+    }
+
+    private static void assertSameForces(Force expected, Force actual, WorldView world) {
+        expected.prepare(world);
+        actual.prepare(world);
+        for (PhysicalObject object : world) {
+            assertSameForce(expected, actual, object, world);
+        }
+    }
+
+    private static PhysicsSimulation setupSimulation2D(int count) {
+        Random random = new Random(5);
+        WorldBuilder builder = WorldBuilder.newWorld();
+        for (int i = 0; i < count; i++) {
+            builder.withObject(obj(circle(vec2(random.nextDouble() * 20, random.nextDouble() * 20), 0.1),
+                    vec2(random.nextDouble() - 0.5, random.nextDouble() - 0.5), Material.BOUNCYBALL));
+        }
+        return builder.create();
+    }
+
+    @Test
+    public void testFarAwayObjectsIgnored() {
+        PhysicalObject obj1 = obj(circle(vec2(0, 0), 0.1), vec2(0, 0), Material.BOUNCYBALL);
+        PhysicalObject obj2 = obj(circle(vec2(3, 0), 0.1), vec2(0, 0), Material.BOUNCYBALL);
+        WorldView world = WorldBuilder.newWorld().withObject(obj1).withObject(obj2).create().getWorld();
+
+        assertEquals(vec2(0, 0), Forces.lennardJones(1, 1, 2.5).calculate(obj1, world));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCutoff() {
+        Forces.lennardJones(1, 1, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSkin() {
+        Forces.lennardJones(1, 1, 2.5, -1);
+    }
+
+    @Test
+    public void testMovingObjects() {
+        PhysicsSimulation simulation = setupSimulation2D(300);
+        Force force = Forces.lennardJones(1, 1, 2.5, 0.5);
+
+        for (int step = 0; step < 20; step++) {
+            // A new force without skin always builds its lists from scratch
+            assertSameForces(Forces.lennardJones(1, 1, 2.5, 0), force, simulation.getWorld());
+            simulation.advance(0.1);
+        }
+    }
+
+    @Test
+    public void testMovingObjectsWithoutPrepare() {
+        PhysicsSimulation simulation = setupSimulation2D(300);
+        Force expected = Forces.lennardJones(1, 1, 2.5, 0);
+        Force actual = Forces.lennardJones(1, 1, 2.5, 0.5);
+
+        for (int step = 0; step < 20; step++) {
+            for (PhysicalObject object : simulation.getWorld()) {
+                assertSameForce(expected, actual, object, simulation.getWorld());
+            }
+            simulation.advance(0.1);
+        }
+    }
+
+    @Test
+    public void testSameAsLennardJones2D() {
+        PhysicsSimulation simulation = setupSimulation2D(100);
+
+        // Cutoff is larger than the world, so no objects are ignored
+        assertSameForces(Forces.lennardJones(1, 1), Forces.lennardJones(1, 1, 50), simulation.getWorld());
+    }
+
+    @Test
+    public void testSameAsLennardJones3D() {
+        Random random = new Random(5);
+        WorldBuilder builder = WorldBuilder.newWorld();
+        for (int i = 0; i < 100; i++) {
+            builder.withObject(obj(sphere(vec3(random.nextDouble() * 10, random.nextDouble() * 10,
+                    random.nextDouble() * 10), 0.1), vec3(0, 0, 0), Material.BOUNCYBALL));
+        }
+        WorldView world = builder.create().getWorld();
+
+        assertSameForces(Forces.lennardJones(0.5, 2), Forces.lennardJones(0.5, 2, 50), world);
+    }
+
+    @Test
+    public void testSharedBetweenWorlds() {
+        WorldView first = setupSimulation2D(100).getWorld();
+        PhysicsSimulation secondSimulation = setupSimulation2D(100);
+        secondSimulation.advance(1);
+        WorldView second = secondSimulation.getWorld();
+        // Cutoff is larger than the worlds, so no objects are ignored
+        Force expected = Forces.lennardJones(1, 1);
+        Force actual = Forces.lennardJones(1, 1, 50, 0.5);
+
+        actual.prepare(first);
+        actual.prepare(second);
+        for (int i = 0; i < 100; i++) {
+            assertSameForce(expected, actual, first.get(i), first);
+            assertSameForce(expected, actual, second.get(i), second);
+        }
+    }
+
+    @Test
+    public void testToString() {
+        assertEquals("Forces.lennardJones(1.0, 2.0, 5.0, 0.5)", Forces.lennardJones(1, 2, 5, 0.5).toString());
+    }
+}
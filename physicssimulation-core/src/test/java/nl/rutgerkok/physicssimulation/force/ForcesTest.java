@@ -8,6 +8,8 @@ import static org.junit.Assert.assertEquals;
 import java.util.Arrays;
 
 import nl.rutgerkok.physicssimulation.shape.Material;
+import nl.rutgerkok.physicssimulation.vector.MutableVector;
+import nl.rutgerkok.physicssimulation.vector.Vector;
 import nl.rutgerkok.physicssimulation.world.Force;
 import nl.rutgerkok.physicssimulation.world.PhysicalObject;
 import nl.rutgerkok.physicssimulation.world.WorldBuilder;
@@ -30,6 +32,43 @@ public class ForcesTest {
         assertEquals(vec2(5, -1), resultant.calculate(object, world));
     }
 
+    @Test
+    public void testPrepare() {
+        PhysicalObject object = obj(circle(vec2(0, 0), 5), vec2(0, 0), Material.BOUNCYBALL);
+        WorldView world = WorldBuilder.newWorld().withObject(object).create().getWorld();
+        int[] prepareCount = new int[1];
+        Force force = new Force() {
+            @Override
+            public Vector calculate(PhysicalObject object, WorldView otherObjects) {
+                return otherObjects.getZeroVector();
+            }
+
+            @Override
+            public void prepare(WorldView otherObjects) {
+                prepareCount[0]++;
+            }
+        };
+
+        Forces.combine(Arrays.asList(force, force.restrictTo(Material.ROCK, Material.BOUNCYBALL))).prepare(world);
+
+        assertEquals(2, prepareCount[0]);
+    }
+
+    @Test
+    public void testCalculateIntoMutableVector() {
+        PhysicalObject obj1 = obj(circle(vec2(10, 0), 5), vec2(0, 0), Material.BOUNCYBALL);
+        PhysicalObject obj2 = obj(circle(vec2(0, 3), 5), vec2(0, 0), Material.BOUNCYBALL);
+        WorldView world = WorldBuilder.newWorld().withObject(obj1).withObject(obj2).create().getWorld();
+        Force force = Forces.combine(Arrays.asList(Forces.GRAVITY, Forces.attraction(100, 2),
+                Forces.repulsion(50, 3).restrictTo(Material.BOUNCYBALL), (par1, par2) -> vec2(1, 2)));
+
+        MutableVector result = MutableVector.zero(2).add(vec2(1, 1));
+        force.calculate(obj1, world, result);
+
+        // Force is added to the existing value
+        assertEquals(force.calculate(obj1, world).plus(vec2(1, 1)), result.toVector());
+    }
+
     @Test(expected = RuntimeException.class)
     public void testInstance() {
         new Forces();
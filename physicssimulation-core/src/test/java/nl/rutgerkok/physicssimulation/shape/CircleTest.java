@@ -43,11 +43,23 @@ public class CircleTest {
         assertNotEquals(circle1, "foo");
     }
 
+    @Test
+    public void testExtent() {
+        Circle circle = circle(vec2(10, 11), 3);
+        assertEquals(3, circle.getExtent(0), 0.00001);
+        assertEquals(3, circle.getExtent(1), 0.00001);
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testInfinite() {
         circle(vec2(20, 20), Double.POSITIVE_INFINITY);
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidExtent() {
+        circle(vec2(10, 11), 3).getExtent(2);
+    }
+
     @Test
     public void testMoving() {
         Circle circle = circle(vec2(10, 11), 3);
@@ -37,4 +37,16 @@ public class RectangleTest {
         assertNotEquals(box1, slightlyDifferentBox);
     }
 
+    @Test
+    public void testExtent() {
+        Rectangle rectangle = rectangle(vec2(-4, 1), vec2(4, 2));
+        assertEquals(4, rectangle.getExtent(0), 0.00001);
+        assertEquals(0.5, rectangle.getExtent(1), 0.00001);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidExtent() {
+        rectangle(vec2(0, 0), vec2(4, 2)).getExtent(2);
+    }
+
 }
@@ -37,11 +37,24 @@ public class SphereTest {
         assertNotEquals(sphere1, "foo");
     }
 
+    @Test
+    public void testExtent() {
+        Sphere sphere = sphere(vec3(10, 11, 12), 3);
+        assertEquals(3, sphere.getExtent(0), 0.00001);
+        assertEquals(3, sphere.getExtent(1), 0.00001);
+        assertEquals(3, sphere.getExtent(2), 0.00001);
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testInfinite() {
         sphere(vec3(20, 20, 20), Double.POSITIVE_INFINITY);
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidExtent() {
+        sphere(vec3(10, 11, 12), 3).getExtent(3);
+    }
+
     @Test
     public void testMoving() {
         Sphere sphere = sphere(vec3(10, 11, 12), 3);
@@ -0,0 +1,78 @@
+package nl.rutgerkok.physicssimulation.world;
+
+import static nl.rutgerkok.physicssimulation.shape.Circle.circle;
+import static nl.rutgerkok.physicssimulation.shape.Sphere.sphere;
+import static nl.rutgerkok.physicssimulation.vector.Vector.vec2;
+import static nl.rutgerkok.physicssimulation.vector.Vector.vec3;
+import static nl.rutgerkok.physicssimulation.world.PhysicalObject.obj;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import nl.rutgerkok.physicssimulation.collision.CollisionSupervisor;
+import nl.rutgerkok.physicssimulation.force.Forces;
+import nl.rutgerkok.physicssimulation.shape.Material;
+
+import org.junit.Test;
+
+public class ForceEvaluatorTest {
+
+    private static void assertIdentical(PhysicsSimulation expected, PhysicsSimulation actual) {
+        Iterator<PhysicalObject> actualObjects = actual.iterator();
+        for (PhysicalObject expectedObject : expected) {
+            PhysicalObject actualObject = actualObjects.next();
+            assertEquals(expectedObject.getShape(), actualObject.getShape());
+            assertEquals(expectedObject.getVelocity(), actualObject.getVelocity());
+        }
+    }
+
+    private static WorldBuilder setupWorld2D() {
+        Random random = new Random(12);
+        WorldBuilder builder = WorldBuilder.newWorld();
+        for (int i = 0; i < 1000; i++) {
+            builder.withObject(obj(circle(vec2(random.nextDouble() * 100, random.nextDouble() * 100), 0.5),
+                    vec2(random.nextDouble() - 0.5, random.nextDouble() - 0.5),
+                    i % 2 == 0 ? Material.BOUNCYBALL : Material.WOOD));
+        }
+        return builder.withForce(Forces.attraction(10, 2, 0.5))
+                .withForce(Forces.repulsion(5, 3).restrictTo(Material.WOOD))
+                .withSupervisor(new CollisionSupervisor());
+    }
+
+    private static WorldBuilder setupWorld3D() {
+        Random random = new Random(12);
+        WorldBuilder builder = WorldBuilder.newWorld();
+        for (int i = 0; i < 1000; i++) {
+            builder.withObject(obj(sphere(vec3(random.nextDouble() * 30, random.nextDouble() * 30,
+                    random.nextDouble() * 30), 0.5), vec3(0, 0, 0), Material.METAL));
+        }
+        return builder.withForce(Forces.lennardJones(1, 1, 2.5)).withForce(Forces.GRAVITY);
+    }
+
+    @Test
+    public void testParallelSameAsSequential2D() {
+        PhysicsSimulation sequential = setupWorld2D().create();
+        PhysicsSimulation parallel = setupWorld2D().withParallelism(4).create();
+
+        for (int i = 0; i < 10; i++) {
+            sequential.advance(0.05);
+            parallel.advance(0.05);
+        }
+        assertIdentical(sequential, parallel);
+        parallel.close();
+    }
+
+    @Test
+    public void testParallelSameAsSequential3D() {
+        PhysicsSimulation sequential = setupWorld3D().withColumnarStorage().create();
+        PhysicsSimulation parallel = setupWorld3D().withColumnarStorage().withParallelism(3).create();
+
+        for (int i = 0; i < 10; i++) {
+            sequential.advance(0.01);
+            parallel.advance(0.01);
+        }
+        assertIdentical(sequential, parallel);
+        parallel.close();
+    }
+}
@@ -0,0 +1,163 @@
+package nl.rutgerkok.physicssimulation.world;
+
+import static nl.rutgerkok.physicssimulation.shape.Circle.circle;
+import static nl.rutgerkok.physicssimulation.vector.Vector.vec2;
+import static nl.rutgerkok.physicssimulation.world.PhysicalObject.obj;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.function.Supplier;
+
+import nl.rutgerkok.physicssimulation.shape.Material;
+
+import org.junit.Test;
+
+public class IntegratorTest {
+
+    /**
+     * Simulates an object on a spring, which swings around the origin once
+     * every 2 pi seconds.
+     *
+     * @param builder
+     *            The world builder.
+     * @param integrator
+     *            The integrator.
+     * @param deltaTime
+     *            The time step.
+     * @param duration
+     *            Total time to simulate.
+     * @return The largest difference between the energy of the object and its
+     *         starting energy, relative to the starting energy.
+     */
+    private static double getEnergyDrift(WorldBuilder builder, Integrator integrator, double deltaTime,
+            double duration) {
+        PhysicalObject object = obj(circle(vec2(1, 0), 1), vec2(0, 0), Material.ROCK);
+        double stiffness = object.getMass();
+        PhysicsSimulation simulation = builder.withObject(object)
+                .withForce((self, world) -> self.getShape().getCenter().multiply(-stiffness))
+                .withIntegrator(integrator)
+                .create();
+
+        double startEnergy = 0.5 * stiffness;
+        double drift = 0;
+        for (int i = 0; i < Math.round(duration / deltaTime); i++) {
+            simulation.advance(deltaTime);
+            double energy = 0.5 * object.getMass() * object.getVelocity().getSquaredLength()
+                    + 0.5 * stiffness * object.getShape().getCenter().getSquaredLength();
+            drift = Math.max(drift, Math.abs(energy - startEnergy) / startEnergy);
+        }
+        return drift;
+    }
+
+    /**
+     * Counts how many times the spring force is calculated.
+     *
+     * @param supervisor
+     *            Supervisor that changes the object, or null.
+     * @return The amount of calculations during 10 steps.
+     */
+    private static int getVerletForceCalculations(Supervisor supervisor) {
+        PhysicalObject object = obj(circle(vec2(1, 0), 1), vec2(0, 0), Material.ROCK);
+        int[] calculations = { 0 };
+        WorldBuilder builder = WorldBuilder.newWorld()
+                .withObject(object)
+                .withForce((self, world) -> {
+                    calculations[0]++;
+                    return self.getShape().getCenter().multiply(-1);
+                })
+                .withIntegrator(Integrator.VELOCITY_VERLET);
+        if (supervisor != null) {
+            builder.withSupervisor(supervisor);
+        }
+        PhysicsSimulation simulation = builder.create();
+
+        for (int i = 0; i < 10; i++) {
+            simulation.advance(0.1);
+        }
+        return calculations[0];
+    }
+
+    private static void testEnergyDrift(Supplier<WorldBuilder> builder) {
+        double euler = getEnergyDrift(builder.get(), Integrator.SYMPLECTIC_EULER, 0.1, 1000);
+        double verlet = getEnergyDrift(builder.get(), Integrator.VELOCITY_VERLET, 0.1, 1000);
+        double rungeKutta = getEnergyDrift(builder.get(), Integrator.RK4, 0.1, 1000);
+
+        // First-order, second-order and fourth-order accurate
+        assertTrue("Euler drift: " + euler, euler < 0.06);
+        assertTrue("Verlet drift: " + verlet, verlet < 0.003);
+        assertTrue("RK4 drift: " + rungeKutta, rungeKutta < 0.0002);
+    }
+
+    @Test
+    public void testEnergyDriftColumnar() {
+        testEnergyDrift(() -> WorldBuilder.newWorld().withColumnarStorage());
+    }
+
+    @Test
+    public void testEnergyDriftObjects() {
+        testEnergyDrift(WorldBuilder::newWorld);
+    }
+
+    @Test
+    public void testPreviousPositionIsStartOfStep() {
+        for (Integrator integrator : Integrator.values()) {
+            for (WorldBuilder builder : new WorldBuilder[] { WorldBuilder.newWorld(),
+                    WorldBuilder.newWorld().withColumnarStorage() }) {
+                PhysicalObject object = obj(circle(vec2(1, 0), 1), vec2(0, 1), Material.ROCK);
+                PhysicsSimulation simulation = builder.withObject(object)
+                        .withForce((self, world) -> self.getShape().getCenter().multiply(-self.getMass()))
+                        .withIntegrator(integrator)
+                        .create();
+
+                simulation.advance(0.1);
+                double startX = object.getCenterCoord(0);
+                double startY = object.getCenterCoord(1);
+                simulation.advance(0.1);
+
+                assertEquals(integrator.toString(), startX, object.getPreviousCenterCoord(0), 0);
+                assertEquals(integrator.toString(), startY, object.getPreviousCenterCoord(1), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testSameResultForStorageModes() {
+        for (Integrator integrator : Integrator.values()) {
+            assertEquals(getEnergyDrift(WorldBuilder.newWorld(), integrator, 0.1, 100),
+                    getEnergyDrift(WorldBuilder.newWorld().withColumnarStorage(), integrator, 0.1, 100), 1e-9);
+        }
+    }
+
+    @Test
+    public void testSymplecticIntegratorsDontDrift() {
+        // The energy of RK4 keeps drifting away, the others stay close
+        double verletShort = getEnergyDrift(WorldBuilder.newWorld(), Integrator.VELOCITY_VERLET, 0.4, 100);
+        double verletLong = getEnergyDrift(WorldBuilder.newWorld(), Integrator.VELOCITY_VERLET, 0.4, 1000);
+        double rungeKuttaShort = getEnergyDrift(WorldBuilder.newWorld(), Integrator.RK4, 0.4, 100);
+        double rungeKuttaLong = getEnergyDrift(WorldBuilder.newWorld(), Integrator.RK4, 0.4, 1000);
+
+        assertEquals(verletShort, verletLong, verletShort * 0.1);
+        assertTrue(rungeKuttaLong > rungeKuttaShort * 5);
+    }
+
+    @Test
+    public void testVerletAllowsLargerTimeSteps() {
+        double euler = getEnergyDrift(WorldBuilder.newWorld(), Integrator.SYMPLECTIC_EULER, 0.1, 1000);
+        double verlet = getEnergyDrift(WorldBuilder.newWorld(), Integrator.VELOCITY_VERLET, 0.4, 1000);
+
+        assertTrue(verlet < euler);
+    }
+
+    @Test
+    public void testVerletCalculatesForcesOncePerStep() {
+        // The forces at the end of a step are reused for the next step
+        assertEquals(11, getVerletForceCalculations(null));
+    }
+
+    @Test
+    public void testVerletRecalculatesForcesAfterChanges() {
+        Supervisor supervisor = simulation -> simulation.getWorld()
+                .forEach(object -> object.replaceVelocity(object.getVelocity()));
+        assertEquals(20, getVerletForceCalculations(supervisor));
+    }
+}
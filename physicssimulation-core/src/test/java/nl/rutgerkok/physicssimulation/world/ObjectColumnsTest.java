@@ -0,0 +1,163 @@
+package nl.rutgerkok.physicssimulation.world;
+
+import static nl.rutgerkok.physicssimulation.shape.Circle.circle;
+import static nl.rutgerkok.physicssimulation.shape.Rectangle.rectangle;
+import static nl.rutgerkok.physicssimulation.shape.Sphere.sphere;
+import static nl.rutgerkok.physicssimulation.vector.Vector.vec2;
+import static nl.rutgerkok.physicssimulation.vector.Vector.vec3;
+import static nl.rutgerkok.physicssimulation.world.PhysicalObject.obj;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import nl.rutgerkok.physicssimulation.collision.CollisionSupervisor;
+import nl.rutgerkok.physicssimulation.force.Forces;
+import nl.rutgerkok.physicssimulation.shape.Material;
+import nl.rutgerkok.physicssimulation.shape.Shape;
+
+import org.junit.Test;
+
+public class ObjectColumnsTest {
+
+    private static void assertSameState(PhysicsSimulation expected, PhysicsSimulation actual) {
+        Iterator<PhysicalObject> actualObjects = actual.iterator();
+        for (PhysicalObject expectedObject : expected) {
+            PhysicalObject actualObject = actualObjects.next();
+            assertEquals(0, expectedObject.getShape().getCenter().minus(actualObject.getShape().getCenter())
+                    .getLength(), 1e-9);
+            assertEquals(0, expectedObject.getVelocity().minus(actualObject.getVelocity()).getLength(), 1e-9);
+        }
+    }
+
+    private static WorldBuilder setupWorld2D() {
+        Random random = new Random(3);
+        WorldBuilder builder = WorldBuilder.newWorld();
+        for (int i = 0; i < 100; i++) {
+            double x = random.nextDouble() * 50;
+            double y = random.nextDouble() * 50;
+            builder.withObject(obj(circle(vec2(x, y), 1), vec2(random.nextDouble() * 4 - 2,
+                    random.nextDouble() * 4 - 2), Material.BOUNCYBALL));
+        }
+        return builder.withForce(Forces.repulsion(1, 2)).withSupervisor(new CollisionSupervisor());
+    }
+
+    private static WorldBuilder setupWorld3D() {
+        Random random = new Random(3);
+        WorldBuilder builder = WorldBuilder.newWorld();
+        for (int i = 0; i < 100; i++) {
+            double x = random.nextDouble() * 20;
+            double y = random.nextDouble() * 20;
+            double z = random.nextDouble() * 20;
+            builder.withObject(obj(sphere(vec3(x, y, z), 1), vec3(random.nextDouble() * 4 - 2,
+                    random.nextDouble() * 4 - 2, random.nextDouble() * 4 - 2), Material.METAL));
+        }
+        return builder.withForce(Forces.GRAVITY).withSupervisor(new CollisionSupervisor());
+    }
+
+    @Test
+    public void testCachedShape() {
+        PhysicalObject object = obj(circle(vec2(0, 0), 1), vec2(1, 0), Material.WOOD);
+        PhysicsSimulation simulation = WorldBuilder.newWorld().withObject(object).withColumnarStorage().create();
+
+        Shape shape = object.getShape();
+        assertSame(shape, object.getShape());
+
+        simulation.advance(1);
+        assertNotSame(shape, object.getShape());
+        assertEquals(circle(vec2(1, 0), 1), object.getShape());
+    }
+
+    @Test
+    public void testCenterAndExtent() {
+        PhysicalObject object = obj(rectangle(vec2(1, 2), vec2(5, 3)), vec2(0, 0), Material.WOOD);
+        WorldBuilder.newWorld().withObject(object).withColumnarStorage().create();
+
+        assertEquals(3, object.getCenterCoord(0), 0);
+        assertEquals(2.5, object.getCenterCoord(1), 0);
+        assertEquals(2, object.getExtent(0), 0);
+        assertEquals(0.5, object.getExtent(1), 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCreateWithObjectInOtherSimulation() {
+        PhysicalObject object = obj(circle(vec2(0, 0), 1), vec2(0, 0), Material.WOOD);
+        WorldBuilder.newWorld().withObject(object).create();
+
+        WorldBuilder.newWorld().withObject(object).withColumnarStorage().create();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidAxis() {
+        PhysicalObject object = obj(circle(vec2(0, 0), 1), vec2(0, 0), Material.WOOD);
+        WorldBuilder.newWorld().withObject(object).withColumnarStorage().create();
+
+        object.getExtent(2);
+    }
+
+    @Test
+    public void testSameAsObjectStorage2D() {
+        PhysicsSimulation expected = setupWorld2D().create();
+        PhysicsSimulation actual = setupWorld2D().withColumnarStorage().create();
+
+        for (int i = 0; i < 200; i++) {
+            expected.advance(0.01);
+            actual.advance(0.01);
+        }
+        assertSameState(expected, actual);
+    }
+
+    @Test
+    public void testSameAsObjectStorage3D() {
+        PhysicsSimulation expected = setupWorld3D().create();
+        PhysicsSimulation actual = setupWorld3D().withColumnarStorage().create();
+
+        for (int i = 0; i < 200; i++) {
+            expected.advance(0.01);
+            actual.advance(0.01);
+        }
+        assertSameState(expected, actual);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSpawnFromColumnarSimulation() {
+        PhysicalObject object = obj(circle(vec2(0, 0), 1), vec2(0, 0), Material.WOOD);
+        WorldBuilder.newWorld().withObject(object).withColumnarStorage().create();
+        PhysicsSimulation other = WorldBuilder.newWorld()
+                .withObject(obj(circle(vec2(5, 0), 1), vec2(0, 0), Material.WOOD))
+                .create();
+
+        other.spawn(object);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSpawnFromOtherSimulation() {
+        PhysicalObject object = obj(circle(vec2(0, 0), 1), vec2(0, 0), Material.WOOD);
+        WorldBuilder.newWorld().withObject(object).create();
+        PhysicsSimulation columnar = WorldBuilder.newWorld()
+                .withObject(obj(circle(vec2(5, 0), 1), vec2(0, 0), Material.WOOD))
+                .withColumnarStorage()
+                .create();
+
+        columnar.spawn(object);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testTwoSimulations() {
+        WorldBuilder builder = WorldBuilder.newWorld()
+                .withObject(obj(circle(vec2(0, 0), 1), vec2(0, 0), Material.WOOD))
+                .withColumnarStorage();
+        builder.create();
+        builder.create();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testWithObjectFromColumnarSimulation() {
+        PhysicalObject object = obj(circle(vec2(0, 0), 1), vec2(0, 0), Material.WOOD);
+        WorldBuilder.newWorld().withObject(object).withColumnarStorage().create();
+
+        WorldBuilder.newWorld().withObject(object);
+    }
+}
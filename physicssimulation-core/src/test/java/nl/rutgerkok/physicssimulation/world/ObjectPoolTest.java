@@ -0,0 +1,159 @@
+package nl.rutgerkok.physicssimulation.world;
+
+import static nl.rutgerkok.physicssimulation.shape.Circle.circle;
+import static nl.rutgerkok.physicssimulation.vector.Vector.vec2;
+import static nl.rutgerkok.physicssimulation.world.PhysicalObject.obj;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import nl.rutgerkok.physicssimulation.shape.Material;
+
+import org.junit.Test;
+
+public class ObjectPoolTest {
+
+    private static PhysicsSimulation setupSimulation(WorldBuilder builder, PhysicalObject object) {
+        return builder.withObject(object)
+                .withObject(obj(circle(vec2(10, 0), 1), vec2(0, 0), Material.ROCK))
+                .create();
+    }
+
+    private static void testReuseAfterDespawn(WorldBuilder builder) {
+        PhysicalObject object = obj(circle(vec2(0, 0), 1), vec2(1, 0), Material.BOUNCYBALL);
+        PhysicsSimulation simulation = setupSimulation(builder, object);
+        ObjectPool pool = new ObjectPool(10);
+
+        simulation.despawn(object);
+        simulation.advance(0.5);
+        pool.release(object);
+
+        PhysicalObject reused = pool.obtain(circle(vec2(20, 0), 2), vec2(0, 3), Material.ROCK);
+        assertSame(object, reused);
+        simulation.spawn(reused);
+        simulation.advance(0.5);
+
+        assertTrue(simulation.getWorld().contains(reused));
+        assertEquals(vec2(0, 3), reused.getVelocity());
+        assertEquals(circle(vec2(20, 1.5), 2), reused.getShape());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxSize() {
+        new ObjectPool(-1);
+    }
+
+    @Test
+    public void testMaxSize() {
+        ObjectPool pool = new ObjectPool(1);
+
+        pool.release(obj(circle(vec2(0, 0), 1), vec2(0, 0), Material.ROCK));
+        pool.release(obj(circle(vec2(0, 0), 1), vec2(0, 0), Material.ROCK));
+
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void testObtainFromEmptyPool() {
+        ObjectPool pool = new ObjectPool(10);
+
+        PhysicalObject first = pool.obtain(circle(vec2(0, 0), 1), vec2(0, 0), Material.ROCK);
+        PhysicalObject second = pool.obtain(circle(vec2(0, 0), 1), vec2(0, 0), Material.ROCK);
+
+        assertNotSame(first, second);
+        assertEquals(0, first.getGeneration());
+    }
+
+    @Test
+    public void testObtainReusesObject() {
+        ObjectPool pool = new ObjectPool(10);
+        PhysicalObject object = obj(circle(vec2(0, 0), 1), vec2(1, 0), Material.STATIC);
+        pool.release(object);
+
+        PhysicalObject reused = pool.obtain(circle(vec2(5, 5), 2), vec2(0, 1), Material.ROCK);
+
+        assertSame(object, reused);
+        assertEquals(0, pool.size());
+        assertEquals(1, reused.getGeneration());
+        assertEquals(circle(vec2(5, 5), 2), reused.getShape());
+        assertEquals(vec2(0, 1), reused.getVelocity());
+        assertEquals(Material.ROCK, reused.getMaterial());
+        assertEquals(1 / reused.getMass(), reused.getInvertedMass(), 1e-12);
+    }
+
+    @Test
+    public void testReleaseAfterCancelledSpawn() {
+        PhysicalObject object = obj(circle(vec2(0, 0), 1), vec2(1, 0), Material.BOUNCYBALL);
+        PhysicsSimulation simulation = setupSimulation(WorldBuilder.newWorld(),
+                obj(circle(vec2(5, 0), 1), vec2(1, 0), Material.BOUNCYBALL));
+        ObjectPool pool = new ObjectPool(10);
+
+        simulation.spawn(object);
+        simulation.despawn(object);
+        pool.release(object);
+
+        assertEquals(1, pool.size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReleaseInSimulation() {
+        PhysicalObject object = obj(circle(vec2(0, 0), 1), vec2(1, 0), Material.BOUNCYBALL);
+        PhysicsSimulation simulation = setupSimulation(WorldBuilder.newWorld(), object);
+
+        // Despawning only happens in the next step
+        simulation.despawn(object);
+        new ObjectPool(10).release(object);
+    }
+
+    @Test
+    public void testReleasePendingSpawn() {
+        ObjectPool pool = new ObjectPool(10);
+        PhysicalObject object = pool.obtain(circle(vec2(0, 0), 1), vec2(1, 0), Material.BOUNCYBALL);
+        PhysicsSimulation simulation = setupSimulation(WorldBuilder.newWorld(),
+                obj(circle(vec2(5, 0), 1), vec2(1, 0), Material.BOUNCYBALL));
+
+        // Spawning only happens in the next step
+        simulation.spawn(object);
+        try {
+            pool.release(object);
+            fail("Released object waiting to be spawned");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        simulation.advance(0.5);
+
+        assertEquals(0, pool.size());
+        assertTrue(simulation.getWorld().contains(object));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReleaseTwice() {
+        ObjectPool pool = new ObjectPool(10);
+        PhysicalObject object = obj(circle(vec2(0, 0), 1), vec2(0, 0), Material.ROCK);
+
+        pool.release(object);
+        pool.release(object);
+    }
+
+    @Test
+    public void testReuseAfterDespawnColumnar() {
+        testReuseAfterDespawn(WorldBuilder.newWorld().withColumnarStorage());
+    }
+
+    @Test
+    public void testReuseAfterDespawnObjects() {
+        testReuseAfterDespawn(WorldBuilder.newWorld());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSpawnReleased() {
+        PhysicalObject object = obj(circle(vec2(0, 0), 1), vec2(1, 0), Material.BOUNCYBALL);
+        PhysicsSimulation simulation = setupSimulation(WorldBuilder.newWorld(),
+                obj(circle(vec2(5, 0), 1), vec2(1, 0), Material.BOUNCYBALL));
+
+        new ObjectPool(10).release(object);
+        simulation.spawn(object);
+    }
+}
@@ -0,0 +1,444 @@
+package nl.rutgerkok.physicssimulation.world;
+
+import static nl.rutgerkok.physicssimulation.shape.Circle.circle;
+import static nl.rutgerkok.physicssimulation.vector.Vector.vec2;
+import static nl.rutgerkok.physicssimulation.world.PhysicalObject.obj;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import nl.rutgerkok.physicssimulation.collision.CollisionSupervisor;
+import nl.rutgerkok.physicssimulation.force.Forces;
+import nl.rutgerkok.physicssimulation.shape.Material;
+import nl.rutgerkok.physicssimulation.shape.Shape;
+import nl.rutgerkok.physicssimulation.vector.Vector;
+
+import org.junit.Test;
+
+public class PhysicsSimulationTest {
+
+    /**
+     * Waits for at least a millisecond.
+     */
+    private static void busyWait() {
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < 1_000_000) {
+            // Wait
+        }
+    }
+
+    private static WorldBuilder setupWorld() {
+        return WorldBuilder.newWorld()
+                .withObject(obj(circle(vec2(0, 0), 1), vec2(1, 0), Material.BOUNCYBALL))
+                .withObject(obj(circle(vec2(10, 0), 1), vec2(0, 1), Material.BOUNCYBALL))
+                .withObject(obj(circle(vec2(20, 0), 1), vec2(-1, 0), Material.BOUNCYBALL));
+    }
+
+    /**
+     * Creates a world with two touching circles at rest, and a third circle
+     * moving towards them. The moving circle hits the others after about 13
+     * steps of 0.1 seconds.
+     *
+     * @return The world builder.
+     */
+    private static WorldBuilder setupRestingWorld() {
+        return WorldBuilder.newWorld()
+                .withObject(obj(circle(vec2(0, 0), 1), vec2(0, 0), Material.ROCK))
+                .withObject(obj(circle(vec2(1.9, 0), 1), vec2(0, 0), Material.ROCK))
+                .withObject(obj(circle(vec2(10, 0), 1), vec2(-5, 0), Material.ROCK))
+                .withSupervisor(new CollisionSupervisor())
+                .withSleeping(0.1, 5);
+    }
+
+    private static void testAdaptiveStepping(WorldBuilder builder) {
+        PhysicalObject fast = obj(circle(vec2(0, 0), 1), vec2(100, 0), Material.ROCK);
+        PhysicsSimulation simulation = builder.withObject(fast)
+                .withObject(obj(circle(vec2(0, 10), 1), vec2(0, 0), Material.ROCK))
+                .withAdaptiveStepping(1, 50, 0.5)
+                .create();
+
+        // Nothing was measured yet
+        simulation.advance(0.1);
+        assertEquals(1, simulation.getSubstepCount());
+
+        // Moves 100 times its extent per second, so 0.1 / 20 seconds per
+        // substep moves half its extent
+        simulation.advance(0.1);
+        assertEquals(20, simulation.getSubstepCount());
+        assertEquals(0.1 / 20, simulation.getDeltaTime(), 1e-12);
+        assertEquals(20, fast.getCenterCoord(0), 1e-9);
+    }
+
+    /**
+     * Simulates an object hanging from a stiff spring for two seconds.
+     *
+     * @param builder
+     *            The world builder, which must add gravity.
+     * @param deltaTime
+     *            The time step.
+     * @return The position at the end.
+     */
+    private static Vector simulateSpring(WorldBuilder builder, double deltaTime) {
+        PhysicalObject object = obj(circle(vec2(1, 0), 1), vec2(0, 0), Material.ROCK);
+        double stiffness = object.getMass() * 100;
+        PhysicsSimulation simulation = builder.withObject(object)
+                .withForce((self, world) -> self.getShape().getCenter().multiply(-stiffness))
+                .create();
+        for (int i = 0; i < Math.round(2 / deltaTime); i++) {
+            simulation.advance(deltaTime);
+        }
+        return object.getShape().getCenter();
+    }
+
+    private static void testMultipleTimeSteps(WorldBuilder builder) {
+        Vector expected = simulateSpring(WorldBuilder.newWorld().withForce(Forces.GRAVITY), 0.0001);
+
+        Vector actual = simulateSpring(builder.withSlowForce(Forces.GRAVITY).withMultipleTimeSteps(10), 0.1);
+
+        // Just as accurate as calculating all forces every 0.01 seconds
+        assertEquals(expected.getCoord(0), actual.getCoord(0), 0.06);
+        assertEquals(expected.getCoord(1), actual.getCoord(1), 0.006);
+    }
+
+    private static void testSleeping(WorldBuilder builder) {
+        PhysicsSimulation simulation = builder.create();
+        PhysicalObject[] objects = simulation.getWorld().toArray(new PhysicalObject[0]);
+
+        for (int i = 0; i < 4; i++) {
+            simulation.advance(0.1);
+        }
+        assertFalse(objects[0].isSleeping());
+
+        // Resting for five steps, so touching circles fall asleep together
+        simulation.advance(0.1);
+        assertTrue(objects[0].isSleeping());
+        assertTrue(objects[1].isSleeping());
+        assertFalse(objects[2].isSleeping());
+
+        // Sleeping objects stay where they are
+        Shape shape = objects[0].getShape();
+        simulation.advance(0.1);
+        assertEquals(shape, objects[0].getShape());
+    }
+
+    private static void testSpawnAndDespawn(WorldBuilder builder) {
+        PhysicsSimulation simulation = builder.create();
+        PhysicalObject despawned = simulation.iterator().next();
+        PhysicalObject spawned = obj(circle(vec2(30, 0), 1), vec2(0, 0), Material.ROCK);
+
+        // Changes are only applied at the start of the next step
+        simulation.spawn(spawned);
+        simulation.despawn(despawned);
+        assertEquals(3, simulation.getWorld().size());
+        assertFalse(simulation.getWorld().contains(spawned));
+        assertTrue(simulation.getWorld().contains(despawned));
+
+        Shape despawnedShape = despawned.getShape();
+        simulation.advance(0.5);
+
+        WorldView world = simulation.getWorld();
+        assertEquals(3, world.size());
+        assertTrue(world.contains(spawned));
+        assertFalse(world.contains(despawned));
+        assertEquals(1, world.filterOnMaterial(Material.ROCK).size());
+        assertEquals(2, world.filterOnMaterial(Material.BOUNCYBALL).size());
+
+        // Despawned object is no longer moved, but still usable
+        assertEquals(despawnedShape, despawned.getShape());
+        simulation.spawn(despawned);
+        simulation.advance(0.5);
+        assertEquals(4, simulation.getWorld().size());
+    }
+
+    private static void testForcesSeeStartOfStep(WorldBuilder builder) {
+        List<List<Shape>> seenShapes = new ArrayList<>();
+        builder.withForce((object, world) -> {
+            List<Shape> shapes = new ArrayList<>();
+            world.forEach(other -> shapes.add(other.getShape()));
+            seenShapes.add(shapes);
+            return vec2(1, 1);
+        });
+        PhysicsSimulation simulation = builder.create();
+
+        for (int i = 0; i < 3; i++) {
+            seenShapes.clear();
+            simulation.advance(0.5);
+
+            // Every force calculation saw the same world
+            assertEquals(3, seenShapes.size());
+            assertEquals(seenShapes.get(0), seenShapes.get(1));
+            assertEquals(seenShapes.get(0), seenShapes.get(2));
+        }
+    }
+
+    @Test
+    public void testAdaptiveSteppingColumnar() {
+        testAdaptiveStepping(WorldBuilder.newWorld().withColumnarStorage());
+    }
+
+    @Test
+    public void testAdaptiveSteppingLimits() {
+        PhysicalObject fast = obj(circle(vec2(0, 0), 1), vec2(100, 0), Material.ROCK);
+        PhysicsSimulation limited = WorldBuilder.newWorld()
+                .withObject(fast)
+                .withAdaptiveStepping(2, 8, 0.5)
+                .create();
+        PhysicsSimulation quiet = WorldBuilder.newWorld()
+                .withObject(obj(circle(vec2(0, 0), 1), vec2(0, 0), Material.ROCK))
+                .withAdaptiveStepping(2, 8, 0.5)
+                .create();
+
+        for (int i = 0; i < 2; i++) {
+            limited.advance(0.1);
+            quiet.advance(0.1);
+        }
+
+        assertEquals(8, limited.getSubstepCount());
+        assertEquals(2, quiet.getSubstepCount());
+    }
+
+    @Test
+    public void testAdaptiveSteppingObjects() {
+        testAdaptiveStepping(WorldBuilder.newWorld());
+    }
+
+    @Test
+    public void testAdvanceWithTimings() {
+        PhysicsSimulation timed = setupWorld().withSupervisor(world -> busyWait()).create();
+        PhysicsSimulation untimed = setupWorld().withSupervisor(world -> busyWait()).create();
+        PhaseTimings timings = new PhaseTimings();
+
+        for (int i = 0; i < 3; i++) {
+            timed.advance(0.5, timings);
+            untimed.advance(0.5);
+        }
+
+        assertEquals(3, timings.getSteps());
+        assertTrue(timings.getNanos(StepPhase.SUPERVISION) >= 3_000_000);
+        assertEquals(timings.getNanos(StepPhase.FORCES) + timings.getNanos(StepPhase.INTEGRATION)
+                + timings.getNanos(StepPhase.SUPERVISION), timings.getTotalNanos());
+        Iterator<PhysicalObject> untimedObjects = untimed.iterator();
+        for (PhysicalObject object : timed) {
+            assertEquals(untimedObjects.next().getShape(), object.getShape());
+        }
+
+        timings.reset();
+        assertEquals(0, timings.getSteps());
+        assertEquals(0, timings.getTotalNanos());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDespawnNotInWorld() {
+        setupWorld().create().despawn(obj(circle(vec2(0, 0), 1), vec2(0, 0), Material.ROCK));
+    }
+
+    @Test
+    public void testForcesSeeStartOfStepColumnar() {
+        testForcesSeeStartOfStep(setupWorld().withColumnarStorage());
+    }
+
+    @Test
+    public void testForcesSeeStartOfStepObjects() {
+        testForcesSeeStartOfStep(setupWorld());
+    }
+
+    @Test
+    public void testListener() {
+        List<Long> steps = new ArrayList<>();
+        List<Long> supervisorNanos = new ArrayList<>();
+        List<Long> allocatedBytes = new ArrayList<>();
+        Supervisor supervisor = world -> busyWait();
+        PhysicsSimulation simulation = setupWorld()
+                .withSupervisor(supervisor)
+                .withListener((sim, metrics) -> {
+                    assertEquals(Arrays.asList(supervisor), metrics.getSupervisors());
+                    steps.add(metrics.getStep());
+                    supervisorNanos.add(metrics.getSupervisorNanos(0));
+                    allocatedBytes.add(metrics.getAllocatedBytes());
+                    assertTrue(metrics.getNanos(StepPhase.SUPERVISION) >= metrics.getSupervisorNanos(0));
+                })
+                .create();
+        assertNotNull(simulation.getStepMetrics());
+
+        simulation.advance(0.5);
+        simulation.advance(0.5);
+
+        assertEquals(Arrays.asList(1L, 2L), steps);
+        for (long nanos : supervisorNanos) {
+            assertTrue(nanos >= 1_000_000);
+        }
+        for (long bytes : allocatedBytes) {
+            assertTrue(bytes >= -1);
+        }
+    }
+
+    @Test
+    public void testMultipleTimeStepsColumnar() {
+        testMultipleTimeSteps(WorldBuilder.newWorld().withColumnarStorage());
+    }
+
+    @Test
+    public void testMultipleTimeStepsObjects() {
+        testMultipleTimeSteps(WorldBuilder.newWorld());
+    }
+
+    @Test
+    public void testNoListeners() {
+        assertNull(setupWorld().create().getStepMetrics());
+    }
+
+    @Test
+    public void testSleepingColumnar() {
+        testSleeping(setupRestingWorld().withColumnarStorage());
+    }
+
+    @Test
+    public void testSleepingObjects() {
+        testSleeping(setupRestingWorld());
+    }
+
+    @Test
+    public void testSleepingWakesOnContact() {
+        PhysicsSimulation simulation = setupRestingWorld().create();
+        PhysicalObject[] objects = simulation.getWorld().toArray(new PhysicalObject[0]);
+
+        for (int i = 0; i < 20; i++) {
+            simulation.advance(0.1);
+        }
+
+        // Moving circle has hit the sleeping circles
+        assertFalse(objects[1].isSleeping());
+        assertTrue(objects[1].getVelocity().getCoord(0) < 0);
+    }
+
+    @Test
+    public void testSleepingWakesOnVelocityChange() {
+        PhysicsSimulation simulation = setupRestingWorld().create();
+        PhysicalObject[] objects = simulation.getWorld().toArray(new PhysicalObject[0]);
+        for (int i = 0; i < 5; i++) {
+            simulation.advance(0.1);
+        }
+        assertTrue(objects[1].isSleeping());
+
+        Supervisor supervisor = world -> {
+            // Empty
+        };
+        supervisor.changeVelocity(objects[0], vec2(1, 0));
+
+        // The whole island wakes up
+        assertFalse(objects[0].isSleeping());
+        assertFalse(objects[1].isSleeping());
+    }
+
+    @Test
+    public void testSlowForceCalculatedOncePerStep() {
+        int[] fastCount = new int[1];
+        int[] slowCount = new int[1];
+        PhysicsSimulation simulation = WorldBuilder.newWorld()
+                .withObject(obj(circle(vec2(0, 0), 1), vec2(0, 0), Material.ROCK))
+                .withForce((object, world) -> {
+                    fastCount[0]++;
+                    return vec2(0, 0);
+                })
+                .withSlowForce((object, world) -> {
+                    slowCount[0]++;
+                    return vec2(0, 0);
+                })
+                .withMultipleTimeSteps(4)
+                .create();
+
+        for (int i = 0; i < 3; i++) {
+            simulation.advance(0.1);
+        }
+
+        assertEquals(12, fastCount[0]);
+        // At the start of the first step, then at the end of every step
+        assertEquals(4, slowCount[0]);
+    }
+
+    @Test
+    public void testSlowForceRecalculatedAfterSupervisorMoves() {
+        PhysicalObject object = obj(circle(vec2(1, 0), 1), vec2(0, 0), Material.ROCK);
+        List<Double> seenPositions = new ArrayList<>();
+        boolean[] moved = { false };
+        PhysicsSimulation simulation = WorldBuilder.newWorld()
+                .withObject(object)
+                .withSlowForce((self, world) -> {
+                    seenPositions.add(self.getCenterCoord(0));
+                    return self.getShape().getCenter().multiply(-self.getMass());
+                })
+                .withSupervisor(world -> {
+                    if (!moved[0]) {
+                        moved[0] = true;
+                        object.move(vec2(5, 0));
+                    }
+                })
+                .create();
+
+        simulation.advance(0.1);
+        double movedX = object.getCenterCoord(0);
+        simulation.advance(0.1);
+
+        // At the start and the end of the first step, then again after the
+        // supervisor moved the object, and at the end of the second step
+        assertEquals(4, seenPositions.size());
+        assertEquals(movedX, seenPositions.get(2), 0);
+    }
+
+    @Test
+    public void testSpawnAndDespawnColumnar() {
+        testSpawnAndDespawn(setupWorld().withColumnarStorage());
+    }
+
+    @Test
+    public void testSpawnAndDespawnObjects() {
+        testSpawnAndDespawn(setupWorld());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSpawnTwice() {
+        PhysicsSimulation simulation = setupWorld().create();
+        PhysicalObject object = obj(circle(vec2(0, 0), 1), vec2(0, 0), Material.ROCK);
+
+        simulation.spawn(object);
+        simulation.spawn(object);
+    }
+
+    @Test
+    public void testStageOrder() {
+        List<String> ran = new ArrayList<>();
+        PhysicsSimulation simulation = setupWorld()
+                .withStage(StepPhase.SUPERVISION, (sim, deltaTime) -> ran.add("supervision"))
+                .withSupervisor(world -> ran.add("supervisor"))
+                .withStage(StepPhase.INTEGRATION, (sim, deltaTime) -> ran.add("integration " + deltaTime))
+                .withStage(StepPhase.FORCES, (sim, deltaTime) -> ran.add("forces 1"))
+                .withStage(StepPhase.FORCES, (sim, deltaTime) -> ran.add("forces 2"))
+                .create();
+
+        simulation.advance(0.25);
+
+        assertEquals(Arrays.asList("forces 1", "forces 2", "integration 0.25", "supervisor", "supervision"), ran);
+    }
+
+    @Test
+    public void testStateCommittedAfterIntegration() {
+        PhysicalObject object = obj(circle(vec2(0, 0), 1), vec2(2, 0), Material.BOUNCYBALL);
+        List<Shape> seenShapes = new ArrayList<>();
+        PhysicsSimulation simulation = WorldBuilder.newWorld()
+                .withObject(object)
+                .withStage(StepPhase.FORCES, (sim, deltaTime) -> seenShapes.add(object.getShape()))
+                .withStage(StepPhase.INTEGRATION, (sim, deltaTime) -> seenShapes.add(object.getShape()))
+                .create();
+
+        simulation.advance(1);
+
+        assertEquals(Arrays.asList(circle(vec2(0, 0), 1), circle(vec2(2, 0), 1)), seenShapes);
+    }
+}
@@ -0,0 +1,145 @@
+package nl.rutgerkok.physicssimulation.world;
+
+import static nl.rutgerkok.physicssimulation.shape.Circle.circle;
+import static nl.rutgerkok.physicssimulation.shape.Rectangle.rectangle;
+import static nl.rutgerkok.physicssimulation.shape.Sphere.sphere;
+import static nl.rutgerkok.physicssimulation.vector.Vector.vec2;
+import static nl.rutgerkok.physicssimulation.vector.Vector.vec3;
+import static nl.rutgerkok.physicssimulation.world.PhysicalObject.obj;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import nl.rutgerkok.physicssimulation.collision.CollisionSupervisor;
+import nl.rutgerkok.physicssimulation.force.Forces;
+import nl.rutgerkok.physicssimulation.shape.Material;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SnapshotsTest {
+
+    private static void assertSameObjects(PhysicsSimulation expected, PhysicsSimulation actual) {
+        assertEquals(expected.getWorld().size(), actual.getWorld().size());
+        Iterator<PhysicalObject> actualObjects = actual.getWorld().iterator();
+        for (PhysicalObject expectedObject : expected.getWorld()) {
+            PhysicalObject actualObject = actualObjects.next();
+            assertEquals(expectedObject.getShape(), actualObject.getShape());
+            assertEquals(expectedObject.getVelocity(), actualObject.getVelocity());
+            assertEquals(expectedObject.getMaterial(), actualObject.getMaterial());
+        }
+    }
+
+    private static WorldBuilder setupWorld2D() {
+        return WorldBuilder.newWorld()
+                .withObject(obj(circle(vec2(0, 0), 1), vec2(1, 0), Material.BOUNCYBALL))
+                .withObject(obj(circle(vec2(5, 0), 0.5), vec2(-1, 0.5), Material.WOOD))
+                .withObject(obj(rectangle(vec2(-20, -12), vec2(20, -10)), vec2(0, 0), Material.STATIC));
+    }
+
+    private static WorldBuilder setupWorld3D() {
+        return WorldBuilder.newWorld()
+                .withObject(obj(sphere(vec3(0, 1, -10), 2), vec3(0, 0, 6), Material.METAL))
+                .withObject(obj(sphere(vec3(0, 0, 10), 2), vec3(0, 2, -6), Material.PILLOW));
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private PhysicsSimulation roundTrip(PhysicsSimulation simulation) throws IOException {
+        Path file = folder.newFile().toPath();
+        Snapshots.write(simulation, file);
+        return Snapshots.read(file).create();
+    }
+
+    @Test
+    public void testContinueFromSnapshot() throws IOException {
+        PhysicsSimulation original = setupWorld2D().withForce(Forces.GRAVITY)
+                .withSupervisor(new CollisionSupervisor())
+                .create();
+        for (int i = 0; i < 30; i++) {
+            original.advance(1 / 60.0);
+        }
+        Path file = folder.newFile().toPath();
+        Snapshots.write(original, file);
+        PhysicsSimulation copy = Snapshots.read(file).withForce(Forces.GRAVITY)
+                .withSupervisor(new CollisionSupervisor())
+                .create();
+
+        for (int i = 0; i < 30; i++) {
+            original.advance(1 / 60.0);
+            copy.advance(1 / 60.0);
+        }
+        assertSameObjects(original, copy);
+    }
+
+    @Test
+    public void testInvalidFile() throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16 });
+        try {
+            Snapshots.read(file);
+            fail("Read invalid file");
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testReplacedVelocity() throws IOException {
+        PhysicsSimulation simulation = setupWorld2D().create();
+        simulation.advance(0.1);
+        PhysicalObject object = simulation.getWorld().iterator().next();
+        object.replaceVelocity(vec2(0, 3));
+
+        PhysicsSimulation copy = roundTrip(simulation);
+        simulation.advance(0.1);
+        copy.advance(0.1);
+        assertSameObjects(simulation, copy);
+        assertEquals(vec2(0, 3), copy.getWorld().iterator().next().getVelocity());
+    }
+
+    @Test
+    public void testRoundTrip2D() throws IOException {
+        PhysicsSimulation simulation = setupWorld2D().create();
+        simulation.advance(0.1);
+
+        assertSameObjects(simulation, roundTrip(simulation));
+    }
+
+    @Test
+    public void testRoundTrip3D() throws IOException {
+        PhysicsSimulation simulation = setupWorld3D().create();
+        simulation.advance(0.1);
+
+        assertSameObjects(simulation, roundTrip(simulation));
+    }
+
+    @Test
+    public void testRoundTripColumnar() throws IOException {
+        PhysicsSimulation simulation = setupWorld2D().withColumnarStorage().create();
+        simulation.advance(0.1);
+
+        assertSameObjects(simulation, roundTrip(simulation));
+    }
+
+    @Test
+    public void testTruncatedFile() throws IOException {
+        Path file = folder.newFile().toPath();
+        Snapshots.write(setupWorld3D().create(), file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        try {
+            Snapshots.read(file);
+            fail("Read truncated file");
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+}
@@ -21,6 +21,41 @@ public class WorldBuilderTest {
                 .withObject(obj(circle(vec2(0, 0), 2), vec2(0, 0), Material.WOOD));
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidFastSteps() {
+        WorldBuilder.newWorld().withMultipleTimeSteps(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxSubsteps() {
+        WorldBuilder.newWorld().withAdaptiveStepping(4, 2, 0.5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMinSubsteps() {
+        WorldBuilder.newWorld().withAdaptiveStepping(0, 2, 0.5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidParallelism() {
+        WorldBuilder.newWorld().withParallelism(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSleepSteps() {
+        WorldBuilder.newWorld().withSleeping(0.1, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSleepVelocity() {
+        WorldBuilder.newWorld().withSleeping(Double.NaN, 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSubstepMovement() {
+        WorldBuilder.newWorld().withAdaptiveStepping(1, 2, 0);
+    }
+
     @Test
     public void testToString() {
         assertNotNull(WorldBuilder.newWorld().toString());
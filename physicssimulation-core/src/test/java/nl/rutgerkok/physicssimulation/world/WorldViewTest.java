@@ -7,12 +7,15 @@ import static nl.rutgerkok.physicssimulation.world.PhysicalObject.obj;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 import nl.rutgerkok.physicssimulation.shape.Material;
@@ -107,6 +110,60 @@ public class WorldViewTest {
         assertFalse(superBallFiltered.contains(circle2));
     }
 
+    @Test
+    public void testFilteredViewsReused() {
+        // Filtering on the same materials must not create a new view
+        PhysicalObject circle1 = obj(circle(vec2(0, 0), 2), vec2(0, 0), Material.PILLOW);
+        PhysicalObject circle2 = obj(circle(vec2(3, 0), 2), vec2(0, 0), Material.ROCK);
+        PhysicalObject circle3 = obj(circle(vec2(6, 0), 2), vec2(0, 0), Material.PILLOW);
+
+        WorldView world = new MultipleMaterialWorldView(vec2(0, 0), asList(circle1, circle2, circle3));
+        WorldView filtered = world.filterOnMaterials(EnumSet.of(Material.ROCK, Material.PILLOW));
+
+        assertSame(filtered, world.filterOnMaterials(EnumSet.of(Material.PILLOW, Material.ROCK)));
+        assertSame(filtered, filtered.filterOnMaterials(EnumSet.of(Material.PILLOW, Material.ROCK, Material.WOOD)));
+        assertSame(world.filterOnMaterial(Material.ROCK), filtered.filterOnMaterial(Material.ROCK));
+
+        // Objects are grouped by material
+        assertEquals(asList(circle2, circle1, circle3), new ArrayList<>(filtered));
+    }
+
+    @Test
+    public void testForEachIndexed() {
+        PhysicalObject circle1 = obj(circle(vec2(0, 0), 2), vec2(0, 0), Material.ROCK);
+        PhysicalObject circle2 = obj(circle(vec2(3, 0), 2), vec2(0, 0), Material.PILLOW);
+        PhysicalObject circle3 = obj(circle(vec2(6, 0), 2), vec2(0, 0), Material.ROCK);
+
+        WorldView world = new MultipleMaterialWorldView(vec2(0, 0), asList(circle1, circle2, circle3));
+        List<PhysicalObject> seen = new ArrayList<>();
+        world.forEachIndexed((object, index) -> {
+            assertEquals(seen.size(), index);
+            seen.add(object);
+        });
+
+        assertEquals(new ArrayList<>(world), seen);
+    }
+
+    @Test
+    public void testGet() {
+        PhysicalObject circle1 = obj(circle(vec2(0, 0), 2), vec2(0, 0), Material.ROCK);
+        PhysicalObject circle2 = obj(circle(vec2(3, 0), 2), vec2(0, 0), Material.PILLOW);
+
+        WorldView world = new MultipleMaterialWorldView(vec2(0, 0), asList(circle1, circle2));
+        WorldView onlyPillows = world.filterOnMaterial(Material.PILLOW);
+
+        List<PhysicalObject> iterated = new ArrayList<>(world);
+        assertEquals(iterated.get(0), world.get(0));
+        assertEquals(iterated.get(1), world.get(1));
+        assertEquals(circle2, onlyPillows.get(0));
+        try {
+            onlyPillows.get(1);
+            fail("Index out of range");
+        } catch (IndexOutOfBoundsException e) {
+
+        }
+    }
+
     @Test
     public void testIterator() {
         // Test whether iterator is well-behaved
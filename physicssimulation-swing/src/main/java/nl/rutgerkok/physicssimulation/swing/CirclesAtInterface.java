@@ -8,6 +8,7 @@ import static nl.rutgerkok.physicssimulation.world.PhysicalObject.obj;
 import java.util.Random;
 import java.util.function.Supplier;
 
+import nl.rutgerkok.physicssimulation.collision.BroadPhases;
 import nl.rutgerkok.physicssimulation.collision.CollisionSupervisor;
 import nl.rutgerkok.physicssimulation.force.Forces;
 import nl.rutgerkok.physicssimulation.shape.Material;
@@ -45,7 +46,7 @@ final class CirclesAtInterface implements Supplier<PhysicsSimulation> {
                 .withObject(obj(rectangle(vec2(HOR_SIZE - 1, -VERT_SIZE + 1), vec2(HOR_SIZE, VERT_SIZE - 1)),
                         vec2(0, 0), Material.STATIC))
 
-                .withSupervisor(new CollisionSupervisor())
+                .withSupervisor(new CollisionSupervisor(BroadPhases.sweepAndPrune()))
                 .withForce(Forces.lennardJones(1.5, 6).restrictTo(Material.ROCK));
     }
 
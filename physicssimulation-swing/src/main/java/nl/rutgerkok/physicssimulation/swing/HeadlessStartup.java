@@ -0,0 +1,94 @@
+package nl.rutgerkok.physicssimulation.swing;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+import nl.rutgerkok.physicssimulation.world.PhaseTimings;
+import nl.rutgerkok.physicssimulation.world.PhysicsSimulation;
+import nl.rutgerkok.physicssimulation.world.StepPhase;
+
+/**
+ * Runs one of the example worlds as fast as possible, without displaying it.
+ * Useful for measuring the speed of the engine on machines without a display.
+ *
+ * <p>
+ * Usage: {@code java -cp <jar> nl.rutgerkok.physicssimulation.swing.HeadlessStartup <world> <stepSize> <stepCount>}
+ * where world is the name of one of the classes in this package, like
+ * {@code CirclesAtInterface}. Afterwards, the amount of steps per second and
+ * the time spent in each {@link StepPhase phase} are printed.
+ * </p>
+ */
+public final class HeadlessStartup {
+
+    private static Supplier<PhysicsSimulation> findWorld(String name) {
+        List<Supplier<PhysicsSimulation>> worldChoices = SwingStartup.getWorldChoices();
+        for (Supplier<PhysicsSimulation> worldChoice : worldChoices) {
+            if (worldChoice.getClass().getSimpleName().equalsIgnoreCase(name)) {
+                return worldChoice;
+            }
+        }
+        throw new IllegalArgumentException("Unknown world: " + name);
+    }
+
+    public static void main(String... args) {
+        if (args.length != 3) {
+            printUsage();
+            System.exit(1);
+            return;
+        }
+
+        Supplier<PhysicsSimulation> worldChoice;
+        double stepSize;
+        int stepCount;
+        try {
+            worldChoice = findWorld(args[0]);
+            stepSize = Double.parseDouble(args[1]);
+            stepCount = Integer.parseInt(args[2]);
+            if (!(stepSize > 0) || stepCount < 1) {
+                throw new IllegalArgumentException("Step size and step count must be positive");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            printUsage();
+            System.exit(1);
+            return;
+        }
+
+        PhysicsSimulation world = worldChoice.get();
+        int objectCount = world.getWorld().size();
+        PhaseTimings timings = new PhaseTimings();
+        long start = System.nanoTime();
+        for (int i = 0; i < stepCount; i++) {
+            world.advance(stepSize, timings);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        world.close();
+
+        System.out.println("World:            " + worldChoice);
+        System.out.println("Objects:          " + objectCount);
+        System.out.println(String.format(Locale.ROOT, "Steps:            %d of %.4f s", stepCount, stepSize));
+        System.out.println(String.format(Locale.ROOT, "Time:             %.3f s", seconds));
+        System.out.println(String.format(Locale.ROOT, "Steps/s:          %.1f", stepCount / seconds));
+        System.out.println(String.format(Locale.ROOT, "Object-steps/s:   %.1f", (double) objectCount * stepCount / seconds));
+        long totalNanos = Math.max(1, timings.getTotalNanos());
+        for (StepPhase phase : StepPhase.values()) {
+            long nanos = timings.getNanos(phase);
+            System.out.println(String.format(Locale.ROOT, "%-17s %.3f ms/step (%.1f%%)", phase + ":",
+                    nanos / 1e6 / stepCount, nanos * 100.0 / totalNanos));
+        }
+    }
+
+    private static void printUsage() {
+        StringBuilder worlds = new StringBuilder();
+        for (Supplier<PhysicsSimulation> worldChoice : SwingStartup.getWorldChoices()) {
+            worlds.append(' ').append(worldChoice.getClass().getSimpleName());
+        }
+        System.err.println("Usage: " + HeadlessStartup.class.getName() + " <world> <stepSize> <stepCount>");
+        System.err.println("Worlds:" + worlds);
+    }
+
+    private HeadlessStartup() {
+
+    }
+}
@@ -14,6 +14,15 @@ public final class SwingStartup {
 
     public static final int FPS = 60;
 
+    /**
+     * Gets all worlds that can be chosen in the example application.
+     *
+     * @return The worlds.
+     */
+    static List<Supplier<PhysicsSimulation>> getWorldChoices() {
+        return Arrays.asList(new CirclesAtInterface(), new ThreeFallingSpheres());
+    }
+
     public static void main(String... args) {
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -22,7 +31,7 @@ public final class SwingStartup {
             // Ignore, use default look and feel
         }
 
-        List<Supplier<PhysicsSimulation>> worldChoices = Arrays.asList(new CirclesAtInterface(), new ThreeFallingSpheres());
+        List<Supplier<PhysicsSimulation>> worldChoices = getWorldChoices();
         PhysicsSimulation world = worldChoices.get(0).get();
 
         new MainWindow(world, worldChoices);